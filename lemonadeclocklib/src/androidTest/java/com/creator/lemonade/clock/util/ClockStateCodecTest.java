@@ -0,0 +1,193 @@
+package com.creator.lemonade.clock.util;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests of {@link ClockStateCodec}, which restores the states into models of device.
+ * The snapshots are taken and restored at given times, so that the reboots can be simulated.
+ *
+ * @author Felix.Liang
+ */
+@RunWith(AndroidJUnit4.class)
+public class ClockStateCodecTest {
+
+    private static final long NANOS_PER_MILLI = 1000000;
+    private static final long NANOS_PER_SECOND = 1000 * NANOS_PER_MILLI;
+
+    private static final long SNAPSHOT_ELAPSED = 3600 * NANOS_PER_SECOND;
+    private static final long SNAPSHOT_WALL = 1500000000000L;
+    private static final int SNAPSHOT_BOOT = 7;
+
+    private static final int HEADER_BYTES = 5 * 8;
+
+    @Test
+    public void stopwatch_roundTripSameBoot() throws Exception {
+        final StopwatchModel[] models = {
+                stopwatch(true, false, 5 * NANOS_PER_SECOND),
+                stopwatch(true, true, 2 * NANOS_PER_SECOND),
+                stopwatch(false, false, 0)
+        };
+        final long[] data = ClockStateCodec.fromBytes(ClockStateCodec.toBytes(
+                ClockStateCodec.encode(models, models.length, SNAPSHOT_ELAPSED, SNAPSHOT_WALL, SNAPSHOT_BOOT)));
+        assertEquals(models.length, ClockStateCodec.getCount(data));
+
+        final StopwatchModel[] restored = newStopwatches(models.length);
+        final long now = SNAPSHOT_ELAPSED + 3 * NANOS_PER_SECOND;
+        assertEquals(models.length, ClockStateCodec.decode(data, restored, now, SNAPSHOT_WALL, SNAPSHOT_BOOT));
+        assertEquals(8 * NANOS_PER_SECOND, restored[0].getState().getTime(now));
+        assertEquals(2 * NANOS_PER_SECOND, restored[1].getState().getTime(now));
+        assertTrue(restored[1].getState().isPaused());
+        assertFalse(restored[2].getState().isStarted());
+    }
+
+    @Test
+    public void stopwatch_rebootUsesWallTime() throws Exception {
+        final StopwatchModel[] models = {stopwatch(true, false, 5 * NANOS_PER_SECOND)};
+        final long[] data = ClockStateCodec.encode(models, 1, SNAPSHOT_ELAPSED, SNAPSHOT_WALL, SNAPSHOT_BOOT);
+
+        // The device has been up longer than at the snapshot, which the elapsed real time can't tell
+        final StopwatchModel[] restored = newStopwatches(1);
+        final long now = SNAPSHOT_ELAPSED + 100 * NANOS_PER_SECOND;
+        ClockStateCodec.decode(data, restored, now, SNAPSHOT_WALL + 10 * 1000, SNAPSHOT_BOOT + 1);
+        assertEquals(15 * NANOS_PER_SECOND, restored[0].getState().getTime(now));
+    }
+
+    @Test
+    public void stopwatch_unknownBootFallsBackToElapsed() throws Exception {
+        final StopwatchModel[] models = {stopwatch(true, false, 5 * NANOS_PER_SECOND)};
+        final long[] data = ClockStateCodec.encode(models, 1, SNAPSHOT_ELAPSED, SNAPSHOT_WALL,
+                ClockStateStore.UNKNOWN_BOOT_COUNT);
+
+        final StopwatchModel[] restored = newStopwatches(1);
+        long now = SNAPSHOT_ELAPSED + NANOS_PER_SECOND;
+        ClockStateCodec.decode(data, restored, now, SNAPSHOT_WALL + 10 * 1000, ClockStateStore.UNKNOWN_BOOT_COUNT);
+        assertEquals(6 * NANOS_PER_SECOND, restored[0].getState().getTime(now));
+
+        now = NANOS_PER_SECOND;
+        ClockStateCodec.decode(data, restored, now, SNAPSHOT_WALL + 10 * 1000, ClockStateStore.UNKNOWN_BOOT_COUNT);
+        assertEquals(15 * NANOS_PER_SECOND, restored[0].getState().getTime(now));
+    }
+
+    @Test
+    public void timer_roundTripWithProgram() throws Exception {
+        final TimerProgram program = new TimerProgram.Builder()
+                .addSegment(30000, 1)
+                .addSegment(10000, 2)
+                .build();
+        final TimerModel[] models = {
+                timer(true, false, 25 * NANOS_PER_SECOND, 40 * NANOS_PER_SECOND, program),
+                timer(true, true, 4 * NANOS_PER_SECOND, 10 * NANOS_PER_SECOND, null)
+        };
+        final long[] data = ClockStateCodec.fromBytes(ClockStateCodec.toBytes(
+                ClockStateCodec.encode(models, models.length, SNAPSHOT_ELAPSED, SNAPSHOT_WALL, SNAPSHOT_BOOT)));
+        assertEquals(models.length, ClockStateCodec.getCount(data));
+
+        final TimerModel[] restored = {new TimerModel(), new TimerModel(), new TimerModel()};
+        final long now = SNAPSHOT_ELAPSED + 5 * NANOS_PER_SECOND;
+        assertEquals(models.length, ClockStateCodec.decode(data, restored, now, SNAPSHOT_WALL, SNAPSHOT_BOOT));
+
+        final TimerModel.TimerState first = restored[0].getState();
+        assertEquals(20 * NANOS_PER_SECOND, first.getRestTime(now));
+        assertEquals(40 * NANOS_PER_SECOND, first.getTotal());
+        assertEquals(30 * NANOS_PER_SECOND, first.getFiredThreshold());
+        assertEquals(2, first.getProgram().getSegmentCount());
+        for (int i = 0; i < program.getSegmentCount(); i++) {
+            assertEquals(program.getSegmentEnd(i), first.getProgram().getSegmentEnd(i));
+            assertEquals(program.getSegmentTag(i), first.getProgram().getSegmentTag(i));
+        }
+        final TimerModel.TimerState second = restored[1].getState();
+        assertEquals(4 * NANOS_PER_SECOND, second.getRestTime(now));
+        assertTrue(second.isPaused());
+        assertNull(second.getProgram());
+        assertFalse(restored[2].getState().isStarted());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_typeMismatch() throws Exception {
+        final long[] data = ClockStateCodec.encode(new StopwatchModel[0], 0, SNAPSHOT_ELAPSED, SNAPSHOT_WALL, SNAPSHOT_BOOT);
+        ClockStateCodec.decode(data, new TimerModel[0], SNAPSHOT_ELAPSED, SNAPSHOT_WALL, SNAPSHOT_BOOT);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getCount_foreignData() throws Exception {
+        ClockStateCodec.getCount(new long[]{1, 2, 3, 4, 5});
+    }
+
+    @Test
+    public void decode_truncatedStopwatchesLeavesModelsUntouched() throws Exception {
+        final StopwatchModel[] models = {
+                stopwatch(true, false, 5 * NANOS_PER_SECOND),
+                stopwatch(true, true, 2 * NANOS_PER_SECOND)
+        };
+        final long[] data = ClockStateCodec.encode(models, models.length, SNAPSHOT_ELAPSED, SNAPSHOT_WALL, SNAPSHOT_BOOT);
+        final StopwatchModel[] restored = newStopwatches(models.length);
+        try {
+            ClockStateCodec.decode(Arrays.copyOf(data, data.length - 1), restored,
+                    SNAPSHOT_ELAPSED, SNAPSHOT_WALL, SNAPSHOT_BOOT);
+            fail("Truncated states are restored");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        for (StopwatchModel model : restored) {
+            assertFalse(model.getState().isStarted());
+        }
+    }
+
+    @Test
+    public void decode_truncatedTimersLeavesModelsUntouched() throws Exception {
+        final TimerProgram program = new TimerProgram.Builder()
+                .addSegment(30000, 1)
+                .addSegment(10000, 2)
+                .build();
+        final TimerModel[] models = {
+                timer(true, false, 4 * NANOS_PER_SECOND, 10 * NANOS_PER_SECOND, null),
+                timer(true, false, 25 * NANOS_PER_SECOND, 40 * NANOS_PER_SECOND, program)
+        };
+        final long[] data = ClockStateCodec.encode(models, models.length, SNAPSHOT_ELAPSED, SNAPSHOT_WALL, SNAPSHOT_BOOT);
+        final TimerModel[] restored = {new TimerModel(), new TimerModel()};
+        // Only the segments of the last timer are cut
+        try {
+            ClockStateCodec.decode(Arrays.copyOf(data, data.length - 1), restored,
+                    SNAPSHOT_ELAPSED, SNAPSHOT_WALL, SNAPSHOT_BOOT);
+            fail("Truncated states are restored");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        for (TimerModel model : restored) {
+            assertFalse(model.getState().isStarted());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromBytes_partialLong() throws Exception {
+        ClockStateCodec.fromBytes(new byte[HEADER_BYTES + 3]);
+    }
+
+    private static StopwatchModel stopwatch(boolean started, boolean paused, long time) {
+        final StopwatchModel model = new StopwatchModel();
+        model.setState(StopwatchModel.StopwatchState.create(started, paused, time, SNAPSHOT_ELAPSED));
+        return model;
+    }
+
+    private static StopwatchModel[] newStopwatches(int count) {
+        final StopwatchModel[] models = new StopwatchModel[count];
+        for (int i = 0; i < count; i++) {
+            models[i] = new StopwatchModel();
+        }
+        return models;
+    }
+
+    private static TimerModel timer(boolean started, boolean paused, long rest, long total, TimerProgram program) {
+        final TimerModel model = new TimerModel();
+        model.setState(TimerModel.TimerState.create(started, paused, rest, total, program,
+                30 * NANOS_PER_SECOND, SNAPSHOT_ELAPSED));
+        return model;
+    }
+}
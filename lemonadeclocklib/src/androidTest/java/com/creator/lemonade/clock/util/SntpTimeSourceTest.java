@@ -0,0 +1,159 @@
+package com.creator.lemonade.clock.util;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests of {@link SntpTimeSource} against a server on the loopback, which answers
+ * with the time of device shifted by a given offset.
+ *
+ * @author Felix.Liang
+ */
+@RunWith(AndroidJUnit4.class)
+public class SntpTimeSourceTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    /**
+     * The tolerance of comparing times in milliseconds, which covers the round trip on the loopback
+     */
+    private static final long TOLERANCE = 500;
+
+    private FakeServer mServer;
+    private SntpTimeSource mSource;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new FakeServer();
+        mServer.start();
+        mSource = new SntpTimeSource("127.0.0.1", mServer.getPort());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.close();
+    }
+
+    @Test
+    public void currentTimeMillis_followsDeviceUntilSynced() throws Exception {
+        assertFalse(mSource.isSynced());
+        assertEquals(System.currentTimeMillis(), mSource.currentTimeMillis(), TOLERANCE);
+    }
+
+    @Test
+    public void query_firstResponseSetsOffset() throws Exception {
+        mServer.mOffset = 5000;
+        final long error = mSource.query();
+        assertTrue(mSource.isSynced());
+        assertEquals(5000, error, TOLERANCE);
+        assertEquals(System.currentTimeMillis() + 5000, mSource.currentTimeMillis(), TOLERANCE);
+    }
+
+    @Test
+    public void query_smallErrorIsSlewed() throws Exception {
+        mServer.mOffset = HOUR;
+        mSource.query();
+        mServer.mOffset = HOUR + 2000;
+        final long error = mSource.query();
+        assertEquals(2000, error, TOLERANCE);
+        // The correction is slewed at 5%, which is far less than the error right after the query
+        assertEquals(System.currentTimeMillis() + HOUR, mSource.currentTimeMillis(), TOLERANCE);
+    }
+
+    @Test
+    public void query_largeErrorIsStepped() throws Exception {
+        mServer.mOffset = HOUR;
+        mSource.query();
+        mServer.mOffset = HOUR + 2 * SntpTimeSource.STEP_THRESHOLD;
+        final long error = mSource.query();
+        assertEquals(2 * SntpTimeSource.STEP_THRESHOLD, error, TOLERANCE);
+        assertEquals(System.currentTimeMillis() + mServer.mOffset, mSource.currentTimeMillis(), TOLERANCE);
+    }
+
+    @Test
+    public void query_rejectsMismatchedResponse() throws Exception {
+        mServer.mOffset = HOUR;
+        mServer.mMatchOriginate = false;
+        assertEquals(-1, mSource.query());
+        assertFalse(mSource.isSynced());
+        assertEquals(System.currentTimeMillis(), mSource.currentTimeMillis(), TOLERANCE);
+    }
+
+    /**
+     * A stand-in of SNTP server, which answers each request on the loopback in mode 4, stratum 1.
+     */
+    private static class FakeServer extends Thread {
+
+        private static final long OFFSET_1900_TO_1970 = ((365L * 70L) + 17L) * 24L * 60L * 60L;
+
+        private final DatagramSocket mSocket;
+
+        /**
+         * The offset to add to the time of device in milliseconds
+         */
+        volatile long mOffset;
+
+        /**
+         * Whether to echo the transmit time of request as the originate time
+         */
+        volatile boolean mMatchOriginate = true;
+
+        FakeServer() throws IOException {
+            mSocket = new DatagramSocket(0, InetAddress.getByName("127.0.0.1"));
+            setDaemon(true);
+        }
+
+        int getPort() {
+            return mSocket.getLocalPort();
+        }
+
+        void close() {
+            mSocket.close();
+        }
+
+        @Override
+        public void run() {
+            final byte[] buffer = new byte[48];
+            try {
+                while (true) {
+                    final DatagramPacket request = new DatagramPacket(buffer, buffer.length);
+                    mSocket.receive(request);
+                    if (mMatchOriginate) {
+                        System.arraycopy(buffer, 40, buffer, 24, 8);
+                    } else {
+                        writeTimestamp(buffer, 24, 0);
+                    }
+                    // Leap 0, version 3, mode 4
+                    buffer[0] = (byte) ((3 << 3) | 4);
+                    buffer[1] = 1;
+                    final long time = System.currentTimeMillis() + mOffset;
+                    writeTimestamp(buffer, 32, time);
+                    writeTimestamp(buffer, 40, time);
+                    mSocket.send(new DatagramPacket(buffer, buffer.length, request.getSocketAddress()));
+                }
+            } catch (IOException e) {
+                // Closed
+            }
+        }
+
+        private static void writeTimestamp(byte[] buffer, int offset, long time) {
+            final long seconds = time / 1000L + OFFSET_1900_TO_1970;
+            final long fraction = ((time % 1000L) << 32) / 1000L;
+            for (int i = 0; i < 4; i++) {
+                buffer[offset + i] = (byte) (seconds >> (24 - i * 8));
+                buffer[offset + 4 + i] = (byte) (fraction >> (24 - i * 8));
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.creator.lemonade.clock.util;
+
+import android.os.Parcel;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests of the {@link android.os.Parcelable} implementation of {@link TimerProgram},
+ * which needs the {@link Parcel} of device.
+ *
+ * @author Felix.Liang
+ */
+@RunWith(AndroidJUnit4.class)
+public class TimerProgramParcelTest {
+
+    @Test
+    public void parcel_roundTrip() throws Exception {
+        final TimerProgram program = new TimerProgram.Builder()
+                .addSegment(3000, 0)
+                .addSegment(1000, 1)
+                .addSegment(500, 2)
+                .repeatLast(2, 4)
+                .build();
+        final Parcel parcel = Parcel.obtain();
+        try {
+            program.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            final TimerProgram copy = TimerProgram.CREATOR.createFromParcel(parcel);
+            assertEquals(program.getSegmentCount(), copy.getSegmentCount());
+            for (int i = 0; i < program.getSegmentCount(); i++) {
+                assertEquals(program.getSegmentEnd(i), copy.getSegmentEnd(i));
+                assertEquals(program.getSegmentTag(i), copy.getSegmentTag(i));
+            }
+            assertEquals(parcel.dataSize(), parcel.dataPosition());
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @Test
+    public void parcel_roundTripInTimerState() throws Exception {
+        final TimerModel model = new TimerModel();
+        model.setProgram(new TimerProgram.Builder().addSegment(1000, 7).addSegment(2000, 8).build());
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeParcelable(model.getState(), 0);
+            parcel.setDataPosition(0);
+            final TimerModel.TimerState copy = parcel.readParcelable(TimerModel.TimerState.class.getClassLoader());
+            assertNotNull(copy.getProgram());
+            assertEquals(3000 * 1000000L, copy.getTotal());
+            assertEquals(2, copy.getProgram().getSegmentCount());
+            assertEquals(8, copy.getProgram().getSegmentTag(1));
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.creator.lemonade.clock.util;
+
+import android.os.Parcel;
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests of the thresholds of {@link TimerModel}, when its state is restored.
+ *
+ * @author Felix.Liang
+ */
+@RunWith(AndroidJUnit4.class)
+public class TimerThresholdTest {
+
+    private static final long NANOS_PER_MILLI = 1000000;
+    private static final long NANOS_PER_SECOND = 1000 * NANOS_PER_MILLI;
+
+    @Test
+    public void setState_firesMissedThresholdsInOrder() throws Exception {
+        final TimerModel model = new TimerModel();
+        final List<Long> fired = watch(model);
+        model.setThresholds(1000, 15000, 5000, 10000);
+        // The threshold of 15 seconds fired before the death of process
+        model.setState(TimerModel.TimerState.create(true, false, 4 * NANOS_PER_SECOND, 20 * NANOS_PER_SECOND,
+                null, 15 * NANOS_PER_SECOND, SystemClock.elapsedRealtimeNanos()));
+        assertEquals(Arrays.asList(10000L, 5000L), fired);
+        assertEquals(5 * NANOS_PER_SECOND, model.getState().getFiredThreshold());
+    }
+
+    @Test
+    public void setState_neverFiresTwice() throws Exception {
+        final TimerModel model = new TimerModel();
+        final List<Long> fired = watch(model);
+        model.setThresholds(5000, 10000);
+        model.setState(TimerModel.TimerState.create(true, true, 4 * NANOS_PER_SECOND, 20 * NANOS_PER_SECOND,
+                null, 5 * NANOS_PER_SECOND, SystemClock.elapsedRealtimeNanos()));
+        assertTrue(fired.isEmpty());
+    }
+
+    @Test
+    public void setState_withoutFiredThresholdFiresAllPassed() throws Exception {
+        final TimerModel model = new TimerModel();
+        final List<Long> fired = watch(model);
+        model.setThresholds(5000, 10000, 30000);
+        model.setState(TimerModel.TimerState.create(true, true, 8 * NANOS_PER_SECOND, 20 * NANOS_PER_SECOND,
+                null, TimerModel.TimerState.NO_THRESHOLD, SystemClock.elapsedRealtimeNanos()));
+        // The threshold above the total time is never reached
+        assertEquals(Arrays.asList(10000L), fired);
+    }
+
+    @Test
+    public void parcel_keepsFiredThreshold() throws Exception {
+        final TimerModel.TimerState state = TimerModel.TimerState.create(true, true, 4 * NANOS_PER_SECOND,
+                20 * NANOS_PER_SECOND, null, 5 * NANOS_PER_SECOND, SystemClock.elapsedRealtimeNanos());
+        final Parcel parcel = Parcel.obtain();
+        try {
+            state.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            final TimerModel.TimerState copy = TimerModel.TimerState.CREATOR.createFromParcel(parcel);
+            assertEquals(5 * NANOS_PER_SECOND, copy.getFiredThreshold());
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static List<Long> watch(TimerModel model) {
+        final List<Long> fired = new ArrayList<>();
+        model.addThresholdListener(new TimerModel.ThresholdWatcher() {
+            @Override
+            public void onThreshold(long thresholdInMillis) {
+                fired.add(thresholdInMillis);
+            }
+        });
+        return fired;
+    }
+}
@@ -0,0 +1,221 @@
+package com.creator.lemonade.clock.appwidget;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.text.format.DateFormat;
+import android.view.ContextThemeWrapper;
+import android.widget.RemoteViews;
+
+import com.creator.lemonade.clock.R;
+import com.creator.lemonade.clock.graphics.ClockDrawable;
+import com.creator.lemonade.clock.util.DimenConverter;
+import com.creator.lemonade.clock.widget.Clock;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An AppWidget provider which shows an analog clock on the home screen.
+ * <p>
+ * Home-screen widgets cannot host a {@link Clock}, so the frames of a {@link ClockDrawable} are
+ * rendered into bitmaps on a background thread. The frames of next several minutes are rendered
+ * ahead and kept in a cache bounded by bytes, and all the widgets are updated with one call per
+ * minute, scheduled by an exact alarm which doesn't wake up the device. The cache is dropped only
+ * when the size, theme or time zone changes.
+ * <p>
+ * To use it, declare this receiver in the manifest of application with the actions
+ * {@link AppWidgetManager#ACTION_APPWIDGET_UPDATE}, {@link #ACTION_MINUTE_TICK},
+ * {@link Intent#ACTION_TIME_CHANGED} and {@link Intent#ACTION_TIMEZONE_CHANGED}, and the meta-data
+ * {@code android.appwidget.provider} pointing to {@code @xml/lemonade_clock_appwidget_info}.
+ * Override {@link #onCreateClockDrawable(Context)} to customize the style of clock.
+ *
+ * @author Felix.Liang
+ */
+@SuppressWarnings("unused")
+public class ClockAppWidgetProvider extends AppWidgetProvider {
+
+    /**
+     * The action of broadcast which updates the widgets at the start of every minute
+     */
+    public static final String ACTION_MINUTE_TICK = "com.creator.lemonade.clock.action.APPWIDGET_MINUTE_TICK";
+
+    /**
+     * Count of minute frames to render ahead
+     */
+    private static final int PRERENDER_MINUTES = 5;
+
+    /**
+     * The max bytes of frames cached by one provider
+     */
+    private static final int MAX_CACHE_BYTES = 8 * 1024 * 1024;
+
+    /**
+     * The size of frame in dp when the widget host doesn't report the size
+     */
+    private static final int DEFAULT_FRAME_SIZE = 110;
+
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+
+    /**
+     * The renderers of providers, keyed by the class of provider
+     */
+    private static final Map<Class<?>, ClockFrameRenderer> sRenderers = new HashMap<>();
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        final String action = intent.getAction();
+        if (ACTION_MINUTE_TICK.equals(action)
+                || Intent.ACTION_TIME_CHANGED.equals(action)
+                || Intent.ACTION_TIMEZONE_CHANGED.equals(action)) {
+            updateAll(context);
+        } else {
+            super.onReceive(context, intent);
+        }
+    }
+
+    @Override
+    public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        updateAll(context);
+    }
+
+    @Override
+    public void onAppWidgetOptionsChanged(Context context, AppWidgetManager appWidgetManager,
+                                          int appWidgetId, Bundle newOptions) {
+        updateAll(context);
+    }
+
+    @Override
+    public void onDisabled(Context context) {
+        final AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager != null) alarmManager.cancel(getTickIntent(context));
+        final ClockFrameRenderer renderer = getRenderer();
+        renderer.getHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                renderer.clear();
+            }
+        });
+    }
+
+    /**
+     * Creates the drawable to render frames with. This is called on the render thread, only when
+     * the size, theme or time zone changes. Subclass can override this to customize the style.
+     * The colors come from the theme of application, as the application context runs in the
+     * default theme of system.
+     *
+     * @param context the application context
+     * @return The {@link ClockDrawable}
+     */
+    @NonNull
+    protected ClockDrawable onCreateClockDrawable(@NonNull Context context) {
+        final int theme = context.getApplicationInfo().theme;
+        final ClockDrawable drawable = Clock.createDrawable(
+                theme != 0 ? new ContextThemeWrapper(context, theme) : context, null);
+        // The frames are updated once per minute, so a second hand would stand still. The style
+        // shared with the clocks of same theme is copied before it is changed.
+        drawable.mutate();
+        drawable.setSecondHandColor(Color.TRANSPARENT);
+        return drawable;
+    }
+
+    /**
+     * Creates the views to push a frame to the widgets. Subclass can override this to use its own layout,
+     * the frame should be set to an ImageView of it.
+     *
+     * @param context the application context
+     * @param frame   the rendered frame
+     * @return The {@link RemoteViews}
+     */
+    @NonNull
+    protected RemoteViews onCreateRemoteViews(@NonNull Context context, @NonNull Bitmap frame) {
+        final RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.lemonade_clock_appwidget);
+        views.setImageViewBitmap(R.id.lemonade_clock_appwidget_image, frame);
+        return views;
+    }
+
+    /**
+     * Updates all the widgets of this provider with the frame of current minute, renders the frames
+     * of next minutes and schedules the next update.
+     *
+     * @param context the context
+     */
+    private void updateAll(Context context) {
+        final Context appContext = context.getApplicationContext();
+        final AppWidgetManager manager = AppWidgetManager.getInstance(appContext);
+        final int[] ids = manager.getAppWidgetIds(new ComponentName(appContext, getClass()));
+        if (ids == null || ids.length == 0) return;
+        final Resources resources = appContext.getResources();
+        final int size = getFrameSize(manager, ids, resources);
+        final int uiMode = resources.getConfiguration().uiMode & Configuration.UI_MODE_NIGHT_MASK;
+        final boolean use24Format = DateFormat.is24HourFormat(appContext);
+        final ClockFrameRenderer renderer = getRenderer();
+        final PendingResult result = goAsync();
+        renderer.getHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    renderer.configure(ClockAppWidgetProvider.this, appContext, size, size, uiMode, use24Format);
+                    final long minute = System.currentTimeMillis() / MILLIS_PER_MINUTE;
+                    final Bitmap frame = renderer.getFrame(minute);
+                    if (frame != null) manager.updateAppWidget(ids, onCreateRemoteViews(appContext, frame));
+                    scheduleNextTick(appContext, (minute + 1) * MILLIS_PER_MINUTE);
+                    renderer.prerender(minute + 1, PRERENDER_MINUTES);
+                } finally {
+                    result.finish();
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the size of frame in pixels, which fits the largest widget. All the widgets share the frames,
+     * so that one update call serves them all.
+     */
+    private static int getFrameSize(AppWidgetManager manager, int[] ids, Resources resources) {
+        int maxDp = 0;
+        for (int id : ids) {
+            final Bundle options = manager.getAppWidgetOptions(id);
+            if (options == null) continue;
+            final int width = options.getInt(AppWidgetManager.OPTION_APPWIDGET_MAX_WIDTH);
+            final int height = options.getInt(AppWidgetManager.OPTION_APPWIDGET_MAX_HEIGHT);
+            maxDp = Math.max(maxDp, Math.min(width, height));
+        }
+        return DimenConverter.dp2px(maxDp > 0 ? maxDp : DEFAULT_FRAME_SIZE, resources);
+    }
+
+    private void scheduleNextTick(Context context, long triggerAtMillis) {
+        final AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager != null) {
+            // RTC doesn't wake up the device, a missed tick is delivered when the device wakes up
+            alarmManager.setExact(AlarmManager.RTC, triggerAtMillis, getTickIntent(context));
+        }
+    }
+
+    private PendingIntent getTickIntent(Context context) {
+        final Intent intent = new Intent(context, getClass()).setAction(ACTION_MINUTE_TICK);
+        return PendingIntent.getBroadcast(context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    private ClockFrameRenderer getRenderer() {
+        synchronized (sRenderers) {
+            ClockFrameRenderer renderer = sRenderers.get(getClass());
+            if (renderer == null) {
+                final int maxBytes = (int) Math.min(MAX_CACHE_BYTES, Runtime.getRuntime().maxMemory() / 16);
+                renderer = new ClockFrameRenderer(maxBytes);
+                sRenderers.put(getClass(), renderer);
+            }
+            return renderer;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.creator.lemonade.clock.appwidget;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.util.LruCache;
+
+import com.creator.lemonade.clock.graphics.ClockDrawable;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * This class pre-renders the minute frames of a {@link ClockDrawable} into bitmaps on a background
+ * thread, and keeps them in a cache bounded by bytes. All the frames are rendered for one
+ * configuration of size, theme and time zone, and the cache is dropped only when that configuration
+ * changes.
+ *
+ * @author Felix.Liang
+ */
+class ClockFrameRenderer {
+
+    private static final String RENDER_THREAD_NAME = "LemonadeClockWidgetRender";
+
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+
+    private final HandlerThread mThread;
+    private final Handler mHandler;
+
+    /**
+     * Frames keyed by minutes since epoch
+     */
+    private final LruCache<Long, Bitmap> mFrames;
+
+    private ClockDrawable mDrawable;
+    private Canvas mCanvas = new Canvas();
+    private Calendar mTime;
+
+    private int mWidth;
+    private int mHeight;
+    private int mUiMode;
+    private String mTimeZoneId;
+    private boolean mUse24Format;
+
+    /**
+     * @param maxBytes the max bytes of bitmaps held by the cache
+     */
+    ClockFrameRenderer(int maxBytes) {
+        mThread = new HandlerThread(RENDER_THREAD_NAME, Process.THREAD_PRIORITY_BACKGROUND);
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+        mFrames = new LruCache<Long, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Long key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * Gets the handler of render thread, all the other methods must be called on it.
+     *
+     * @return the handler
+     */
+    Handler getHandler() {
+        return mHandler;
+    }
+
+    /**
+     * Sets the configuration of frames, drops all the cached frames and creates a new drawable
+     * if it changes.
+     *
+     * @param provider    the provider to create the drawable
+     * @param context     the context to create the drawable with
+     * @param width       width of frames in pixels
+     * @param height      height of frames in pixels
+     * @param uiMode      the ui mode of configuration, which decides the theme
+     * @param use24Format true if use 24-hour time
+     */
+    @WorkerThread
+    void configure(@NonNull ClockAppWidgetProvider provider, @NonNull Context context,
+                   int width, int height, int uiMode, boolean use24Format) {
+        final String timeZoneId = TimeZone.getDefault().getID();
+        if (mDrawable == null || mWidth != width || mHeight != height || mUiMode != uiMode
+                || mUse24Format != use24Format || !timeZoneId.equals(mTimeZoneId)) {
+            mFrames.evictAll();
+            final ClockDrawable drawable = provider.onCreateClockDrawable(context);
+            mDrawable = drawable;
+            mWidth = width;
+            mHeight = height;
+            mUiMode = uiMode;
+            mUse24Format = use24Format;
+            mTimeZoneId = timeZoneId;
+            mTime = Calendar.getInstance();
+            drawable.setBounds(0, 0, width, height);
+            drawable.setUse24Format(use24Format);
+        }
+    }
+
+    /**
+     * Gets the frame of given minute, renders it if not cached.
+     *
+     * @param minute minutes since epoch
+     * @return the frame, or null if not configured
+     */
+    @WorkerThread
+    @Nullable
+    Bitmap getFrame(long minute) {
+        if (mDrawable == null || mWidth <= 0 || mHeight <= 0) return null;
+        Bitmap frame = mFrames.get(minute);
+        if (frame == null) {
+            frame = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+            render(frame, minute);
+            mFrames.put(minute, frame);
+        }
+        return frame;
+    }
+
+    /**
+     * Renders the frames of the given minutes which are not cached yet.
+     *
+     * @param fromMinute the first minute since epoch
+     * @param count      count of minutes
+     */
+    @WorkerThread
+    void prerender(long fromMinute, int count) {
+        for (int i = 0; i < count; i++) {
+            getFrame(fromMinute + i);
+        }
+    }
+
+    /**
+     * Drops all the cached frames.
+     */
+    @WorkerThread
+    void clear() {
+        mFrames.evictAll();
+        mDrawable = null;
+    }
+
+    private void render(Bitmap frame, long minute) {
+        mTime.setTimeInMillis(minute * MILLIS_PER_MINUTE);
+        mDrawable.setTime(mTime.get(Calendar.HOUR_OF_DAY), mTime.get(Calendar.MINUTE), 0, 0);
+        final Canvas canvas = mCanvas;
+        canvas.setBitmap(frame);
+        canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+        final int saveCount = canvas.save();
+        mDrawable.draw(canvas);
+        canvas.restoreToCount(saveCount);
+        canvas.setBitmap(null);
+    }
+}
@@ -1,23 +1,90 @@
 package com.creator.lemonade.clock.base;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.PowerManager;
+import android.os.Trace;
+import android.support.annotation.CallSuper;
+import android.support.annotation.ColorRes;
 import android.support.annotation.Nullable;
+import android.support.v4.content.ContextCompat;
 import android.util.AttributeSet;
 import android.util.TypedValue;
 import android.view.View;
+import android.view.ViewTreeObserver;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
+import android.view.accessibility.AccessibilityNodeInfo;
 import android.widget.Checkable;
 
+import com.creator.lemonade.clock.R;
+import com.creator.lemonade.clock.util.ClockMetrics;
+import com.creator.lemonade.clock.util.ClockTrace;
 import com.creator.lemonade.clock.util.DimenConverter;
+import com.creator.lemonade.clock.util.GranularityFilter;
+import com.creator.lemonade.clock.util.TickGovernor;
+
+import java.util.Arrays;
+import java.util.HashMap;
 
 /**
  * This is a base class for clock view
+ * <p>
+ * The clock is suspended while it can't be seen: while it is detached, hidden by itself or its
+ * ancestors, while its window is invisible, while the screen is off, or while it is scrolled out
+ * of its clipping parent. Subclasses stop ticking in {@link #onSuspendChanged(boolean)}, and
+ * deliver one catch-up frame when they resume.
+ * <p>
+ * The time is reported to accessibility services through an {@link AccessibilityDelegate}. The
+ * subclasses pass every update of time to {@link #updateAccessibilityTime(long, boolean)}, which
+ * only notifies the services when the time changes in the granularity set by
+ * {@link #setAccessibilityGranularity(int)}, and does nothing while accessibility is disabled. The
+ * text is built on demand by {@link #onCreateAccessibilityTime(long)}. Set an accessibility live
+ * region to have the changes announced. The controls of clock are exposed as the actions chosen
+ * by {@link #getAccessibilityActions()}.
  *
  * @author Felix.Liang
  */
 @SuppressWarnings("unused")
 public abstract class AbsClock extends View implements Checkable {
 
+    /**
+     * The path of font asset used by digits
+     */
+    private static final String DIGIT_FONT_PATH = "fonts/digit_font.ttf";
+
+    /**
+     * The typeface of digits, which is shared by all the clocks of process
+     */
+    private static Typeface sDigitTypeface;
+
+    /**
+     * The states of drawables shared by the clocks of process, keyed by the type of drawable and the
+     * resolved style, guarded by itself
+     *
+     * @see #getSharedState(Class, int[])
+     */
+    private static final HashMap<StyleKey, Drawable.ConstantState> sSharedStates = new HashMap<>();
+
+    /**
+     * The actions of clock which can be exposed to accessibility services
+     *
+     * @see #getAccessibilityActions()
+     */
+    protected static final int ACCESSIBILITY_ACTION_START = 1;
+    protected static final int ACCESSIBILITY_ACTION_PAUSE = 1 << 1;
+    protected static final int ACCESSIBILITY_ACTION_LAP = 1 << 2;
+    protected static final int ACCESSIBILITY_ACTION_RESET = 1 << 3;
+
     /**
      * The current checked state of the view
      */
@@ -30,6 +97,84 @@ public abstract class AbsClock extends View implements Checkable {
      */
     private TypedValue mTempValue;
 
+    /**
+     * The metrics of tick and draw of this clock
+     *
+     * @see #getMetrics()
+     */
+    private final ClockMetrics mMetrics = new ClockMetrics();
+
+    /**
+     * The id which tells the events of this clock from the others in the {@link ClockTrace}
+     */
+    private final int mTraceSource = ClockTrace.getInstance().obtainSourceId();
+
+    /**
+     * @see #isSuspended()
+     */
+    private boolean mSuspended = true;
+
+    private boolean mAttached;
+    private boolean mAggregatedVisible = true;
+    private boolean mScreenOn = true;
+    private boolean mClipped;
+
+    /**
+     * The temporary rect for checking whether this clock is clipped out
+     */
+    private final Rect mTempRect = new Rect();
+
+    private final AccessibilityManager mAccessibilityManager;
+
+    /**
+     * The filter which coalesces the updates of time for accessibility, created on first use
+     */
+    private GranularityFilter mAccessibilityFilter;
+
+    /**
+     * @see #setAccessibilityGranularity(int)
+     */
+    private int mAccessibilityGranularity = GranularityFilter.GRANULARITY_MINUTE;
+
+    /**
+     * Whether the time is reported per second regardless of the granularity
+     */
+    private boolean mAccessibilityFine;
+
+    /**
+     * The latest time passed to {@link #updateAccessibilityTime(long, boolean)}
+     */
+    private long mAccessibilityTime;
+
+    /**
+     * The actions exposed to accessibility services, created on first use
+     */
+    private AccessibilityNodeInfo.AccessibilityAction[] mAccessibilityActions;
+
+    private final BroadcastReceiver mScreenReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            mScreenOn = Intent.ACTION_SCREEN_ON.equals(intent.getAction());
+            updateSuspension();
+        }
+    };
+
+    private final ViewTreeObserver.OnScrollChangedListener mScrollChangedListener =
+            new ViewTreeObserver.OnScrollChangedListener() {
+                @Override
+                public void onScrollChanged() {
+                    updateClipping();
+                }
+            };
+
+    private final ViewTreeObserver.OnGlobalLayoutListener mGlobalLayoutListener =
+            new ViewTreeObserver.OnGlobalLayoutListener() {
+                @Override
+                public void onGlobalLayout() {
+                    updateClipping();
+                }
+            };
+
     public AbsClock(Context context) {
         this(context, null);
     }
@@ -44,6 +189,354 @@ public abstract class AbsClock extends View implements Checkable {
 
     public AbsClock(Context context, @Nullable AttributeSet attrs, int defStyleAttr, int defStyleRes) {
         super(context, attrs, defStyleAttr, defStyleRes);
+        TickGovernor.getInstance().monitorPowerState(context);
+        mAccessibilityManager = (AccessibilityManager) context.getSystemService(Context.ACCESSIBILITY_SERVICE);
+        setAccessibilityDelegate(new ClockAccessibilityDelegate());
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        onTickWeightChanged((long) w * h);
+    }
+
+    /**
+     * Called when the weight of this clock in the {@link TickGovernor} changes, which is the area
+     * of it in pixels. Subclass should pass it to the model that ticks.
+     *
+     * @param weight the weight
+     */
+    protected void onTickWeightChanged(long weight) {
+    }
+
+    @Override
+    @CallSuper
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mAttached = true;
+        final IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        getContext().registerReceiver(mScreenReceiver, filter);
+        final PowerManager powerManager = (PowerManager) getContext().getSystemService(Context.POWER_SERVICE);
+        mScreenOn = powerManager == null || powerManager.isInteractive();
+        final ViewTreeObserver observer = getViewTreeObserver();
+        observer.addOnScrollChangedListener(mScrollChangedListener);
+        observer.addOnGlobalLayoutListener(mGlobalLayoutListener);
+        mAggregatedVisible = isShown();
+        mClipped = false;
+        updateSuspension();
+    }
+
+    @Override
+    @CallSuper
+    protected void onDetachedFromWindow() {
+        mAttached = false;
+        getContext().unregisterReceiver(mScreenReceiver);
+        final ViewTreeObserver observer = getViewTreeObserver();
+        observer.removeOnScrollChangedListener(mScrollChangedListener);
+        observer.removeOnGlobalLayoutListener(mGlobalLayoutListener);
+        updateSuspension();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public void onVisibilityAggregated(boolean isVisible) {
+        super.onVisibilityAggregated(isVisible);
+        mAggregatedVisible = isVisible;
+        updateSuspension();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            // onVisibilityAggregated(boolean) isn't called before Android N
+            mAggregatedVisible = isShown();
+            updateSuspension();
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateSuspension();
+    }
+
+    @Override
+    public void onWindowFocusChanged(boolean hasWindowFocus) {
+        super.onWindowFocusChanged(hasWindowFocus);
+        // An unfocused window may still be seen, such as in multi-window mode, so the focus only
+        // triggers a check rather than a suspension
+        updateClipping();
+    }
+
+    /**
+     * Checks whether this clock is clipped out by its ancestors, such as scrolled out of a ScrollView.
+     */
+    private void updateClipping() {
+        final boolean clipped = !getGlobalVisibleRect(mTempRect);
+        if (mClipped != clipped) {
+            mClipped = clipped;
+            updateSuspension();
+        }
+    }
+
+    private void updateSuspension() {
+        final boolean suspended = !mAttached || !mAggregatedVisible || !mScreenOn || mClipped
+                || getWindowVisibility() != VISIBLE;
+        if (mSuspended != suspended) {
+            mSuspended = suspended;
+            onSuspendChanged(suspended);
+        }
+    }
+
+    /**
+     * Indicates whether this clock is suspended because it can't be seen.
+     *
+     * @return true if suspended, false otherwise
+     */
+    public boolean isSuspended() {
+        return mSuspended;
+    }
+
+    /**
+     * Called when this clock is suspended or resumed. Subclass should stop all the ticks while
+     * suspended, and update once when resumed.
+     *
+     * @param suspended true if suspended, false if resumed
+     */
+    protected void onSuspendChanged(boolean suspended) {
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        Trace.beginSection("LemonadeClock#draw");
+        final long start = System.nanoTime();
+        try {
+            super.draw(canvas);
+        } finally {
+            Trace.endSection();
+        }
+        final long end = System.nanoTime();
+        mMetrics.recordDraw(start, end);
+        trace(ClockTrace.EVENT_DRAW, end - start);
+    }
+
+    /**
+     * Records an event of this clock into the {@link ClockTrace}.
+     *
+     * @param event one of {@code ClockTrace.EVENT_*}
+     * @param value the value of event
+     */
+    protected void trace(int event, long value) {
+        ClockTrace.getInstance().record(mTraceSource, event, value);
+    }
+
+    /**
+     * Gets the id of this clock in the {@link ClockTrace}.
+     *
+     * @return the id of source
+     * @see ClockTrace#dump()
+     */
+    public int getTraceSource() {
+        return mTraceSource;
+    }
+
+    /**
+     * Gets the metrics of this clock, which holds the histograms of scheduling lateness,
+     * listener dispatch time, draw duration and redraws per second.
+     *
+     * @return The {@link ClockMetrics}
+     * @see ClockMetrics#sample(ClockMetrics.Snapshot)
+     */
+    public ClockMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Sets the granularity in which the changes of time are reported to accessibility services,
+     * default is {@link GranularityFilter#GRANULARITY_MINUTE}. The finer ones make the services
+     * busier, which slows the users down.
+     *
+     * @param granularity one of {@code GranularityFilter.GRANULARITY_*}
+     */
+    public void setAccessibilityGranularity(@GranularityFilter.Granularity int granularity) {
+        mAccessibilityGranularity = granularity;
+        if (mAccessibilityFilter != null && !mAccessibilityFine) mAccessibilityFilter.setGranularity(granularity);
+    }
+
+    /**
+     * Gets the granularity in which the changes of time are reported to accessibility services.
+     *
+     * @return one of {@code GranularityFilter.GRANULARITY_*}
+     */
+    @GranularityFilter.Granularity
+    public int getAccessibilityGranularity() {
+        return mAccessibilityGranularity;
+    }
+
+    /**
+     * Sets the times at which the changes are reported to accessibility services in the granularity
+     * {@link GranularityFilter#GRANULARITY_THRESHOLDS}.
+     *
+     * @param thresholds times in milliseconds, in any order
+     */
+    public void setAccessibilityThresholds(long... thresholds) {
+        getAccessibilityFilter().setThresholds(thresholds);
+    }
+
+    private GranularityFilter getAccessibilityFilter() {
+        if (mAccessibilityFilter == null) {
+            mAccessibilityFilter = new GranularityFilter(isCountingDown());
+            mAccessibilityFilter.setGranularity(mAccessibilityFine
+                    ? GranularityFilter.GRANULARITY_SECOND : mAccessibilityGranularity);
+        }
+        return mAccessibilityFilter;
+    }
+
+    /**
+     * Indicates whether the time of this clock counts down, in which case the time reported to
+     * accessibility services is rounded up.
+     *
+     * @return true if counting down, false otherwise
+     */
+    protected boolean isCountingDown() {
+        return false;
+    }
+
+    /**
+     * Subclass should call this on every update of time. The accessibility services are only
+     * notified when the time changes in the granularity, and only while they are enabled.
+     *
+     * @param timeInNanos the time in nanoseconds, which is passed back to
+     *                    {@link #onCreateAccessibilityTime(long)}
+     * @param fine        true to report per second regardless of the granularity, such as near the
+     *                    timeout of a timer
+     */
+    protected void updateAccessibilityTime(long timeInNanos, boolean fine) {
+        mAccessibilityTime = timeInNanos;
+        if (mAccessibilityManager == null || !mAccessibilityManager.isEnabled()) return;
+        final GranularityFilter filter = getAccessibilityFilter();
+        if (mAccessibilityFine != fine) {
+            mAccessibilityFine = fine;
+            filter.setGranularity(fine ? GranularityFilter.GRANULARITY_SECOND : mAccessibilityGranularity);
+        }
+        if (filter.accept(timeInNanos)) notifyAccessibilityTimeChanged();
+    }
+
+    /**
+     * Notifies the accessibility services at once and makes the next update of time pass the
+     * granularity. Subclass should call this when the state of clock changes.
+     */
+    protected void invalidateAccessibilityTime() {
+        if (mAccessibilityFilter != null) mAccessibilityFilter.reset();
+        if (mAccessibilityManager != null && mAccessibilityManager.isEnabled()) {
+            notifyAccessibilityTimeChanged();
+        }
+    }
+
+    private void notifyAccessibilityTimeChanged() {
+        final AccessibilityEvent event = AccessibilityEvent.obtain(AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED);
+        event.setContentChangeTypes(AccessibilityEvent.CONTENT_CHANGE_TYPE_CONTENT_DESCRIPTION);
+        sendAccessibilityEventUnchecked(event);
+    }
+
+    /**
+     * Creates the text which describes the time to accessibility services, only called when they
+     * ask for it.
+     *
+     * @param timeInNanos the latest time passed to {@link #updateAccessibilityTime(long, boolean)}
+     * @return the text, or null to report nothing
+     */
+    @Nullable
+    protected CharSequence onCreateAccessibilityTime(long timeInNanos) {
+        return null;
+    }
+
+    /**
+     * Gets the actions which can be performed on this clock now, only called when the
+     * accessibility services ask for them.
+     *
+     * @return the combination of {@code ACCESSIBILITY_ACTION_*}
+     */
+    protected int getAccessibilityActions() {
+        return 0;
+    }
+
+    /**
+     * Performs an action requested by accessibility services.
+     *
+     * @param action one of {@code ACCESSIBILITY_ACTION_*}
+     * @return true if performed, false otherwise
+     */
+    protected boolean onAccessibilityAction(int action) {
+        return false;
+    }
+
+    private AccessibilityNodeInfo.AccessibilityAction[] getAccessibilityActionInfos() {
+        if (mAccessibilityActions == null) {
+            final Resources res = getResources();
+            mAccessibilityActions = new AccessibilityNodeInfo.AccessibilityAction[]{
+                    new AccessibilityNodeInfo.AccessibilityAction(R.id.lemonade_clock_action_start,
+                            res.getString(R.string.lemonade_clock_action_start)),
+                    new AccessibilityNodeInfo.AccessibilityAction(R.id.lemonade_clock_action_pause,
+                            res.getString(R.string.lemonade_clock_action_pause)),
+                    new AccessibilityNodeInfo.AccessibilityAction(R.id.lemonade_clock_action_lap,
+                            res.getString(R.string.lemonade_clock_action_lap)),
+                    new AccessibilityNodeInfo.AccessibilityAction(R.id.lemonade_clock_action_reset,
+                            res.getString(R.string.lemonade_clock_action_reset)),
+            };
+        }
+        return mAccessibilityActions;
+    }
+
+    /**
+     * Maps the id of accessibility action to {@code ACCESSIBILITY_ACTION_*}.
+     *
+     * @return the action, or 0 if not an action of clock
+     */
+    private static int toClockAction(int actionId) {
+        if (actionId == R.id.lemonade_clock_action_start) return ACCESSIBILITY_ACTION_START;
+        if (actionId == R.id.lemonade_clock_action_pause) return ACCESSIBILITY_ACTION_PAUSE;
+        if (actionId == R.id.lemonade_clock_action_lap) return ACCESSIBILITY_ACTION_LAP;
+        if (actionId == R.id.lemonade_clock_action_reset) return ACCESSIBILITY_ACTION_RESET;
+        return 0;
+    }
+
+    /**
+     * The delegate which builds the description and actions of clock only when the accessibility
+     * services ask for them, so that the ticks cost nothing more.
+     */
+    private class ClockAccessibilityDelegate extends AccessibilityDelegate {
+
+        @Override
+        public void onInitializeAccessibilityNodeInfo(View host, AccessibilityNodeInfo info) {
+            super.onInitializeAccessibilityNodeInfo(host, info);
+            final CharSequence time = onCreateAccessibilityTime(mAccessibilityTime);
+            if (time != null && getContentDescription() == null) info.setContentDescription(time);
+            final int actions = getAccessibilityActions();
+            final AccessibilityNodeInfo.AccessibilityAction[] infos = getAccessibilityActionInfos();
+            for (int i = 0; i < infos.length; i++) {
+                if ((actions & (1 << i)) != 0) info.addAction(infos[i]);
+            }
+        }
+
+        @Override
+        public void onPopulateAccessibilityEvent(View host, AccessibilityEvent event) {
+            super.onPopulateAccessibilityEvent(host, event);
+            final CharSequence time = onCreateAccessibilityTime(mAccessibilityTime);
+            if (time != null && getContentDescription() == null) event.getText().add(time);
+        }
+
+        @Override
+        public boolean performAccessibilityAction(View host, int action, Bundle args) {
+            final int clockAction = toClockAction(action);
+            if (clockAction != 0 && (getAccessibilityActions() & clockAction) != 0) {
+                return onAccessibilityAction(clockAction);
+            }
+            return super.performAccessibilityAction(host, action, args);
+        }
     }
 
     /**
@@ -66,6 +559,49 @@ public abstract class AbsClock extends View implements Checkable {
         return DimenConverter.sp2px(spVal, getResources());
     }
 
+    /**
+     * Gets the typeface of digits, which is loaded once and shared by all the clocks of process.
+     *
+     * @param context The context to load the typeface with
+     * @return The {@link Typeface}
+     */
+    protected static synchronized Typeface getDigitTypeface(Context context) {
+        if (sDigitTypeface == null) {
+            sDigitTypeface = Typeface.createFromAsset(context.getApplicationContext().getAssets(), DIGIT_FONT_PATH);
+        }
+        return sDigitTypeface;
+    }
+
+    /**
+     * Gets the state of drawable shared by the clocks of the given style, so that the colors, shaders
+     * and typeface are created once per style in the process rather than once per clock.
+     *
+     * @param type  The type of drawable
+     * @param style The style resolved from the attributes and theme, such as the colors
+     * @return The shared state, or null if no drawable of the style has been created
+     */
+    @Nullable
+    protected static Drawable.ConstantState getSharedState(Class<? extends Drawable> type, int[] style) {
+        synchronized (sSharedStates) {
+            return sSharedStates.get(new StyleKey(type, style));
+        }
+    }
+
+    /**
+     * Keeps the state of a drawable to be shared by the clocks of the given style. The drawables
+     * created from it must not change the style without {@link Drawable#mutate()}.
+     *
+     * @param type  The type of drawable
+     * @param style The style resolved from the attributes and theme, such as the colors
+     * @param state The state of drawable
+     * @see #getSharedState(Class, int[])
+     */
+    protected static void putSharedState(Class<? extends Drawable> type, int[] style, Drawable.ConstantState state) {
+        synchronized (sSharedStates) {
+            sSharedStates.put(new StyleKey(type, style), state);
+        }
+    }
+
     /**
      * Get integer attribute from current theme, such as colorPrimary, colorPrimaryDark, etc.
      *
@@ -76,9 +612,43 @@ public abstract class AbsClock extends View implements Checkable {
         if (mTempValue == null) {
             mTempValue = new TypedValue();
         }
-        final Resources.Theme theme = getContext().getTheme();
-        theme.resolveAttribute(attrId, mTempValue, true);
-        return mTempValue.data;
+        return getThemeIntAttribute(getContext(), attrId, mTempValue);
+    }
+
+    /**
+     * Get integer attribute from the theme of given context, such as colorPrimary, colorPrimaryDark, etc.
+     *
+     * @param context  The context whose theme to resolve
+     * @param attrId   The resource id of attribute
+     * @param outValue The temporary {@link TypedValue} for holding attribute
+     * @return The value of attribute, or 0 if the theme doesn't define it
+     */
+    protected static int getThemeIntAttribute(Context context, int attrId, TypedValue outValue) {
+        final Resources.Theme theme = context.getTheme();
+        if (!theme.resolveAttribute(attrId, outValue, true)) return 0;
+        return outValue.data;
+    }
+
+    /**
+     * Get color attribute from the theme of given context, such as colorPrimary. The theme of a
+     * service or a broadcast receiver usually doesn't define the appcompat colors, then the given
+     * default color is used.
+     *
+     * @param context    The context whose theme to resolve
+     * @param attrId     The resource id of attribute
+     * @param defColorId The resource id of color to use if the theme doesn't define the attribute
+     * @param outValue   The temporary {@link TypedValue} for holding attribute
+     * @return The color
+     */
+    protected static int getThemeColor(Context context, int attrId, @ColorRes int defColorId, TypedValue outValue) {
+        if (context.getTheme().resolveAttribute(attrId, outValue, true)) {
+            if (outValue.type >= TypedValue.TYPE_FIRST_COLOR_INT && outValue.type <= TypedValue.TYPE_LAST_COLOR_INT) {
+                return outValue.data;
+            }
+            // Such as a color state list, whose default color is used
+            if (outValue.resourceId != 0) return ContextCompat.getColor(context, outValue.resourceId);
+        }
+        return ContextCompat.getColor(context, defColorId);
     }
 
     @Override
@@ -97,4 +667,31 @@ public abstract class AbsClock extends View implements Checkable {
     public void toggle() {
         setChecked(!mChecked);
     }
+
+    /**
+     * The key of a shared state of drawable
+     */
+    private static final class StyleKey {
+
+        final Class<?> mType;
+        final int[] mStyle;
+
+        StyleKey(Class<?> type, int[] style) {
+            mType = type;
+            mStyle = style;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof StyleKey)) return false;
+            final StyleKey key = (StyleKey) o;
+            return mType == key.mType && Arrays.equals(mStyle, key.mStyle);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mType.hashCode() + Arrays.hashCode(mStyle);
+        }
+    }
 }
@@ -1,15 +1,21 @@
 package com.creator.lemonade.clock.base;
 
 import android.graphics.Color;
+import android.graphics.Matrix;
 import android.graphics.Paint;
+import android.graphics.Path;
 import android.graphics.PixelFormat;
 import android.graphics.Rect;
 import android.graphics.Shader;
 import android.graphics.SweepGradient;
 import android.graphics.drawable.Drawable;
 import android.support.annotation.CallSuper;
+import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
 /**
  * The base class for clock drawable in which defines how the clock will be drawn
  *
@@ -18,6 +24,31 @@ import android.support.annotation.NonNull;
 @SuppressWarnings("unused")
 public abstract class AbsClockDrawable extends Drawable {
 
+    /**
+     * The marks drawn on the dial, none by default
+     */
+    public static final int DIAL_MARK_NONE = 0;
+
+    /**
+     * The long tick marks at every twelfth of dial, such as the hours of clock
+     */
+    public static final int DIAL_MARK_MAJOR_TICKS = 1;
+
+    /**
+     * The short tick marks at every sixtieth of dial, such as the minutes of clock
+     */
+    public static final int DIAL_MARK_MINOR_TICKS = 1 << 1;
+
+    /**
+     * The numerals at every twelfth of dial
+     */
+    public static final int DIAL_MARK_NUMERALS = 1 << 2;
+
+    @IntDef(flag = true, value = {DIAL_MARK_NONE, DIAL_MARK_MAJOR_TICKS, DIAL_MARK_MINOR_TICKS, DIAL_MARK_NUMERALS})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface DialMarks {
+    }
+
     /**
      * The string used to convert value to two digit value
      */
@@ -29,6 +60,17 @@ public abstract class AbsClockDrawable extends Drawable {
     protected static final String THREE_DIGIT_FORMAT = "%03d";
 
     protected static final String DEFAULT_TWO_DIGIT_TIME = "00";
+
+    protected static final long NANOS_PER_MICRO = 1000L;
+    protected static final long NANOS_PER_MILLI = 1000000L;
+    protected static final long NANOS_PER_SECOND = 1000000000L;
+    protected static final long NANOS_PER_MINUTE = 60 * NANOS_PER_SECOND;
+    protected static final long NANOS_PER_HOUR = 60 * NANOS_PER_MINUTE;
+
+    /**
+     * The degrees of a full circle in fixed-point, with a resolution of 1/1000 degree
+     */
+    private static final long MILLIDEGREES_PER_CIRCLE = 360000L;
     private static final int[] SWEEP_COLORS = new int[3];
     private static final float[] COLOR_POSITIONS = {0, 0.5f, 1};
     private int mHeight;
@@ -87,6 +129,22 @@ public abstract class AbsClockDrawable extends Drawable {
         return -(metrics.descent + metrics.ascent) / 2f;
     }
 
+    /**
+     * Calculates the angle of a hand whose revolution takes the given period. The angle is computed
+     * in fixed-point 1/1000 degrees from whole microseconds, so the same time always yields the same
+     * angle. The products stay inside the range of long for periods up to 290 days.
+     *
+     * @param timeInNanos   time in nanoseconds
+     * @param periodInNanos the period of one revolution in nanoseconds
+     * @return angle in degrees, in [0, 360)
+     */
+    protected static float calculateHandDegrees(long timeInNanos, long periodInNanos) {
+        final long periodMicros = periodInNanos / NANOS_PER_MICRO;
+        long micros = (timeInNanos / NANOS_PER_MICRO) % periodMicros;
+        if (micros < 0) micros += periodMicros;
+        return (micros * MILLIDEGREES_PER_CIRCLE / periodMicros) / 1000f;
+    }
+
     /**
      * Create a sweep gradient shader
      *
@@ -98,4 +156,52 @@ public abstract class AbsClockDrawable extends Drawable {
         SWEEP_COLORS[1] = Color.argb(0, Color.red(mainColor), Color.green(mainColor), Color.blue(mainColor));
         return new SweepGradient(0, 0, SWEEP_COLORS, COLOR_POSITIONS);
     }
+
+    /**
+     * Adds the tick marks of dial to the given path, as bars pointing to the center and starting
+     * from the top. All of them are added to one path, so that they are drawn by one call.
+     *
+     * @param path        the path to add to
+     * @param matrix      the matrix to reuse for rotating the bars
+     * @param count       the count of ticks in a circle
+     * @param skip        the ticks at every this count are skipped, such as where a longer one is,
+     *                    or 0 to skip none
+     * @param outerRadius the distance from the center to the outer end of ticks
+     * @param length      the length of ticks
+     * @param width       the width of ticks
+     */
+    protected static void addTickMarks(@NonNull Path path, @NonNull Matrix matrix, int count, int skip,
+                                       float outerRadius, float length, float width) {
+        final Path bar = new Path();
+        bar.addRect(-width * 0.5f, -outerRadius, width * 0.5f, length - outerRadius, Path.Direction.CW);
+        for (int i = 0; i < count; i++) {
+            if (skip > 0 && i % skip == 0) continue;
+            matrix.setRotate(i * 360f / count);
+            path.addPath(bar, matrix);
+        }
+    }
+
+    /**
+     * Adds the outlines of numerals to the given path, placed evenly around the center and starting
+     * from the top.
+     *
+     * @param path     the path to add to
+     * @param paint    the paint which decides the typeface and size of numerals, center aligned
+     * @param numerals the numerals in clockwise order
+     * @param radius   the distance from the center to the centers of numerals
+     */
+    protected static void addNumerals(@NonNull Path path, @NonNull Paint paint, @NonNull String[] numerals,
+                                      float radius) {
+        final Path glyphs = new Path();
+        final float verticalOffset = calculateTextVerticalOffset(paint);
+        final int count = numerals.length;
+        for (int i = 0; i < count; i++) {
+            final double radians = 2 * Math.PI * i / count;
+            final float x = (float) (radius * Math.sin(radians));
+            final float y = (float) (-radius * Math.cos(radians)) + verticalOffset;
+            final String numeral = numerals[i];
+            paint.getTextPath(numeral, 0, numeral.length(), x, y, glyphs);
+            path.addPath(glyphs);
+        }
+    }
 }
@@ -0,0 +1,350 @@
+package com.creator.lemonade.clock.base;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.SurfaceTexture;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.Trace;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.view.Surface;
+import android.view.TextureView;
+
+import com.creator.lemonade.clock.util.ClockMetrics;
+import com.creator.lemonade.clock.util.ClockTrace;
+import com.creator.lemonade.clock.util.TickGovernor;
+
+/**
+ * This is a base class for clock view which ticks and draws on a dedicated render thread, so
+ * that the displayed time keeps smooth even while the UI thread is blocked. The clock is drawn
+ * by an {@link AbsClockDrawable} into the surface of this {@link TextureView}.
+ * <p>
+ * The models of subclasses live on the render thread while the surface is available. Methods
+ * that control them should be called through {@link #runOnRenderThread(Runnable)}, and the callbacks
+ * to outside should be delivered through {@link #runOnUiThread(Runnable)}.
+ *
+ * @author Felix.Liang
+ */
+@SuppressWarnings("unused")
+public abstract class AbsSurfaceClock extends TextureView implements TextureView.SurfaceTextureListener {
+
+    /**
+     * The name of render thread
+     */
+    private static final String RENDER_THREAD_NAME = "LemonadeClockRender";
+
+    /**
+     * The drawable to draw into the surface
+     */
+    private AbsClockDrawable mClockDrawable;
+
+    /**
+     * The metrics of tick and draw of this clock
+     */
+    private final ClockMetrics mMetrics = new ClockMetrics();
+
+    /**
+     * The id which tells the events of this clock from the others in the {@link ClockTrace}
+     */
+    private final int mTraceSource = ClockTrace.getInstance().obtainSourceId();
+
+    private final Handler mUiHandler = new Handler(Looper.getMainLooper());
+
+    private HandlerThread mRenderThread;
+
+    /**
+     * The handler of render thread, null if the surface isn't available
+     */
+    private volatile Handler mRenderHandler;
+
+    private Surface mSurface;
+
+    /**
+     * Field that indicates whether a frame is pending on the render thread
+     */
+    private boolean mFramePending;
+
+    private final Runnable mDrawFrame = new Runnable() {
+        @Override
+        public void run() {
+            mFramePending = false;
+            drawFrame();
+        }
+    };
+
+    /**
+     * The callback that redirects the invalidation of drawable to the render thread
+     */
+    private final Drawable.Callback mDrawableCallback = new Drawable.Callback() {
+        @Override
+        public void invalidateDrawable(@NonNull Drawable who) {
+            requestFrame();
+        }
+
+        @Override
+        public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when) {
+            final Handler handler = mRenderHandler;
+            if (handler != null) handler.postAtTime(what, who, when);
+        }
+
+        @Override
+        public void unscheduleDrawable(@NonNull Drawable who, @NonNull Runnable what) {
+            final Handler handler = mRenderHandler;
+            if (handler != null) handler.removeCallbacks(what);
+        }
+    };
+
+    public AbsSurfaceClock(Context context) {
+        this(context, null);
+    }
+
+    public AbsSurfaceClock(Context context, @Nullable AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public AbsSurfaceClock(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        this(context, attrs, defStyleAttr, 0);
+    }
+
+    public AbsSurfaceClock(Context context, @Nullable AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+        setOpaque(false);
+        setSurfaceTextureListener(this);
+        TickGovernor.getInstance().monitorPowerState(context);
+    }
+
+    /**
+     * Sets the drawable to draw into the surface. This should be called in the constructor of subclass.
+     *
+     * @param drawable The {@link AbsClockDrawable}
+     */
+    protected void setClockDrawable(@NonNull AbsClockDrawable drawable) {
+        mClockDrawable = drawable;
+        drawable.setCallback(mDrawableCallback);
+    }
+
+    /**
+     * Gets the metrics of this clock, which holds the histograms of scheduling lateness,
+     * listener dispatch time, draw duration and redraws per second. They're recorded on the render
+     * thread, so they should only be read there, or through {@link #sampleMetrics}.
+     *
+     * @return The {@link ClockMetrics}
+     */
+    public ClockMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Samples the metrics of this clock on the render thread, and delivers the snapshot to the
+     * listener on the UI thread. The snapshot shouldn't be read or reused before then.
+     *
+     * @param snapshot the snapshot to copy into
+     * @param listener the listener to receive the snapshot
+     */
+    public void sampleMetrics(@NonNull final ClockMetrics.Snapshot snapshot,
+                              @NonNull final OnMetricsSampledListener listener) {
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mMetrics.sample(snapshot);
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onMetricsSampled(snapshot);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Called on the render thread when the render thread is ready, the models should be attached here.
+     *
+     * @param renderHandler the handler of render thread
+     */
+    protected abstract void onRenderThreadAttached(@NonNull Handler renderHandler);
+
+    /**
+     * Called on the render thread before the render thread quits, the models should be detached here.
+     */
+    protected abstract void onRenderThreadDetached();
+
+    /**
+     * Called when the weight of this clock in the {@link TickGovernor} changes, which is the area
+     * of it in pixels. Subclass should pass it to the model that ticks.
+     *
+     * @param weight the weight
+     */
+    protected void onTickWeightChanged(long weight) {
+    }
+
+    /**
+     * Runs the action on the render thread, or runs it immediately if the render thread isn't running,
+     * in which case no one else touches the models.
+     *
+     * @param action the action to run
+     */
+    protected void runOnRenderThread(@NonNull Runnable action) {
+        final Handler handler = mRenderHandler;
+        if (handler != null) {
+            handler.post(action);
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Runs the action on the UI thread.
+     *
+     * @param action the action to run
+     */
+    protected void runOnUiThread(@NonNull Runnable action) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            action.run();
+        } else {
+            mUiHandler.post(action);
+        }
+    }
+
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture surfaceTexture, final int width, final int height) {
+        mSurface = new Surface(surfaceTexture);
+        onTickWeightChanged((long) width * height);
+        mRenderThread = new HandlerThread(RENDER_THREAD_NAME, Process.THREAD_PRIORITY_DISPLAY);
+        mRenderThread.start();
+        final Handler handler = new Handler(mRenderThread.getLooper());
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mClockDrawable != null) mClockDrawable.setBounds(0, 0, width, height);
+                onRenderThreadAttached(handler);
+                drawFrame();
+            }
+        });
+        mRenderHandler = handler;
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture surfaceTexture, final int width, final int height) {
+        onTickWeightChanged((long) width * height);
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                if (mClockDrawable != null) mClockDrawable.setBounds(0, 0, width, height);
+                drawFrame();
+            }
+        });
+    }
+
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture surfaceTexture) {
+        final Handler handler = mRenderHandler;
+        final HandlerThread thread = mRenderThread;
+        if (handler != null && thread != null) {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onRenderThreadDetached();
+                    handler.removeCallbacksAndMessages(null);
+                    mFramePending = false;
+                }
+            });
+            thread.quitSafely();
+            try {
+                // The surface must not be released while the render thread is still drawing into it
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        mRenderHandler = null;
+        mRenderThread = null;
+        if (mSurface != null) {
+            mSurface.release();
+            mSurface = null;
+        }
+        return true;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture surfaceTexture) {
+    }
+
+    /**
+     * Requests a frame on the render thread, several requests before the frame are coalesced into one.
+     */
+    private void requestFrame() {
+        final Handler handler = mRenderHandler;
+        if (handler == null) return;
+        if (Looper.myLooper() != handler.getLooper()) {
+            handler.post(mDrawFrame);
+        } else if (!mFramePending) {
+            mFramePending = true;
+            handler.post(mDrawFrame);
+        }
+    }
+
+    /**
+     * Draws a frame into the surface, must be called on the render thread.
+     */
+    private void drawFrame() {
+        final Surface surface = mSurface;
+        if (surface == null || !surface.isValid() || mClockDrawable == null) return;
+        final long start = System.nanoTime();
+        final Canvas canvas = surface.lockCanvas(null);
+        if (canvas == null) return;
+        Trace.beginSection("LemonadeClock#draw");
+        try {
+            canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+            mClockDrawable.draw(canvas);
+        } finally {
+            surface.unlockCanvasAndPost(canvas);
+            Trace.endSection();
+        }
+        final long end = System.nanoTime();
+        mMetrics.recordDraw(start, end);
+        trace(ClockTrace.EVENT_DRAW, end - start);
+    }
+
+    /**
+     * Records an event of this clock into the {@link ClockTrace}, can be called on any thread.
+     *
+     * @param event one of {@code ClockTrace.EVENT_*}
+     * @param value the value of event
+     */
+    protected void trace(int event, long value) {
+        ClockTrace.getInstance().record(mTraceSource, event, value);
+    }
+
+    /**
+     * Gets the id of this clock in the {@link ClockTrace}.
+     *
+     * @return the id of source
+     * @see ClockTrace#dump()
+     */
+    public int getTraceSource() {
+        return mTraceSource;
+    }
+
+    /**
+     * Interface definition for a callback to be invoked on the UI thread when the metrics are sampled.
+     *
+     * @see #sampleMetrics(ClockMetrics.Snapshot, OnMetricsSampledListener)
+     */
+    public interface OnMetricsSampledListener {
+
+        /**
+         * Called when the metrics are sampled.
+         *
+         * @param snapshot the snapshot that holds the metrics
+         */
+        void onMetricsSampled(@NonNull ClockMetrics.Snapshot snapshot);
+    }
+}
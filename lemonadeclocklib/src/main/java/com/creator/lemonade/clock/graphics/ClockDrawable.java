@@ -1,10 +1,15 @@
 package com.creator.lemonade.clock.graphics;
 
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.ColorFilter;
+import android.graphics.Matrix;
 import android.graphics.Paint;
+import android.graphics.Path;
 import android.graphics.Rect;
+import android.graphics.Shader;
 import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
 import android.support.annotation.ColorInt;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
@@ -18,6 +23,11 @@ import java.util.Locale;
 
 /**
  * This class defines all the methods about drawing a clock, as an implementation of {@link AbsClockDrawable}
+ * <p>
+ * The style of clock, which is the colors, shaders and typeface, is kept in a {@link ConstantState}
+ * shared by the drawables created from it by {@link ConstantState#newDrawable()}, while the time,
+ * the paints and the sizes are kept by each drawable. The style set on a drawable which isn't
+ * {@link #mutate() mutated} is seen by the others sharing its state when they are drawn next.
  *
  * @author Felix.Liang
  */
@@ -28,8 +38,36 @@ public class ClockDrawable extends AbsClockDrawable {
      */
     private static final float INIT_DEGREE_OFFSET = 90;
 
+    /**
+     * The indexes of hands in {@link #mHandSprites}
+     */
+    private static final int SPRITE_HOUR = 0;
+    private static final int SPRITE_MINUTE = 1;
+    private static final int SPRITE_SECOND = 2;
+    private static final int SPRITE_COUNT = 3;
+
+    /**
+     * The style shared with other drawables until {@link #mutate()}
+     */
+    private ClockState mState;
+
+    /**
+     * @see #mutate()
+     */
+    private boolean mMutated;
+
+    /**
+     * The generation of {@link #mState} which the paints have been updated to
+     */
+    private int mAppliedGeneration = -1;
+
     private boolean mUse24Format;
 
+    /**
+     * @see #setAmbientMode(boolean)
+     */
+    private boolean mAmbientMode;
+
     private Paint mDialPaint;
     private Paint mHourHandPaint;
     private Paint mMinuteHandPaint;
@@ -37,6 +75,37 @@ public class ClockDrawable extends AbsClockDrawable {
     private Paint mHourTextPaint;
     private Paint mMinuteTextPaint;
     private Paint mAmPmTextPaint;
+    private Paint mDialMarkPaint;
+
+    /**
+     * The hands in their own frame, built when the bounds change, and their outlines drawn in
+     * ambient mode. They are drawn through a rotated canvas, so that neither the paths nor the
+     * shaders of paints, which are shared through the constant state, are changed per frame.
+     */
+    private final Path mHourHandPath = new Path();
+    private final Path mHourHandOutline = new Path();
+    private final Path mMinuteHandPath = new Path();
+    private final Path mMinuteHandOutline = new Path();
+    private final Path mSecondHandPath = new Path();
+
+    /**
+     * The matrix to place the tick marks of dial, reused when the bounds change
+     */
+    private final Matrix mMarkMatrix = new Matrix();
+
+    /**
+     * The sprites of hands, or null if the hands are drawn as vector
+     *
+     * @see #setSpriteHandsEnabled(boolean)
+     */
+    private HandSprites mHandSprites;
+
+    /**
+     * All the tick marks and numerals of dial, drawn by one call
+     *
+     * @see #setDialMarks(int)
+     */
+    private final Path mDialMarkPath = new Path();
 
     private float mDialRadius;
     private float mHourRadius;
@@ -45,6 +114,12 @@ public class ClockDrawable extends AbsClockDrawable {
     private float mHourHandStrokeWidth;
     private float mMinuteHandStrokeWidth;
     private float mSecondHandStrokeWidth;
+
+    /**
+     * The stroke width of hand outlines in ambient mode
+     */
+    private float mAmbientStrokeWidth;
+
     private float mHourVerticalOffset;
     private float mMinuteVerticalOffset;
     private float mAmPmVerticalOffset;
@@ -54,13 +129,8 @@ public class ClockDrawable extends AbsClockDrawable {
      */
     private float mTextDistance;
 
-    private int mColorHourHand;
-    private int mColorMinuteHand;
-    private int mColorSecondHand;
-    private int mColorDial;
-    private int mColorHourText;
-    private int mColorMinuteText;
-    private int mColorAmPmText;
+    private int mAlpha = 0xFF;
+
     private float mHourTextSize;
     private float mMinuteTextSize;
     private float mAmPmTextSize;
@@ -69,23 +139,19 @@ public class ClockDrawable extends AbsClockDrawable {
     private float mMinuteDeg;
     private float mSecondDeg;
 
-    private String mAmPmStrings[];
     private String mHour;
     private String mMinute;
     private String mAmPm;
     private float mAmPmTranslateY;
 
     public ClockDrawable() {
-        initPaint();
-        initAmPmStrings();
+        this(new ClockState());
     }
 
-    /**
-     * Initialize the string array of am/pm
-     */
-    private void initAmPmStrings() {
-        DateFormatSymbols symbols = new DateFormatSymbols();
-        mAmPmStrings = symbols.getAmPmStrings();
+    private ClockDrawable(ClockState state) {
+        mState = state;
+        initPaint();
+        applyState();
     }
 
     /**
@@ -107,6 +173,9 @@ public class ClockDrawable extends AbsClockDrawable {
         mMinuteTextPaint.setTextAlign(Paint.Align.LEFT);
         mAmPmTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
         mAmPmTextPaint.setTextAlign(Paint.Align.CENTER);
+        mDialMarkPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        mDialMarkPaint.setStyle(Paint.Style.FILL);
+        mDialMarkPaint.setTextAlign(Paint.Align.CENTER);
     }
 
     /**
@@ -135,17 +204,17 @@ public class ClockDrawable extends AbsClockDrawable {
             mHour = String.format(Locale.getDefault(), TWO_DIGIT_FORMAT, hour);
         } else {
             mHour = String.format(Locale.getDefault(), TWO_DIGIT_FORMAT, hour > 12 ? hour % 12 : hour);
-            if (mAmPmStrings != null && mAmPmStrings.length > 1) {
-                mAmPm = mAmPmStrings[hour > 12 ? 1 : 0];
+            final String[] amPmStrings = mState.mAmPmStrings;
+            if (amPmStrings != null && amPmStrings.length > 1) {
+                mAmPm = amPmStrings[hour > 12 ? 1 : 0];
             }
         }
         mMinute = String.format(Locale.getDefault(), TWO_DIGIT_FORMAT, minute);
-        float actualSecond = second + millisecond / 1000f;
-        mSecondDeg = 360f * actualSecond / 60;
-        float actualMinute = minute + actualSecond / 60;
-        mMinuteDeg = 360f * actualMinute / 60;
-        float actualHour = hour + actualMinute / 60;
-        mHourDeg = 360f * actualHour / 12;
+        final long nanosOfDay = hour * NANOS_PER_HOUR + minute * NANOS_PER_MINUTE
+                + second * NANOS_PER_SECOND + millisecond * NANOS_PER_MILLI;
+        mSecondDeg = calculateHandDegrees(nanosOfDay, NANOS_PER_MINUTE);
+        mMinuteDeg = calculateHandDegrees(nanosOfDay, NANOS_PER_HOUR);
+        mHourDeg = calculateHandDegrees(nanosOfDay, 12 * NANOS_PER_HOUR);
     }
 
     @Override
@@ -171,18 +240,76 @@ public class ClockDrawable extends AbsClockDrawable {
         mMinuteRadius = mHourRadius - hourHandStrokeWidth * 0.5f + minuteHandStrokeWidth * 0.5f;
         mSecondRadius = mHourRadius - hourHandStrokeWidth * 0.5f + secondHandStrokeWidth * 0.5f;
         mAmPmTranslateY = shortAxis * 0.18f;
+        mAmbientStrokeWidth = Math.max(1, shortAxis * 0.01f);
+        if (mAmbientMode) applyPaintMode();
+        if (mHandSprites != null) mHandSprites.onSizeChanged();
+        buildHandPath(mHourHandPath, mHourHandOutline, mHourRadius, hourHandStrokeWidth);
+        buildHandPath(mMinuteHandPath, mMinuteHandOutline, mMinuteRadius, minuteHandStrokeWidth);
+        buildHandPath(mSecondHandPath, null, mSecondRadius, secondHandStrokeWidth);
+        buildDialMarks();
+    }
+
+    /**
+     * Builds a hand, which is a half ring ending at zero degrees, and its outline.
+     *
+     * @param path        The path of hand to build
+     * @param outline     The path of outline to build, or null if not needed
+     * @param radius      The radius of the center line of ring
+     * @param strokeWidth The width of ring
+     */
+    private void buildHandPath(Path path, @Nullable Path outline, float radius, float strokeWidth) {
+        path.rewind();
+        path.addArc(-radius, -radius, radius, radius, -180, 180);
+        if (outline != null) {
+            final float offset = (strokeWidth - mAmbientStrokeWidth) * 0.5f;
+            final float inner = radius - offset;
+            final float outer = radius + offset;
+            outline.rewind();
+            outline.addArc(-inner, -inner, inner, inner, -180, 180);
+            outline.addArc(-outer, -outer, outer, outer, -180, 180);
+            outline.moveTo(-outer, 0);
+            outline.lineTo(-inner, 0);
+            outline.moveTo(inner, 0);
+            outline.lineTo(outer, 0);
+        }
+    }
+
+    /**
+     * Builds the tick marks and numerals chosen by {@link #setDialMarks(int)} for current bounds.
+     */
+    private void buildDialMarks() {
+        mDialMarkPath.rewind();
+        final int marks = mState.mDialMarks;
+        final float halfShortAxis = getShortAxisLength() * 0.5f;
+        if (marks == DIAL_MARK_NONE || halfShortAxis == 0) return;
+        final float outerRadius = halfShortAxis * 0.99f;
+        final boolean majorTicks = (marks & DIAL_MARK_MAJOR_TICKS) != 0;
+        if (majorTicks) {
+            addTickMarks(mDialMarkPath, mMarkMatrix, 12, 0, outerRadius,
+                    halfShortAxis * 0.035f, halfShortAxis * 0.015f);
+        }
+        if ((marks & DIAL_MARK_MINOR_TICKS) != 0) {
+            addTickMarks(mDialMarkPath, mMarkMatrix, 60, majorTicks ? 5 : 0, outerRadius,
+                    halfShortAxis * 0.02f, halfShortAxis * 0.008f);
+        }
+        if ((marks & DIAL_MARK_NUMERALS) != 0) {
+            final String[] numerals = new String[12];
+            for (int i = 0; i < 12; i++) {
+                numerals[i] = String.format(Locale.getDefault(), "%d", i == 0 ? 12 : i);
+            }
+            mDialMarkPaint.setTextSize(halfShortAxis * 0.1f);
+            addNumerals(mDialMarkPath, mDialMarkPaint, numerals, halfShortAxis * 0.62f);
+        }
     }
 
     @Override
     public void draw(@NonNull Canvas canvas) {
+        if (mAppliedGeneration != mState.mGeneration) applyState();
         canvas.translate(getWidth() / 2, getHeight() / 2);
-        canvas.save();
-        canvas.rotate(-INIT_DEGREE_OFFSET);
-        drawDial(canvas);
+        if (!mAmbientMode) drawDial(canvas);
         drawHourHand(canvas);
         drawMinuteHand(canvas);
-        drawSecondHand(canvas);
-        canvas.restore();
+        if (!mAmbientMode) drawSecondHand(canvas);
         drawTextTime(canvas);
     }
 
@@ -193,14 +320,12 @@ public class ClockDrawable extends AbsClockDrawable {
      */
     private void drawDial(Canvas canvas) {
         canvas.drawCircle(0, 0, mDialRadius, mDialPaint);
+        if (!mDialMarkPath.isEmpty()) canvas.drawPath(mDialMarkPath, mDialMarkPaint);
     }
 
     private void drawHourHand(Canvas canvas) {
-        canvas.save();
-        canvas.rotate(mHourDeg);
-        canvas.drawArc(-mHourRadius, -mHourRadius, mHourRadius, mHourRadius,
-                -180, 180, false, mHourHandPaint);
-        canvas.restore();
+        drawHand(canvas, SPRITE_HOUR, mHourDeg, mHourRadius, mHourHandStrokeWidth,
+                mAmbientMode ? mHourHandOutline : mHourHandPath, mHourHandPaint);
     }
 
     /**
@@ -209,11 +334,8 @@ public class ClockDrawable extends AbsClockDrawable {
      * @param canvas The canvas to draw into
      */
     private void drawMinuteHand(Canvas canvas) {
-        canvas.save();
-        canvas.rotate(mMinuteDeg);
-        canvas.drawArc(-mMinuteRadius, -mMinuteRadius, mMinuteRadius, mMinuteRadius,
-                -180, 180, false, mMinuteHandPaint);
-        canvas.restore();
+        drawHand(canvas, SPRITE_MINUTE, mMinuteDeg, mMinuteRadius, mMinuteHandStrokeWidth,
+                mAmbientMode ? mMinuteHandOutline : mMinuteHandPath, mMinuteHandPaint);
     }
 
     /**
@@ -222,10 +344,34 @@ public class ClockDrawable extends AbsClockDrawable {
      * @param canvas The canvas to draw into
      */
     private void drawSecondHand(Canvas canvas) {
+        drawHand(canvas, SPRITE_SECOND, mSecondDeg, mSecondRadius, mSecondHandStrokeWidth,
+                mSecondHandPath, mSecondHandPaint);
+    }
+
+    /**
+     * Draw a hand, which is a half ring ending at the given degrees. In ambient mode only the outline
+     * of the ring is drawn, so that as few pixels as possible are turned on. The hand is drawn as its
+     * sprite if enabled, otherwise the cached path is drawn through the rotated canvas, which also
+     * rotates the shader of paint along with the hand.
+     *
+     * @param canvas      The canvas to draw into
+     * @param sprite      The index of sprite of hand
+     * @param degrees     The degrees of hand
+     * @param radius      The radius of the center line of ring
+     * @param strokeWidth The width of ring
+     * @param path        The cached path of hand or its outline
+     * @param paint       The paint of hand
+     */
+    private void drawHand(Canvas canvas, int sprite, float degrees, float radius, float strokeWidth,
+                          Path path, Paint paint) {
+        final float rotation = degrees - INIT_DEGREE_OFFSET;
+        if (mHandSprites != null && !mAmbientMode && mHandSprites.draw(canvas, sprite, path, paint,
+                radius + strokeWidth * 0.5f, strokeWidth, rotation)) {
+            return;
+        }
         canvas.save();
-        canvas.rotate(mSecondDeg);
-        canvas.drawArc(-mSecondRadius, -mSecondRadius, mSecondRadius, mSecondRadius,
-                -180, 180, false, mSecondHandPaint);
+        canvas.rotate(rotation);
+        canvas.drawPath(path, paint);
         canvas.restore();
     }
 
@@ -246,6 +392,7 @@ public class ClockDrawable extends AbsClockDrawable {
 
     @Override
     public void setAlpha(int alpha) {
+        mAlpha = alpha;
         mDialPaint.setAlpha(alpha);
         mHourTextPaint.setAlpha(alpha);
         mMinuteTextPaint.setAlpha(alpha);
@@ -253,6 +400,7 @@ public class ClockDrawable extends AbsClockDrawable {
         mAmPmTextPaint.setAlpha(alpha);
         mMinuteHandPaint.setAlpha(alpha);
         mSecondHandPaint.setAlpha(alpha);
+        mDialMarkPaint.setAlpha(alpha);
         invalidateSelf();
     }
 
@@ -265,6 +413,8 @@ public class ClockDrawable extends AbsClockDrawable {
         mHourHandPaint.setColorFilter(colorFilter);
         mMinuteHandPaint.setColorFilter(colorFilter);
         mSecondHandPaint.setColorFilter(colorFilter);
+        mDialMarkPaint.setColorFilter(colorFilter);
+        if (mHandSprites != null) mHandSprites.invalidate();
         invalidateSelf();
     }
 
@@ -274,10 +424,11 @@ public class ClockDrawable extends AbsClockDrawable {
      * @param newColor The new color
      */
     public void setHourHandColor(@ColorInt int newColor) {
-        if (mColorHourHand != newColor) {
-            mHourHandPaint.setShader(createSweepShader(newColor));
-            mColorHourHand = newColor;
-            invalidateSelf();
+        final ClockState state = mState;
+        if (state.mColorHourHand != newColor) {
+            state.mColorHourHand = newColor;
+            state.mHourHandShader = createSweepShader(newColor);
+            onStateChanged();
         }
     }
 
@@ -287,10 +438,11 @@ public class ClockDrawable extends AbsClockDrawable {
      * @param newColor The new color
      */
     public void setMinuteHandColor(@ColorInt int newColor) {
-        if (mColorMinuteHand != newColor) {
-            mMinuteHandPaint.setShader(createSweepShader(newColor));
-            mColorMinuteHand = newColor;
-            invalidateSelf();
+        final ClockState state = mState;
+        if (state.mColorMinuteHand != newColor) {
+            state.mColorMinuteHand = newColor;
+            state.mMinuteHandShader = createSweepShader(newColor);
+            onStateChanged();
         }
     }
 
@@ -300,10 +452,11 @@ public class ClockDrawable extends AbsClockDrawable {
      * @param newColor The new color
      */
     public void setSecondHandColor(@ColorInt int newColor) {
-        if (mColorSecondHand != newColor) {
-            mSecondHandPaint.setShader(createSweepShader(newColor));
-            mColorSecondHand = newColor;
-            invalidateSelf();
+        final ClockState state = mState;
+        if (state.mColorSecondHand != newColor) {
+            state.mColorSecondHand = newColor;
+            state.mSecondHandShader = createSweepShader(newColor);
+            onStateChanged();
         }
     }
 
@@ -313,10 +466,10 @@ public class ClockDrawable extends AbsClockDrawable {
      * @param newColor The new color
      */
     public void setDialColor(@ColorInt int newColor) {
-        if (mColorDial != newColor) {
-            mDialPaint.setColor(newColor);
-            mColorDial = newColor;
-            invalidateSelf();
+        final ClockState state = mState;
+        if (state.mColorDial != newColor) {
+            state.mColorDial = newColor;
+            onStateChanged();
         }
     }
 
@@ -326,10 +479,10 @@ public class ClockDrawable extends AbsClockDrawable {
      * @param newColor The new color
      */
     public void setHourTextColor(@ColorInt int newColor) {
-        if (mColorHourText != newColor) {
-            mHourTextPaint.setColor(newColor);
-            mColorHourText = newColor;
-            invalidateSelf();
+        final ClockState state = mState;
+        if (state.mColorHourText != newColor) {
+            state.mColorHourText = newColor;
+            onStateChanged();
         }
     }
 
@@ -339,10 +492,10 @@ public class ClockDrawable extends AbsClockDrawable {
      * @param newColor The new color
      */
     public void setMinuteTextColor(@ColorInt int newColor) {
-        if (mColorMinuteText != newColor) {
-            mMinuteTextPaint.setColor(newColor);
-            mColorMinuteText = newColor;
-            invalidateSelf();
+        final ClockState state = mState;
+        if (state.mColorMinuteText != newColor) {
+            state.mColorMinuteText = newColor;
+            onStateChanged();
         }
     }
 
@@ -380,10 +533,10 @@ public class ClockDrawable extends AbsClockDrawable {
      * @param newColor The new text color
      */
     public void setAmPmTextColor(@ColorInt int newColor) {
-        if (mColorAmPmText != newColor) {
-            mAmPmTextPaint.setColor(newColor);
-            mColorAmPmText = newColor;
-            invalidateSelf();
+        final ClockState state = mState;
+        if (state.mColorAmPmText != newColor) {
+            state.mColorAmPmText = newColor;
+            onStateChanged();
         }
     }
 
@@ -408,8 +561,8 @@ public class ClockDrawable extends AbsClockDrawable {
      */
     private void setHourHandStrokeWidth(float newWidth) {
         if (mHourHandStrokeWidth != newWidth) {
-            mHourHandPaint.setStrokeWidth(newWidth);
             mHourHandStrokeWidth = newWidth;
+            if (!mAmbientMode) mHourHandPaint.setStrokeWidth(newWidth);
             invalidateSelf();
         }
     }
@@ -421,8 +574,8 @@ public class ClockDrawable extends AbsClockDrawable {
      */
     private void setMinuteHandStrokeWidth(float newWidth) {
         if (mMinuteHandStrokeWidth != newWidth) {
-            mMinuteHandPaint.setStrokeWidth(newWidth);
             mMinuteHandStrokeWidth = newWidth;
+            if (!mAmbientMode) mMinuteHandPaint.setStrokeWidth(newWidth);
             invalidateSelf();
         }
     }
@@ -434,8 +587,8 @@ public class ClockDrawable extends AbsClockDrawable {
      */
     private void setSecondHandStrokeWidth(float newWidth) {
         if (mSecondHandStrokeWidth != newWidth) {
-            mSecondHandPaint.setStrokeWidth(newWidth);
             mSecondHandStrokeWidth = newWidth;
+            if (!mAmbientMode) mSecondHandPaint.setStrokeWidth(newWidth);
             invalidateSelf();
         }
     }
@@ -446,14 +599,205 @@ public class ClockDrawable extends AbsClockDrawable {
      * @param typeface The {@link Typeface}
      */
     public void setClockFontTypeface(@NonNull Typeface typeface) {
-        mHourTextPaint.setTypeface(typeface);
-        mMinuteTextPaint.setTypeface(typeface);
-        mAmPmTextPaint.setFakeBoldText(true);
-        mAmPmTextPaint.setTextScaleX(1.25f);
-        mAmPmTextPaint.setLetterSpacing(0.15f);
+        mState.mTypeface = typeface;
+        onStateChanged();
+    }
+
+    /**
+     * Sets the marks to draw on the dial, which are built once for the bounds and drawn by one call.
+     * They are not drawn in ambient mode.
+     *
+     * @param marks The combination of {@link #DIAL_MARK_MAJOR_TICKS}, {@link #DIAL_MARK_MINOR_TICKS}
+     *              and {@link #DIAL_MARK_NUMERALS}, or {@link #DIAL_MARK_NONE}
+     */
+    public void setDialMarks(@DialMarks int marks) {
+        final ClockState state = mState;
+        if (state.mDialMarks != marks) {
+            state.mDialMarks = marks;
+            onStateChanged();
+        }
+    }
+
+    /**
+     * Gets the marks drawn on the dial
+     *
+     * @return The marks
+     * @see #setDialMarks(int)
+     */
+    @DialMarks
+    public int getDialMarks() {
+        return mState.mDialMarks;
+    }
+
+    /**
+     * Sets the color of the tick marks and numerals on the dial, default is {@link Color#GRAY}
+     *
+     * @param newColor The new color
+     */
+    public void setDialMarkColor(@ColorInt int newColor) {
+        final ClockState state = mState;
+        if (state.mColorDialMark != newColor) {
+            state.mColorDialMark = newColor;
+            onStateChanged();
+        }
+    }
+
+    /**
+     * Sets whether to draw the hands as sprites, which are rasterized once per size and style and
+     * drawn as rotated bitmaps. This saves much GPU time on low-end devices at the cost of the
+     * memory of bitmaps. The hands are drawn as vector in ambient mode, and while the size keeps
+     * changing.
+     *
+     * @param enabled true to draw the hands as sprites, false to draw them as vector
+     */
+    public void setSpriteHandsEnabled(boolean enabled) {
+        if (enabled == (mHandSprites != null)) return;
+        if (enabled) {
+            mHandSprites = new HandSprites(SPRITE_COUNT);
+        } else {
+            mHandSprites.release();
+            mHandSprites = null;
+        }
         invalidateSelf();
     }
 
+    /**
+     * Indicates whether the hands are drawn as sprites
+     *
+     * @return true if drawn as sprites, false otherwise
+     * @see #setSpriteHandsEnabled(boolean)
+     */
+    public boolean isSpriteHandsEnabled() {
+        return mHandSprites != null;
+    }
+
+    /**
+     * Sets whether to draw in ambient mode, which is used on always-on displays. In ambient mode the
+     * dial, the second hand and the gradients are dropped, the hands are drawn as outlines and
+     * nothing is anti-aliased. The same paints are used in both modes.
+     *
+     * @param ambientMode true for ambient mode, false for interactive mode
+     */
+    public void setAmbientMode(boolean ambientMode) {
+        if (mAmbientMode != ambientMode) {
+            mAmbientMode = ambientMode;
+            applyPaintMode();
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * Indicates whether this drawable draws in ambient mode
+     *
+     * @return true if in ambient mode, false otherwise
+     */
+    public boolean isAmbientMode() {
+        return mAmbientMode;
+    }
+
+    /**
+     * Sets the only color used in ambient mode, default is {@link Color#WHITE}
+     *
+     * @param newColor The new color
+     */
+    public void setAmbientColor(@ColorInt int newColor) {
+        final ClockState state = mState;
+        if (state.mColorAmbient != newColor) {
+            state.mColorAmbient = newColor;
+            onStateChanged();
+        }
+    }
+
+    /**
+     * Called when the shared style has been changed through this drawable
+     */
+    private void onStateChanged() {
+        mState.mGeneration++;
+        applyState();
+        invalidateSelf();
+    }
+
+    /**
+     * Applies the shared style to the paints
+     */
+    private void applyState() {
+        final ClockState state = mState;
+        mAppliedGeneration = state.mGeneration;
+        setPaintColor(mDialPaint, state.mColorDial);
+        setPaintColor(mDialMarkPaint, state.mColorDialMark);
+        final Typeface typeface = state.mTypeface;
+        if (typeface != null) {
+            mHourTextPaint.setTypeface(typeface);
+            mMinuteTextPaint.setTypeface(typeface);
+            mDialMarkPaint.setTypeface(typeface);
+            mAmPmTextPaint.setFakeBoldText(true);
+            mAmPmTextPaint.setTextScaleX(1.25f);
+            mAmPmTextPaint.setLetterSpacing(0.15f);
+            // The metrics of font decide the offsets of texts
+            mHourVerticalOffset = calculateTextVerticalOffset(mHourTextPaint);
+            mMinuteVerticalOffset = calculateTextVerticalOffset(mMinuteTextPaint);
+            mAmPmVerticalOffset = calculateTextVerticalOffset(mAmPmTextPaint);
+        }
+        applyPaintMode();
+        buildDialMarks();
+    }
+
+    /**
+     * Applies the state of current mode to the paints of hands and texts
+     */
+    private void applyPaintMode() {
+        if (mHandSprites != null) mHandSprites.invalidate();
+        final ClockState state = mState;
+        final boolean ambient = mAmbientMode;
+        applyHandPaintMode(mHourHandPaint, state.mHourHandShader, mHourHandStrokeWidth);
+        applyHandPaintMode(mMinuteHandPaint, state.mMinuteHandShader, mMinuteHandStrokeWidth);
+        applyHandPaintMode(mSecondHandPaint, state.mSecondHandShader, mSecondHandStrokeWidth);
+        mHourTextPaint.setAntiAlias(!ambient);
+        mMinuteTextPaint.setAntiAlias(!ambient);
+        mAmPmTextPaint.setAntiAlias(!ambient);
+        setPaintColor(mHourTextPaint, ambient ? state.mColorAmbient : state.mColorHourText);
+        setPaintColor(mMinuteTextPaint, ambient ? state.mColorAmbient : state.mColorMinuteText);
+        setPaintColor(mAmPmTextPaint, ambient ? state.mColorAmbient : state.mColorAmPmText);
+    }
+
+    private void applyHandPaintMode(Paint paint, Shader shader, float strokeWidth) {
+        final boolean ambient = mAmbientMode;
+        paint.setAntiAlias(!ambient);
+        paint.setShader(ambient ? null : shader);
+        paint.setStrokeWidth(ambient ? mAmbientStrokeWidth : strokeWidth);
+        // The color of paint is only used in ambient mode, the shader decides the color otherwise
+        setPaintColor(paint, ambient ? mState.mColorAmbient : Color.BLACK);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The style of a mutated drawable is no longer shared, and the drawables created from it share
+     * the copy instead.
+     */
+    @NonNull
+    @Override
+    public Drawable mutate() {
+        if (!mMutated && super.mutate() == this) {
+            mState = new ClockState(mState);
+            mMutated = true;
+        }
+        return this;
+    }
+
+    @Override
+    public ConstantState getConstantState() {
+        return mState;
+    }
+
+    /**
+     * Sets the color of paint, and keeps the alpha set by {@link #setAlpha(int)}
+     */
+    private void setPaintColor(Paint paint, int color) {
+        paint.setColor(color);
+        if (mAlpha != 0xFF) paint.setAlpha(Color.alpha(color) * mAlpha / 0xFF);
+    }
+
     /**
      * Indicates whether to use 24-hour time
      *
@@ -474,4 +818,76 @@ public class ClockDrawable extends AbsClockDrawable {
             invalidateSelf();
         }
     }
+
+    /**
+     * The style of clock shared by the drawables, which holds no time or size
+     */
+    private static final class ClockState extends ConstantState {
+
+        /**
+         * Increased on every change, so that the drawables sharing this state update their paints
+         */
+        int mGeneration;
+
+        int mColorHourHand;
+        int mColorMinuteHand;
+        int mColorSecondHand;
+        int mColorDial = Color.BLACK;
+        int mColorHourText = Color.BLACK;
+        int mColorMinuteText = Color.BLACK;
+        int mColorAmPmText = Color.BLACK;
+        int mColorAmbient = Color.WHITE;
+        int mColorDialMark = Color.GRAY;
+
+        @DialMarks
+        int mDialMarks;
+
+        /**
+         * The shaders of hands, which are kept while the paints drop them in ambient mode. They are
+         * never changed once created, the canvas is rotated instead.
+         */
+        Shader mHourHandShader;
+        Shader mMinuteHandShader;
+        Shader mSecondHandShader;
+
+        Typeface mTypeface;
+
+        String[] mAmPmStrings;
+
+        ClockState() {
+            mAmPmStrings = new DateFormatSymbols().getAmPmStrings();
+        }
+
+        /**
+         * Copies the given state, the shaders and strings are immutable and shared.
+         */
+        ClockState(ClockState orig) {
+            mColorHourHand = orig.mColorHourHand;
+            mColorMinuteHand = orig.mColorMinuteHand;
+            mColorSecondHand = orig.mColorSecondHand;
+            mColorDial = orig.mColorDial;
+            mColorHourText = orig.mColorHourText;
+            mColorMinuteText = orig.mColorMinuteText;
+            mColorAmPmText = orig.mColorAmPmText;
+            mColorAmbient = orig.mColorAmbient;
+            mColorDialMark = orig.mColorDialMark;
+            mDialMarks = orig.mDialMarks;
+            mHourHandShader = orig.mHourHandShader;
+            mMinuteHandShader = orig.mMinuteHandShader;
+            mSecondHandShader = orig.mSecondHandShader;
+            mTypeface = orig.mTypeface;
+            mAmPmStrings = orig.mAmPmStrings;
+        }
+
+        @NonNull
+        @Override
+        public Drawable newDrawable() {
+            return new ClockDrawable(this);
+        }
+
+        @Override
+        public int getChangingConfigurations() {
+            return 0;
+        }
+    }
 }
@@ -0,0 +1,145 @@
+package com.creator.lemonade.clock.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.os.SystemClock;
+
+/**
+ * The sprites of the hands of a clock drawable. Each hand is rasterized once per size and style
+ * into a bitmap, and then drawn on every frame as one rotated bitmap, which is much cheaper for
+ * the GPU than an anti-aliased thick arc filled by a sweep gradient.
+ * <p>
+ * While the size keeps changing, such as during an animation, rasterizing on every change would
+ * cost more than it saves, so the hands are left to the vector drawing until the size has settled
+ * for {@link #SETTLE_TIME}.
+ *
+ * @author Felix.Liang
+ */
+final class HandSprites {
+
+    /**
+     * The time in milliseconds that the size has to stay unchanged before the hands are rasterized
+     */
+    private static final long SETTLE_TIME = 300;
+
+    /**
+     * The margin in pixels around a hand, which keeps its anti-aliased edges
+     */
+    private static final int MARGIN = 1;
+
+    private final Bitmap[] mBitmaps;
+    private final boolean[] mValid;
+
+    /**
+     * The centers of the hands in their bitmaps
+     */
+    private final float[] mCenterX;
+    private final float[] mCenterY;
+
+    private final Matrix mMatrix = new Matrix();
+    private final Paint mBitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG | Paint.ANTI_ALIAS_FLAG);
+
+    /**
+     * The uptime of last change of size, or 0 if the first size isn't changed yet
+     */
+    private long mResizeTime;
+    private boolean mSized;
+
+    /**
+     * @param count the count of hands
+     */
+    HandSprites(int count) {
+        mBitmaps = new Bitmap[count];
+        mValid = new boolean[count];
+        mCenterX = new float[count];
+        mCenterY = new float[count];
+    }
+
+    /**
+     * Called when the size of drawable is changed. The first size is rasterized at once, and the
+     * later ones after settling.
+     */
+    void onSizeChanged() {
+        if (mSized) mResizeTime = SystemClock.uptimeMillis();
+        mSized = true;
+        invalidate();
+    }
+
+    /**
+     * Marks all the sprites to be rasterized again, such as when the style is changed.
+     */
+    void invalidate() {
+        for (int i = 0; i < mValid.length; i++) {
+            mValid[i] = false;
+        }
+    }
+
+    /**
+     * Draws a hand as a sprite, which is rasterized first if needed.
+     *
+     * @param canvas      The canvas to draw into
+     * @param index       The index of hand
+     * @param path        The path of hand in its own frame, which is a half ring above the center
+     * @param paint       The paint of hand, whose alpha is applied when drawing the sprite
+     * @param outerRadius The distance from the center to the outer edge of hand
+     * @param strokeWidth The stroke width of hand
+     * @param degrees     The degrees to rotate the hand by
+     * @return true if drawn, false if the size hasn't settled and the hand should be drawn as vector
+     */
+    boolean draw(Canvas canvas, int index, Path path, Paint paint, float outerRadius, float strokeWidth,
+                 float degrees) {
+        if (mResizeTime != 0 && SystemClock.uptimeMillis() - mResizeTime < SETTLE_TIME) return false;
+        if (!mValid[index]) rasterize(index, path, paint, outerRadius, strokeWidth);
+        final Bitmap bitmap = mBitmaps[index];
+        if (bitmap == null) return false;
+        final Matrix matrix = mMatrix;
+        matrix.setTranslate(-mCenterX[index], -mCenterY[index]);
+        matrix.postRotate(degrees);
+        // The sprite is opaque, so that changing the alpha of drawable needs no rasterizing
+        mBitmapPaint.setAlpha(paint.getAlpha());
+        canvas.drawBitmap(bitmap, matrix, mBitmapPaint);
+        return true;
+    }
+
+    private void rasterize(int index, Path path, Paint paint, float outerRadius, float strokeWidth) {
+        // Only the upper half of ring and the ends of stroke below the center are kept
+        final int width = (int) Math.ceil(outerRadius * 2) + MARGIN * 2;
+        final int height = (int) Math.ceil(outerRadius + strokeWidth * 0.5f) + MARGIN * 2;
+        if (width <= MARGIN * 2 || height <= MARGIN * 2) return;
+        Bitmap bitmap = mBitmaps[index];
+        if (bitmap != null && bitmap.getWidth() == width && bitmap.getHeight() == height) {
+            bitmap.eraseColor(Color.TRANSPARENT);
+        } else {
+            // The old bitmap may still be referenced by a display list, so it's left to the GC
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mBitmaps[index] = bitmap;
+        }
+        final float centerX = width * 0.5f;
+        final float centerY = (float) Math.ceil(outerRadius) + MARGIN;
+        final Canvas canvas = new Canvas(bitmap);
+        canvas.translate(centerX, centerY);
+        final int alpha = paint.getAlpha();
+        paint.setAlpha(0xFF);
+        canvas.drawPath(path, paint);
+        paint.setAlpha(alpha);
+        bitmap.prepareToDraw();
+        mCenterX[index] = centerX;
+        mCenterY[index] = centerY;
+        mValid[index] = true;
+    }
+
+    /**
+     * Releases all the bitmaps. They're only dropped rather than recycled, since a display list or
+     * the render thread may still be drawing them.
+     */
+    void release() {
+        for (int i = 0; i < mBitmaps.length; i++) {
+            mBitmaps[i] = null;
+            mValid[i] = false;
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package com.creator.lemonade.clock.graphics;
 
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.ColorFilter;
+import android.graphics.Matrix;
 import android.graphics.Paint;
+import android.graphics.Path;
 import android.graphics.Rect;
+import android.graphics.Shader;
 import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
 import android.support.annotation.ColorInt;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
@@ -16,6 +22,14 @@ import java.util.Locale;
 
 /**
  * This Class defines how to draw a stopwatch.
+ * <p>
+ * The time can be pushed by {@link #setTimeNanos(long)} on every tick, or pulled during {@link #draw(Canvas)}
+ * from the anchors set by {@link #setAnchors(long, long)}. In the pull mode the shown time is
+ * evaluated at the time of frame given by {@link #setFrameTimeNanos(long)}, so the owner decides
+ * the rate of frames.
+ * <p>
+ * The colors, shaders and typeface are kept in a {@link ConstantState} shared by the drawables
+ * created from it, as described in {@link ClockDrawable}.
  *
  * @author Felix.Liang
  */
@@ -26,8 +40,57 @@ public class StopwatchDrawable extends AbsClockDrawable {
      */
     private static final float INIT_DEGREE_OFFSET = 90;
 
+    /**
+     * The indexes of hands in {@link #mHandSprites}
+     */
+    private static final int SPRITE_MINUTE = 0;
+    private static final int SPRITE_SECOND = 1;
+    private static final int SPRITE_COUNT = 2;
+
+    /**
+     * The style shared with other drawables until {@link #mutate()}
+     */
+    private StopwatchState mState;
+
+    /**
+     * @see #mutate()
+     */
+    private boolean mMutated;
+
+    /**
+     * The generation of {@link #mState} which the paints have been updated to
+     */
+    private int mAppliedGeneration = -1;
+
+    /**
+     * The current time of stopwatch in nanoseconds
+     */
     private long mCurrentTime;
 
+    /**
+     * A constant that indicates there is no anchor
+     */
+    private static final long NO_ANCHOR = -1;
+
+    /**
+     * The elapsed real time in nanoseconds at the start of stopwatch, or {@link #NO_ANCHOR} in push mode
+     *
+     * @see #setAnchors(long, long)
+     */
+    private long mBaseAnchor = NO_ANCHOR;
+
+    /**
+     * The elapsed real time in nanoseconds at the pause of stopwatch, or 0 if running
+     */
+    private long mPauseAnchor;
+
+    /**
+     * The elapsed real time in nanoseconds of the frame to draw in the pull mode
+     *
+     * @see #setFrameTimeNanos(long)
+     */
+    private long mFrameTime;
+
     private Paint mDialPaint;
     private Paint mMinuteHandPaint;
     private Paint mSecondHandPaint;
@@ -35,14 +98,34 @@ public class StopwatchDrawable extends AbsClockDrawable {
     private Paint mMinuteTextPaint;
     private Paint mSecondTextPaint;
     private Paint mMillisTextPaint;
+    private Paint mDialMarkPaint;
+
+    /**
+     * The hands in their own frame, built when the bounds change, and drawn through a rotated canvas
+     */
+    private final Path mMinuteHandPath = new Path();
+    private final Path mSecondHandPath = new Path();
 
-    private int mColorMinuteHand;
-    private int mColorSecondHand;
-    private int mColorDial;
-    private int mColorMillisText;
-    private int mColorSecondText;
-    private int mColorMinuteText;
-    private int mColorHourText;
+    /**
+     * The matrix to place the tick marks of dial, reused when the bounds change
+     */
+    private final Matrix mMarkMatrix = new Matrix();
+
+    /**
+     * The sprites of hands, or null if the hands are drawn as vector
+     *
+     * @see #setSpriteHandsEnabled(boolean)
+     */
+    private HandSprites mHandSprites;
+
+    /**
+     * All the tick marks and numerals of dial, drawn by one call
+     *
+     * @see #setDialMarks(int)
+     */
+    private final Path mDialMarkPath = new Path();
+
+    private int mAlpha = 0xFF;
 
     private float mHourTextSize;
     private float mMinuteTextSize;
@@ -69,7 +152,13 @@ public class StopwatchDrawable extends AbsClockDrawable {
     private String mMillisecond = DEFAULT_TWO_DIGIT_TIME;
 
     public StopwatchDrawable() {
+        this(new StopwatchState());
+    }
+
+    private StopwatchDrawable(StopwatchState state) {
+        mState = state;
         initPaint();
+        applyState();
     }
 
     private void initPaint() {
@@ -84,6 +173,9 @@ public class StopwatchDrawable extends AbsClockDrawable {
         mMinuteTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
         mSecondTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
         mMillisTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        mDialMarkPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        mDialMarkPaint.setStyle(Paint.Style.FILL);
+        mDialMarkPaint.setTextAlign(Paint.Align.CENTER);
     }
 
     /**
@@ -92,25 +184,61 @@ public class StopwatchDrawable extends AbsClockDrawable {
      * @param timeInMillis time in milliseconds
      */
     public void setTime(long timeInMillis) {
-        if (mCurrentTime != timeInMillis) {
-            mCurrentTime = timeInMillis;
+        setTimeNanos(timeInMillis * NANOS_PER_MILLI);
+    }
+
+    /**
+     * Specify the time of stopwatch.
+     *
+     * @param timeInNanos time in nanoseconds
+     */
+    public void setTimeNanos(long timeInNanos) {
+        mBaseAnchor = NO_ANCHOR;
+        if (mCurrentTime != timeInNanos) {
+            mCurrentTime = timeInNanos;
             onTimeChanged();
+            invalidateSelf();
         }
     }
 
+    /**
+     * Specify the anchors of a started stopwatch, from which the time is evaluated during drawing.
+     * This switches the drawable to the pull mode until {@link #setTimeNanos(long)} is called.
+     *
+     * @param baseNanos  the elapsed real time in nanoseconds at the start of stopwatch
+     * @param pauseNanos the elapsed real time in nanoseconds at the pause of stopwatch, or 0 if running
+     * @see SystemClock#elapsedRealtimeNanos()
+     */
+    public void setAnchors(long baseNanos, long pauseNanos) {
+        mBaseAnchor = baseNanos;
+        mPauseAnchor = pauseNanos;
+        invalidateSelf();
+    }
+
+    /**
+     * Specify the time of the frame to draw in the pull mode, such as the time of a
+     * {@link android.view.Choreographer} frame, at which a running stopwatch is evaluated.
+     *
+     * @param frameTimeNanos the elapsed real time of frame in nanoseconds
+     * @see #setAnchors(long, long)
+     * @see SystemClock#elapsedRealtimeNanos()
+     */
+    public void setFrameTimeNanos(long frameTimeNanos) {
+        mFrameTime = frameTimeNanos;
+        if (mBaseAnchor != NO_ANCHOR && mPauseAnchor == 0) invalidateSelf();
+    }
+
     /**
      * Called when the time of stopwatch is changed.
      */
     private void onTimeChanged() {
-        final long timeInMillis = mCurrentTime;
-        final long millis = timeInMillis % 1000;
-        final long second = timeInMillis / 1000 % 60;
-        final long minute = timeInMillis / 1000 / 60 % 60;
-        final long hour = timeInMillis / 1000 / 60 / 60;
-        float actualSecond = second + millis / 1000f;
-        mSecondDeg = actualSecond / 60 * 360;
-        float actualMinute = minute + actualSecond / 60f;
-        mMinuteDeg = actualMinute / 60 * 360;
+        final long timeInNanos = mCurrentTime;
+        final long millis = timeInNanos / NANOS_PER_MILLI % 1000;
+        final long second = timeInNanos / NANOS_PER_SECOND % 60;
+        final long minute = timeInNanos / NANOS_PER_MINUTE % 60;
+        final long hour = timeInNanos / NANOS_PER_HOUR;
+        mSecondDeg = calculateHandDegrees(timeInNanos, NANOS_PER_MINUTE);
+        mMinuteDeg = calculateHandDegrees(timeInNanos, NANOS_PER_HOUR);
         if (hour <= 0) {
             mHour = null;
         } else if (hour < 10) {
@@ -121,7 +249,6 @@ public class StopwatchDrawable extends AbsClockDrawable {
         mMinute = String.format(Locale.getDefault(), TWO_DIGIT_FORMAT, minute);
         mSecond = String.format(Locale.getDefault(), TWO_DIGIT_FORMAT, second);
         mMillisecond = String.format(Locale.getDefault(), TWO_DIGIT_FORMAT, millis / 10);
-        invalidateSelf();
     }
 
     /**
@@ -140,6 +267,50 @@ public class StopwatchDrawable extends AbsClockDrawable {
         setMinuteHandStrokeWidth(minuteHandStrokeWidth);
         mMinuteHandRadius = mDialRadius * 0.95f - minuteHandStrokeWidth / 2f;
         mTextExtraSpace = (mMinuteHandRadius * 2 - minuteHandStrokeWidth) * 0.9f;
+        if (mHandSprites != null) mHandSprites.onSizeChanged();
+        buildHandPath(mMinuteHandPath, mMinuteHandRadius);
+        buildHandPath(mSecondHandPath, mSecondHandRadius);
+        buildDialMarks();
+    }
+
+    /**
+     * Builds a hand, which is a half ring ending at zero degrees.
+     *
+     * @param path   The path of hand to build
+     * @param radius The radius of the center line of ring
+     */
+    private static void buildHandPath(Path path, float radius) {
+        path.rewind();
+        path.addArc(-radius, -radius, radius, radius, -180, 180);
+    }
+
+    /**
+     * Builds the tick marks and numerals chosen by {@link #setDialMarks(int)} for current bounds.
+     * The major ticks and numerals are at every five seconds, and the minor ticks at every second.
+     */
+    private void buildDialMarks() {
+        mDialMarkPath.rewind();
+        final int marks = mState.mDialMarks;
+        final float dialRadius = mDialRadius;
+        if (marks == DIAL_MARK_NONE || dialRadius <= 0) return;
+        final float outerRadius = dialRadius * 0.985f;
+        final boolean majorTicks = (marks & DIAL_MARK_MAJOR_TICKS) != 0;
+        if (majorTicks) {
+            addTickMarks(mDialMarkPath, mMarkMatrix, 12, 0, outerRadius,
+                    dialRadius * 0.03f, dialRadius * 0.015f);
+        }
+        if ((marks & DIAL_MARK_MINOR_TICKS) != 0) {
+            addTickMarks(mDialMarkPath, mMarkMatrix, 60, majorTicks ? 5 : 0, outerRadius,
+                    dialRadius * 0.015f, dialRadius * 0.008f);
+        }
+        if ((marks & DIAL_MARK_NUMERALS) != 0) {
+            final String[] numerals = new String[12];
+            for (int i = 0; i < 12; i++) {
+                numerals[i] = String.format(Locale.getDefault(), "%d", i == 0 ? 60 : i * 5);
+            }
+            mDialMarkPaint.setTextSize(dialRadius * 0.08f);
+            addNumerals(mDialMarkPath, mDialMarkPaint, numerals, dialRadius * 0.72f);
+        }
     }
 
     /**
@@ -147,12 +318,18 @@ public class StopwatchDrawable extends AbsClockDrawable {
      */
     @Override
     public void draw(@NonNull Canvas canvas) {
+        if (mAppliedGeneration != mState.mGeneration) applyState();
+        if (mBaseAnchor != NO_ANCHOR) {
+            final long now = mPauseAnchor == 0 ? mFrameTime : mPauseAnchor;
+            final long timeInNanos = Math.max(0, now - mBaseAnchor);
+            if (mCurrentTime != timeInNanos) {
+                mCurrentTime = timeInNanos;
+                onTimeChanged();
+            }
+        }
         canvas.translate(getWidth() / 2, getHeight() / 2);
-        canvas.save();
-        canvas.rotate(-INIT_DEGREE_OFFSET);
         drawDial(canvas);
         drawHands(canvas);
-        canvas.restore();
         drawTextTime(canvas);
     }
 
@@ -163,6 +340,7 @@ public class StopwatchDrawable extends AbsClockDrawable {
      */
     private void drawDial(Canvas canvas) {
         canvas.drawCircle(0, 0, mDialRadius, mDialPaint);
+        if (!mDialMarkPath.isEmpty()) canvas.drawPath(mDialMarkPath, mDialMarkPaint);
     }
 
     /**
@@ -181,11 +359,8 @@ public class StopwatchDrawable extends AbsClockDrawable {
      * @param canvas The canvas to draw into
      */
     private void drawMinuteHand(Canvas canvas) {
-        canvas.save();
-        canvas.rotate(mMinuteDeg);
-        canvas.drawArc(-mMinuteHandRadius, -mMinuteHandRadius, mMinuteHandRadius, mMinuteHandRadius,
-                -180, 180, false, mMinuteHandPaint);
-        canvas.restore();
+        drawHand(canvas, SPRITE_MINUTE, mMinuteDeg, mMinuteHandRadius, mMinStrokeWidth, mMinuteHandPath,
+                mMinuteHandPaint);
     }
 
     /**
@@ -194,10 +369,32 @@ public class StopwatchDrawable extends AbsClockDrawable {
      * @param canvas The canvas to draw into
      */
     private void drawSecondHand(Canvas canvas) {
+        drawHand(canvas, SPRITE_SECOND, mSecondDeg, mSecondHandRadius, mSecStrokeWidth, mSecondHandPath,
+                mSecondHandPaint);
+    }
+
+    /**
+     * Draw a hand as its sprite if enabled, otherwise by drawing its cached path through the rotated
+     * canvas, which also rotates the shader of paint along with the hand.
+     *
+     * @param canvas      The canvas to draw into
+     * @param sprite      The index of sprite of hand
+     * @param degrees     The degrees of hand
+     * @param radius      The radius of the center line of hand
+     * @param strokeWidth The stroke width of hand
+     * @param path        The cached path of hand
+     * @param paint       The paint of hand
+     */
+    private void drawHand(Canvas canvas, int sprite, float degrees, float radius, float strokeWidth,
+                          Path path, Paint paint) {
+        final float rotation = degrees - INIT_DEGREE_OFFSET;
+        if (mHandSprites != null && mHandSprites.draw(canvas, sprite, path, paint,
+                radius + strokeWidth * 0.5f, strokeWidth, rotation)) {
+            return;
+        }
         canvas.save();
-        canvas.rotate(mSecondDeg);
-        canvas.drawArc(-mSecondHandRadius, -mSecondHandRadius, mSecondHandRadius, mSecondHandRadius,
-                -180, 180, false, mSecondHandPaint);
+        canvas.rotate(rotation);
+        canvas.drawPath(path, paint);
         canvas.restore();
     }
 
@@ -287,6 +484,7 @@ public class StopwatchDrawable extends AbsClockDrawable {
      */
     @Override
     public void setAlpha(int alpha) {
+        mAlpha = alpha;
         mDialPaint.setAlpha(alpha);
         mMinuteHandPaint.setAlpha(alpha);
         mSecondHandPaint.setAlpha(alpha);
@@ -294,6 +492,7 @@ public class StopwatchDrawable extends AbsClockDrawable {
         mMinuteTextPaint.setAlpha(alpha);
         mSecondTextPaint.setAlpha(alpha);
         mMillisTextPaint.setAlpha(alpha);
+        mDialMarkPaint.setAlpha(alpha);
         invalidateSelf();
     }
 
@@ -309,6 +508,8 @@ public class StopwatchDrawable extends AbsClockDrawable {
         mMinuteTextPaint.setColorFilter(colorFilter);
         mSecondTextPaint.setColorFilter(colorFilter);
         mMillisTextPaint.setColorFilter(colorFilter);
+        mDialMarkPaint.setColorFilter(colorFilter);
+        if (mHandSprites != null) mHandSprites.invalidate();
         invalidateSelf();
     }
 
@@ -318,10 +519,11 @@ public class StopwatchDrawable extends AbsClockDrawable {
      * @param newColor The new color
      */
     public void setMinuteHandColor(int newColor) {
-        if (mColorMinuteHand != newColor) {
-            mMinuteHandPaint.setShader(createSweepShader(newColor));
-            mColorMinuteHand = newColor;
-            invalidateSelf();
+        final StopwatchState state = mState;
+        if (state.mColorMinuteHand != newColor) {
+            state.mColorMinuteHand = newColor;
+            state.mMinuteHandShader = createSweepShader(newColor);
+            onStateChanged();
         }
     }
 
@@ -331,10 +533,11 @@ public class StopwatchDrawable extends AbsClockDrawable {
      * @param newColor The new color
      */
     public void setSecondHandColor(@ColorInt int newColor) {
-        if (mColorSecondHand != newColor) {
-            mSecondHandPaint.setShader(createSweepShader(newColor));
-            mColorSecondHand = newColor;
-            invalidateSelf();
+        final StopwatchState state = mState;
+        if (state.mColorSecondHand != newColor) {
+            state.mColorSecondHand = newColor;
+            state.mSecondHandShader = createSweepShader(newColor);
+            onStateChanged();
         }
     }
 
@@ -344,10 +547,10 @@ public class StopwatchDrawable extends AbsClockDrawable {
      * @param newColor The new color
      */
     public void setDialColor(@ColorInt int newColor) {
-        if (mColorDial != newColor) {
-            mDialPaint.setColor(newColor);
-            mColorDial = newColor;
-            invalidateSelf();
+        final StopwatchState state = mState;
+        if (state.mColorDial != newColor) {
+            state.mColorDial = newColor;
+            onStateChanged();
         }
     }
 
@@ -357,10 +560,10 @@ public class StopwatchDrawable extends AbsClockDrawable {
      * @param newColor The new text color
      */
     public void setSecondTextColor(@ColorInt int newColor) {
-        if (mColorSecondText != newColor) {
-            mSecondTextPaint.setColor(newColor);
-            mColorSecondText = newColor;
-            invalidateSelf();
+        final StopwatchState state = mState;
+        if (state.mColorSecondText != newColor) {
+            state.mColorSecondText = newColor;
+            onStateChanged();
         }
     }
 
@@ -370,10 +573,10 @@ public class StopwatchDrawable extends AbsClockDrawable {
      * @param newColor The new text color
      */
     public void setMillisTextColor(@ColorInt int newColor) {
-        if (mColorMillisText != newColor) {
-            mMillisTextPaint.setColor(newColor);
-            mColorMillisText = newColor;
-            invalidateSelf();
+        final StopwatchState state = mState;
+        if (state.mColorMillisText != newColor) {
+            state.mColorMillisText = newColor;
+            onStateChanged();
         }
     }
 
@@ -383,10 +586,10 @@ public class StopwatchDrawable extends AbsClockDrawable {
      * @param newColor The new text color
      */
     public void setMinuteTextColor(@ColorInt int newColor) {
-        if (mColorMinuteText != newColor) {
-            mMinuteTextPaint.setColor(newColor);
-            mColorMinuteText = newColor;
-            invalidateSelf();
+        final StopwatchState state = mState;
+        if (state.mColorMinuteText != newColor) {
+            state.mColorMinuteText = newColor;
+            onStateChanged();
         }
     }
 
@@ -396,10 +599,10 @@ public class StopwatchDrawable extends AbsClockDrawable {
      * @param newColor The new text color
      */
     public void setHourTextColor(@ColorInt int newColor) {
-        if (mColorHourText != newColor) {
-            mHourTextPaint.setColor(newColor);
-            mColorHourText = newColor;
-            invalidateSelf();
+        final StopwatchState state = mState;
+        if (state.mColorHourText != newColor) {
+            state.mColorHourText = newColor;
+            onStateChanged();
         }
     }
 
@@ -485,16 +688,211 @@ public class StopwatchDrawable extends AbsClockDrawable {
         }
     }
 
+    /**
+     * Specify whether to draw the hands as sprites, which are rasterized once per size and style
+     * and drawn as rotated bitmaps. This saves much GPU time on low-end devices at the cost of the
+     * memory of bitmaps. The hands are drawn as vector while the size keeps changing.
+     *
+     * @param enabled true to draw the hands as sprites, false to draw them as vector
+     */
+    public void setSpriteHandsEnabled(boolean enabled) {
+        if (enabled == (mHandSprites != null)) return;
+        if (enabled) {
+            mHandSprites = new HandSprites(SPRITE_COUNT);
+        } else {
+            mHandSprites.release();
+            mHandSprites = null;
+        }
+        invalidateSelf();
+    }
+
+    /**
+     * Indicates whether the hands are drawn as sprites.
+     *
+     * @return true if drawn as sprites, false otherwise
+     * @see #setSpriteHandsEnabled(boolean)
+     */
+    public boolean isSpriteHandsEnabled() {
+        return mHandSprites != null;
+    }
+
+    /**
+     * Specify the marks to draw on the dial, which are built once for the bounds and drawn by one call.
+     *
+     * @param marks The combination of {@link #DIAL_MARK_MAJOR_TICKS}, {@link #DIAL_MARK_MINOR_TICKS}
+     *              and {@link #DIAL_MARK_NUMERALS}, or {@link #DIAL_MARK_NONE}
+     */
+    public void setDialMarks(@DialMarks int marks) {
+        final StopwatchState state = mState;
+        if (state.mDialMarks != marks) {
+            state.mDialMarks = marks;
+            onStateChanged();
+        }
+    }
+
+    /**
+     * Gets the marks drawn on the dial.
+     *
+     * @return The marks
+     * @see #setDialMarks(int)
+     */
+    @DialMarks
+    public int getDialMarks() {
+        return mState.mDialMarks;
+    }
+
+    /**
+     * Specify the color of the tick marks and numerals on the dial, default is {@link Color#GRAY}.
+     *
+     * @param newColor The new color
+     */
+    public void setDialMarkColor(@ColorInt int newColor) {
+        final StopwatchState state = mState;
+        if (state.mColorDialMark != newColor) {
+            state.mColorDialMark = newColor;
+            onStateChanged();
+        }
+    }
+
     /**
      * Specify the stopwatch font typeface.
      *
      * @param typeface The {@link Typeface} of font
      */
     public void setFontTypeFace(@NonNull Typeface typeface) {
-        mHourTextPaint.setTypeface(typeface);
-        mMinuteTextPaint.setTypeface(typeface);
-        mSecondTextPaint.setTypeface(typeface);
-        mMillisTextPaint.setTypeface(typeface);
+        mState.mTypeface = typeface;
+        onStateChanged();
+    }
+
+    /**
+     * Called when the shared style has been changed through this drawable.
+     */
+    private void onStateChanged() {
+        mState.mGeneration++;
+        applyState();
         invalidateSelf();
     }
+
+    /**
+     * Applies the shared style to the paints.
+     */
+    private void applyState() {
+        final StopwatchState state = mState;
+        mAppliedGeneration = state.mGeneration;
+        if (mHandSprites != null) mHandSprites.invalidate();
+        mMinuteHandPaint.setShader(state.mMinuteHandShader);
+        mSecondHandPaint.setShader(state.mSecondHandShader);
+        setPaintColor(mDialPaint, state.mColorDial);
+        setPaintColor(mHourTextPaint, state.mColorHourText);
+        setPaintColor(mMinuteTextPaint, state.mColorMinuteText);
+        setPaintColor(mSecondTextPaint, state.mColorSecondText);
+        setPaintColor(mMillisTextPaint, state.mColorMillisText);
+        setPaintColor(mDialMarkPaint, state.mColorDialMark);
+        final Typeface typeface = state.mTypeface;
+        if (typeface != null && typeface != mHourTextPaint.getTypeface()) {
+            mHourTextPaint.setTypeface(typeface);
+            mMinuteTextPaint.setTypeface(typeface);
+            mSecondTextPaint.setTypeface(typeface);
+            mMillisTextPaint.setTypeface(typeface);
+            mDialMarkPaint.setTypeface(typeface);
+            // Recalculates the offsets of texts with the metrics of new font on next draw
+            mHourTextSize = mMinuteTextSize = mSecondTextSize = mMillisTextSize = 0;
+        }
+        buildDialMarks();
+    }
+
+    /**
+     * Sets the color of paint, and keeps the alpha set by {@link #setAlpha(int)}.
+     */
+    private void setPaintColor(Paint paint, int color) {
+        paint.setColor(color);
+        if (mAlpha != 0xFF) paint.setAlpha(Color.alpha(color) * mAlpha / 0xFF);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The style of a mutated drawable is no longer shared, and the drawables created from it share
+     * the copy instead.
+     */
+    @NonNull
+    @Override
+    public Drawable mutate() {
+        if (!mMutated && super.mutate() == this) {
+            mState = new StopwatchState(mState);
+            mMutated = true;
+        }
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ConstantState getConstantState() {
+        return mState;
+    }
+
+    /**
+     * The style of stopwatch shared by the drawables, which holds no time or size.
+     */
+    private static final class StopwatchState extends ConstantState {
+
+        /**
+         * Increased on every change, so that the drawables sharing this state update their paints
+         */
+        int mGeneration;
+
+        int mColorMinuteHand;
+        int mColorSecondHand;
+        int mColorDial = Color.BLACK;
+        int mColorMillisText = Color.BLACK;
+        int mColorSecondText = Color.BLACK;
+        int mColorMinuteText = Color.BLACK;
+        int mColorHourText = Color.BLACK;
+        int mColorDialMark = Color.GRAY;
+
+        @DialMarks
+        int mDialMarks;
+
+        /**
+         * The shaders of hands, which are never changed once created, the canvas is rotated instead
+         */
+        Shader mMinuteHandShader;
+        Shader mSecondHandShader;
+
+        Typeface mTypeface;
+
+        StopwatchState() {
+        }
+
+        /**
+         * Copies the given state, the shaders are immutable and shared.
+         */
+        StopwatchState(StopwatchState orig) {
+            mColorMinuteHand = orig.mColorMinuteHand;
+            mColorSecondHand = orig.mColorSecondHand;
+            mColorDial = orig.mColorDial;
+            mColorMillisText = orig.mColorMillisText;
+            mColorSecondText = orig.mColorSecondText;
+            mColorMinuteText = orig.mColorMinuteText;
+            mColorHourText = orig.mColorHourText;
+            mColorDialMark = orig.mColorDialMark;
+            mDialMarks = orig.mDialMarks;
+            mMinuteHandShader = orig.mMinuteHandShader;
+            mSecondHandShader = orig.mSecondHandShader;
+            mTypeface = orig.mTypeface;
+        }
+
+        @NonNull
+        @Override
+        public Drawable newDrawable() {
+            return new StopwatchDrawable(this);
+        }
+
+        @Override
+        public int getChangingConfigurations() {
+            return 0;
+        }
+    }
 }
@@ -1,47 +1,389 @@
 package com.creator.lemonade.clock.graphics;
 
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.support.annotation.ColorInt;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.text.TextPaint;
 
 import com.creator.lemonade.clock.base.AbsClockDrawable;
 
+/**
+ * This Class defines how to draw a timer, which shows the rest time as a progress ring and digits,
+ * and turns into the warning color when the rest time runs below the warning time.
+ * <p>
+ * All the geometry is computed when the bounds change. A frame only changes the sweep angle of
+ * the progress ring, and the digits are rebuilt in place only when the shown second changes.
+ *
+ * @author Felix.Liang
+ */
+@SuppressWarnings("unused")
 public class TimerDrawable extends AbsClockDrawable {
 
+    /**
+     * The start angle of progress ring, which is at 12 o'clock
+     */
+    private static final float START_ANGLE = -90;
+
+    /**
+     * The default rest time below which the timer shows the warning color
+     */
+    private static final long DEFAULT_WARNING_TIME = 10 * NANOS_PER_SECOND;
+
+    /**
+     * The alpha of track under the progress ring
+     */
+    private static final int TRACK_ALPHA = 0x33;
+
+    /**
+     * The max length of digits, which is "HH:MM:SS"
+     */
+    private static final int MAX_DIGITS_LENGTH = 8;
+
+    /**
+     * The total time of timer in nanoseconds
+     */
     private long mTotalTime;
+
+    /**
+     * The rest time of timer in nanoseconds
+     */
     private long mRestTime;
 
+    /**
+     * The rest time below which the timer shows the warning color, in nanoseconds
+     */
+    private long mWarningTime = DEFAULT_WARNING_TIME;
+
+    private Paint mDialPaint;
+    private Paint mTrackPaint;
+    private Paint mProgressPaint;
+    private Paint mTextPaint;
+
+    private int mColorDial;
+    private int mColorProgress;
+    private int mColorWarning;
+    private int mColorText;
+
+    /**
+     * The bounds of progress ring, computed when the bounds of drawable change
+     */
+    private final RectF mRingBounds = new RectF();
+
+    private float mDialRadius;
+    private float mRingRadius;
+    private float mRingStrokeWidth;
+
+    /**
+     * The text size of "MM:SS" and "H:MM:SS", computed when the bounds of drawable change
+     */
+    private float mShortTextSize;
+    private float mLongTextSize;
+    private float mTextOffset;
+
+    /**
+     * The sweep angle of progress ring
+     */
+    private float mSweepAngle;
+
+    private boolean mWarning;
+
+    /**
+     * The digits of rest time, which are rebuilt in place
+     */
+    private final char[] mDigits = new char[MAX_DIGITS_LENGTH];
+    private int mDigitsLength;
+
+    /**
+     * The rest seconds which the digits show, or -1 if the digits need to be rebuilt
+     */
+    private long mShownSeconds = -1;
+
     public TimerDrawable() {
+        initPaint();
+        updateDigits();
+    }
+
+    private void initPaint() {
+        mDialPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mDialPaint.setStyle(Paint.Style.FILL);
+        mTrackPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mTrackPaint.setStyle(Paint.Style.STROKE);
+        mProgressPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mProgressPaint.setStyle(Paint.Style.STROKE);
+        mProgressPaint.setStrokeCap(Paint.Cap.ROUND);
+        mTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        mTextPaint.setTextAlign(Paint.Align.CENTER);
     }
 
+    /**
+     * Specify the total time of timer.
+     *
+     * @param totalTime total time in milliseconds
+     */
     public void setTotalTime(long totalTime) {
-        if (mTotalTime != totalTime) {
-            mTotalTime = totalTime;
-            invalidateSelf();
+        setTotalTimeNanos(totalTime * NANOS_PER_MILLI);
+    }
+
+    /**
+     * Specify the total time of timer.
+     *
+     * @param totalTimeInNanos total time in nanoseconds
+     */
+    public void setTotalTimeNanos(long totalTimeInNanos) {
+        if (mTotalTime != totalTimeInNanos) {
+            mTotalTime = totalTimeInNanos;
+            mRestTime = Math.min(mRestTime, totalTimeInNanos);
+            onTimeChanged();
         }
     }
 
+    /**
+     * Specify the rest time of timer.
+     *
+     * @param restTime rest time in milliseconds
+     */
     public void setRestTime(long restTime) {
-        restTime = Math.min(Math.max(0, restTime), mTotalTime);
-        if (mRestTime != restTime) {
-            mRestTime = restTime;
-            invalidateSelf();
+        setRestTimeNanos(restTime * NANOS_PER_MILLI);
+    }
+
+    /**
+     * Specify the rest time of timer.
+     *
+     * @param restTimeInNanos rest time in nanoseconds
+     */
+    public void setRestTimeNanos(long restTimeInNanos) {
+        restTimeInNanos = Math.min(Math.max(0, restTimeInNanos), mTotalTime);
+        if (mRestTime != restTimeInNanos) {
+            mRestTime = restTimeInNanos;
+            onTimeChanged();
+        }
+    }
+
+    /**
+     * Specify the rest time below which the timer shows the warning color, default is 10 seconds.
+     *
+     * @param warningTime warning time in milliseconds, or 0 to disable the warning
+     */
+    public void setWarningTime(long warningTime) {
+        final long warningTimeInNanos = warningTime * NANOS_PER_MILLI;
+        if (mWarningTime != warningTimeInNanos) {
+            mWarningTime = warningTimeInNanos;
+            onTimeChanged();
+        }
+    }
+
+    /**
+     * Called when the time of timer is changed.
+     */
+    private void onTimeChanged() {
+        mSweepAngle = mTotalTime > 0 ? 360f * mRestTime / mTotalTime : 0;
+        // The rest time is shown rounded up, so that the timer shows 00:00 only at timeout
+        final long seconds = (mRestTime + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND;
+        if (mShownSeconds != seconds) {
+            mShownSeconds = seconds;
+            updateDigits();
+        }
+        updateWarning(mTotalTime > 0 && mRestTime > 0 && mRestTime <= mWarningTime);
+        invalidateSelf();
+    }
+
+    /**
+     * Rebuilds the digits of rest time in place, as "MM:SS" or "H:MM:SS".
+     */
+    private void updateDigits() {
+        final long seconds = Math.max(0, mShownSeconds);
+        final long hour = Math.min(99, seconds / 3600);
+        final long minute = seconds / 60 % 60;
+        final long second = seconds % 60;
+        final char[] digits = mDigits;
+        int i = 0;
+        if (hour > 0) {
+            if (hour >= 10) digits[i++] = (char) ('0' + hour / 10);
+            digits[i++] = (char) ('0' + hour % 10);
+            digits[i++] = ':';
         }
+        digits[i++] = (char) ('0' + minute / 10);
+        digits[i++] = (char) ('0' + minute % 10);
+        digits[i++] = ':';
+        digits[i++] = (char) ('0' + second / 10);
+        digits[i++] = (char) ('0' + second % 10);
+        final boolean longLayout = mDigitsLength > 5;
+        mDigitsLength = i;
+        if (longLayout != i > 5) updateTextSize();
     }
 
+    private void updateWarning(boolean warning) {
+        if (mWarning != warning) {
+            mWarning = warning;
+            mProgressPaint.setColor(warning ? mColorWarning : mColorProgress);
+            mTextPaint.setColor(warning ? mColorWarning : mColorText);
+        }
+    }
+
+    private void updateTextSize() {
+        mTextPaint.setTextSize(mDigitsLength > 5 ? mLongTextSize : mShortTextSize);
+        mTextOffset = calculateTextVerticalOffset(mTextPaint);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        super.onBoundsChange(bounds);
+        final int shortAxis = getShortAxisLength();
+        final float halfShortAxis = shortAxis * 0.5f;
+        mRingStrokeWidth = halfShortAxis * 0.08f;
+        mTrackPaint.setStrokeWidth(mRingStrokeWidth);
+        mProgressPaint.setStrokeWidth(mRingStrokeWidth);
+        mRingRadius = halfShortAxis - mRingStrokeWidth / 2;
+        mRingBounds.set(-mRingRadius, -mRingRadius, mRingRadius, mRingRadius);
+        mDialRadius = halfShortAxis * 0.95f - mRingStrokeWidth;
+        // The digits take 90 percent of the width of dial
+        final float textSpace = mDialRadius * 2 * 0.9f;
+        mShortTextSize = textSpace / 5f * 1.6f;
+        mLongTextSize = textSpace / 8f * 1.6f;
+        updateTextSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public void draw(@NonNull Canvas canvas) {
+        canvas.save();
+        canvas.translate(getWidth() / 2, getHeight() / 2);
+        drawDial(canvas);
+        drawRing(canvas);
+        drawTextTime(canvas);
+        canvas.restore();
+    }
+
+    /**
+     * Draw the dial of timer.
+     *
+     * @param canvas The canvas to draw into
+     */
+    private void drawDial(Canvas canvas) {
+        canvas.drawCircle(0, 0, mDialRadius, mDialPaint);
+    }
+
+    /**
+     * Draw the track and the progress ring of rest time.
+     *
+     * @param canvas The canvas to draw into
+     */
+    private void drawRing(Canvas canvas) {
+        canvas.drawCircle(0, 0, mRingRadius, mTrackPaint);
+        if (mSweepAngle > 0) {
+            canvas.drawArc(mRingBounds, START_ANGLE, mSweepAngle, false, mProgressPaint);
+        }
+    }
 
+    /**
+     * Draw the digits of rest time.
+     *
+     * @param canvas The canvas to draw into
+     */
+    private void drawTextTime(Canvas canvas) {
+        canvas.drawText(mDigits, 0, mDigitsLength, 0, mTextOffset, mTextPaint);
     }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public void setAlpha(int alpha) {
-
+        mDialPaint.setAlpha(alpha);
+        mTrackPaint.setAlpha(alpha * TRACK_ALPHA / 0xFF);
+        mProgressPaint.setAlpha(alpha);
+        mTextPaint.setAlpha(alpha);
+        invalidateSelf();
     }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mDialPaint.setColorFilter(colorFilter);
+        mTrackPaint.setColorFilter(colorFilter);
+        mProgressPaint.setColorFilter(colorFilter);
+        mTextPaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    /**
+     * Specify the background color of dial.
+     *
+     * @param newColor The new color
+     */
+    public void setDialColor(@ColorInt int newColor) {
+        if (mColorDial != newColor) {
+            mDialPaint.setColor(newColor);
+            mColorDial = newColor;
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * Specify the color of progress ring, the track under it is drawn in the translucent color.
+     *
+     * @param newColor The new color
+     */
+    public void setProgressColor(@ColorInt int newColor) {
+        if (mColorProgress != newColor) {
+            mColorProgress = newColor;
+            mTrackPaint.setColor(Color.argb(TRACK_ALPHA, Color.red(newColor), Color.green(newColor), Color.blue(newColor)));
+            if (!mWarning) mProgressPaint.setColor(newColor);
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * Specify the color of progress ring and digits in the warning phase.
+     *
+     * @param newColor The new color
+     */
+    public void setWarningColor(@ColorInt int newColor) {
+        if (mColorWarning != newColor) {
+            mColorWarning = newColor;
+            if (mWarning) {
+                mProgressPaint.setColor(newColor);
+                mTextPaint.setColor(newColor);
+            }
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * Specify the color of digits.
+     *
+     * @param newColor The new text color
+     */
+    public void setTextColor(@ColorInt int newColor) {
+        if (mColorText != newColor) {
+            mColorText = newColor;
+            if (!mWarning) mTextPaint.setColor(newColor);
+            invalidateSelf();
+        }
+    }
 
+    /**
+     * Specify the timer font typeface.
+     *
+     * @param typeface The {@link Typeface} of font
+     */
+    public void setFontTypeFace(@NonNull Typeface typeface) {
+        mTextPaint.setTypeface(typeface);
+        mTextOffset = calculateTextVerticalOffset(mTextPaint);
+        invalidateSelf();
     }
 }
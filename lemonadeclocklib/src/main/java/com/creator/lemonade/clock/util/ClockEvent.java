@@ -0,0 +1,155 @@
+package com.creator.lemonade.clock.util;
+
+/**
+ * An immutable event emitted by {@link ClockEventPublisher}, which is either a time update or a
+ * transition of state, such as start, pause, lap, segment change or timeout.
+ *
+ * @author Felix.Liang
+ */
+@SuppressWarnings("unused")
+public final class ClockEvent {
+
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    /**
+     * An update of time, which may be conflated with the following ones
+     */
+    public static final int TYPE_TIME = 0;
+
+    /**
+     * A change of state, see {@link #isStarted()} and {@link #isPaused()}
+     */
+    public static final int TYPE_STATE = 1;
+
+    /**
+     * A lap, the time is the lap time
+     */
+    public static final int TYPE_LAP = 2;
+
+    /**
+     * A change of segment, see {@link #getSegment()} and {@link #getTag()}
+     */
+    public static final int TYPE_SEGMENT = 3;
+
+    /**
+     * A timeout of timer
+     */
+    public static final int TYPE_TIMEOUT = 4;
+
+    private final int mType;
+    private final long mTime;
+    private final boolean mStarted;
+    private final boolean mPaused;
+    private final int mSegment;
+    private final int mTag;
+
+    private ClockEvent(int type, long time, boolean started, boolean paused, int segment, int tag) {
+        mType = type;
+        mTime = time;
+        mStarted = started;
+        mPaused = paused;
+        mSegment = segment;
+        mTag = tag;
+    }
+
+    static ClockEvent time(long timeInNanos) {
+        return new ClockEvent(TYPE_TIME, timeInNanos, false, false, -1, 0);
+    }
+
+    static ClockEvent state(boolean started, boolean paused) {
+        return new ClockEvent(TYPE_STATE, 0, started, paused, -1, 0);
+    }
+
+    static ClockEvent lap(long lapTimeInNanos) {
+        return new ClockEvent(TYPE_LAP, lapTimeInNanos, false, false, -1, 0);
+    }
+
+    static ClockEvent segment(int segment, int tag) {
+        return new ClockEvent(TYPE_SEGMENT, 0, false, false, segment, tag);
+    }
+
+    static ClockEvent timeout() {
+        return new ClockEvent(TYPE_TIMEOUT, 0, false, false, -1, 0);
+    }
+
+    /**
+     * Gets the type of this event.
+     *
+     * @return one of {@code TYPE_*}
+     */
+    public int getType() {
+        return mType;
+    }
+
+    /**
+     * Gets the time of {@link #TYPE_TIME} and {@link #TYPE_LAP}, which is the time of stopwatch,
+     * the rest time of timer, or the wall time since epoch of clock.
+     *
+     * @return time in nanoseconds
+     */
+    public long getTimeNanos() {
+        return mTime;
+    }
+
+    /**
+     * Gets the time of {@link #TYPE_TIME} and {@link #TYPE_LAP}.
+     *
+     * @return time in milliseconds
+     * @see #getTimeNanos()
+     */
+    public long getTime() {
+        return mTime / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Indicates whether started, for {@link #TYPE_STATE}.
+     *
+     * @return true if started, false otherwise
+     */
+    public boolean isStarted() {
+        return mStarted;
+    }
+
+    /**
+     * Indicates whether paused, for {@link #TYPE_STATE}.
+     *
+     * @return true if paused, false otherwise
+     */
+    public boolean isPaused() {
+        return mPaused;
+    }
+
+    /**
+     * Gets the index of segment, for {@link #TYPE_SEGMENT}.
+     *
+     * @return index of segment
+     */
+    public int getSegment() {
+        return mSegment;
+    }
+
+    /**
+     * Gets the tag of segment, for {@link #TYPE_SEGMENT}.
+     *
+     * @return tag of segment
+     */
+    public int getTag() {
+        return mTag;
+    }
+
+    @Override
+    public String toString() {
+        switch (mType) {
+            case TYPE_TIME:
+                return "ClockEvent[time=" + mTime + ']';
+            case TYPE_STATE:
+                return "ClockEvent[started=" + mStarted + ", paused=" + mPaused + ']';
+            case TYPE_LAP:
+                return "ClockEvent[lap=" + mTime + ']';
+            case TYPE_SEGMENT:
+                return "ClockEvent[segment=" + mSegment + ", tag=" + mTag + ']';
+            default:
+                return "ClockEvent[timeout]";
+        }
+    }
+}
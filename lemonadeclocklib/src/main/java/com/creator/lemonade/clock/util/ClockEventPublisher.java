@@ -0,0 +1,434 @@
+package com.creator.lemonade.clock.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.Calendar;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A {@link ClockFlow.Publisher} of the events of a clock, which is fed by a model or a widget.
+ * <p>
+ * Each subscriber is served on its own executor and within its own demand. The time updates are
+ * conflated, so that a slow subscriber receives the latest time when it requests the next item
+ * rather than falling behind, while the transitions of state are queued and never dropped. A time
+ * update which is pending when a transition arrives is delivered before it, so that the order of
+ * events is kept. A new subscriber receives the last state and the latest time first.
+ *
+ * @author Felix.Liang
+ */
+@SuppressWarnings("unused")
+public class ClockEventPublisher implements ClockFlow.Publisher<ClockEvent> {
+
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    private static Executor sMainExecutor;
+
+    private final Executor mDefaultExecutor;
+
+    private final ListenerRegistry<EventSubscription> mSubscriptions = new ListenerRegistry<>();
+
+    /**
+     * The last transition of state, replayed to new subscribers, guarded by this
+     */
+    private ClockEvent mLastState;
+
+    /**
+     * The latest time, replayed to new subscribers, guarded by this
+     */
+    private long mLatestTime;
+    private boolean mHasTime;
+
+    /**
+     * Creates a publisher which serves subscribers on the main thread by default.
+     */
+    public ClockEventPublisher() {
+        this(getMainExecutor());
+    }
+
+    /**
+     * @param defaultExecutor the executor to serve the subscribers which don't choose one
+     */
+    public ClockEventPublisher(@NonNull Executor defaultExecutor) {
+        mDefaultExecutor = defaultExecutor;
+    }
+
+    private static synchronized Executor getMainExecutor() {
+        if (sMainExecutor == null) {
+            final Handler handler = new Handler(Looper.getMainLooper());
+            sMainExecutor = new Executor() {
+                @Override
+                public void execute(@NonNull Runnable command) {
+                    if (!handler.post(command)) throw new RejectedExecutionException();
+                }
+            };
+        }
+        return sMainExecutor;
+    }
+
+    /**
+     * Creates a publisher of the events of the given model, which stays registered to the model.
+     *
+     * @param model the model
+     * @return The {@link ClockEventPublisher}
+     */
+    @NonNull
+    public static ClockEventPublisher from(@NonNull StopwatchModel model) {
+        final ClockEventPublisher publisher = new ClockEventPublisher();
+        model.addStopwatchListener(new StopwatchModel.StopwatchNanosWatcher() {
+            @Override
+            public void onTimeChanged(long timeInMillis) {
+                // Not called, as the time is received in nanoseconds
+            }
+
+            @Override
+            public void onLap(long lapTimeInMillis) {
+                // Not called, as the time is received in nanoseconds
+            }
+
+            @Override
+            public void onTimeChangedNanos(long timeInNanos) {
+                publisher.publishTime(timeInNanos);
+            }
+
+            @Override
+            public void onStateChanged(boolean started, boolean paused) {
+                publisher.publishState(started, paused);
+            }
+
+            @Override
+            public void onLapNanos(long lapTimeInNanos) {
+                publisher.publishLap(lapTimeInNanos);
+            }
+        });
+        return publisher;
+    }
+
+    /**
+     * Creates a publisher of the events of the given model, which stays registered to the model.
+     * The time of events is the rest time of timer.
+     *
+     * @param model the model
+     * @return The {@link ClockEventPublisher}
+     */
+    @NonNull
+    public static ClockEventPublisher from(@NonNull TimerModel model) {
+        final ClockEventPublisher publisher = new ClockEventPublisher();
+        model.addTimerListener(new TimerModel.TimerNanosWatcher() {
+            @Override
+            public void onTimeChanged(long restTime, long totalTime) {
+                // Not called, as the time is received in nanoseconds
+            }
+
+            @Override
+            public void onTimeChangedNanos(long restTimeInNanos, long totalTimeInNanos) {
+                publisher.publishTime(restTimeInNanos);
+            }
+
+            @Override
+            public void onStateChanged(boolean started, boolean paused) {
+                publisher.publishState(started, paused);
+            }
+
+            @Override
+            public void onTimeout() {
+                publisher.publishTimeout();
+            }
+        });
+        model.addSegmentListener(new TimerModel.SegmentWatcher() {
+            @Override
+            public void onSegmentChanged(int segment, int tag) {
+                publisher.publishSegment(segment, tag);
+            }
+        });
+        return publisher;
+    }
+
+    /**
+     * Creates a publisher of the time of the given ticker, which stays registered to the ticker.
+     * The time of events is the wall time since epoch.
+     *
+     * @param ticker the ticker
+     * @return The {@link ClockEventPublisher}
+     */
+    @NonNull
+    public static ClockEventPublisher from(@NonNull Ticker ticker) {
+        final ClockEventPublisher publisher = new ClockEventPublisher();
+        ticker.addOnTimeUpdateListener(new Ticker.OnTimeUpdateListener() {
+            @Override
+            public void onTimeChanged(Calendar time) {
+                publisher.publishTime(time.getTimeInMillis() * NANOS_PER_MILLI);
+            }
+        });
+        return publisher;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The subscriber is served on the default executor of this publisher.
+     */
+    @Override
+    public void subscribe(@NonNull ClockFlow.Subscriber<? super ClockEvent> subscriber) {
+        subscribe(subscriber, mDefaultExecutor);
+    }
+
+    /**
+     * Adds the given subscriber, which is served on the given executor.
+     *
+     * @param subscriber the subscriber
+     * @param executor   the executor to call the subscriber on
+     */
+    public void subscribe(@NonNull ClockFlow.Subscriber<? super ClockEvent> subscriber, @NonNull Executor executor) {
+        final EventSubscription subscription = new EventSubscription(subscriber, executor);
+        synchronized (this) {
+            if (mLastState != null) subscription.offer(mLastState);
+            if (mHasTime) subscription.offerTime(mLatestTime);
+            mSubscriptions.add(subscription);
+        }
+        subscription.schedule();
+    }
+
+    /**
+     * Indicates whether any subscriber is subscribed.
+     *
+     * @return true if subscribed, false otherwise
+     */
+    public boolean hasSubscribers() {
+        return !mSubscriptions.isEmpty();
+    }
+
+    /**
+     * Publishes a time update, which may be conflated.
+     *
+     * @param timeInNanos time in nanoseconds
+     */
+    public void publishTime(long timeInNanos) {
+        final Object[] subscriptions;
+        synchronized (this) {
+            mLatestTime = timeInNanos;
+            mHasTime = true;
+            subscriptions = mSubscriptions.getListeners();
+        }
+        for (int i = 0; i < subscriptions.length; i++) {
+            ((EventSubscription) subscriptions[i]).offerTime(timeInNanos);
+        }
+    }
+
+    /**
+     * Publishes a change of state.
+     *
+     * @param started true if started, false otherwise
+     * @param paused  true if paused, false otherwise
+     */
+    public void publishState(boolean started, boolean paused) {
+        final ClockEvent event = ClockEvent.state(started, paused);
+        synchronized (this) {
+            mLastState = event;
+        }
+        publish(event);
+    }
+
+    /**
+     * Publishes a lap.
+     *
+     * @param lapTimeInNanos lap time in nanoseconds
+     */
+    public void publishLap(long lapTimeInNanos) {
+        publish(ClockEvent.lap(lapTimeInNanos));
+    }
+
+    /**
+     * Publishes a change of segment.
+     *
+     * @param segment index of segment
+     * @param tag     tag of segment
+     */
+    public void publishSegment(int segment, int tag) {
+        publish(ClockEvent.segment(segment, tag));
+    }
+
+    /**
+     * Publishes a timeout.
+     */
+    public void publishTimeout() {
+        publish(ClockEvent.timeout());
+    }
+
+    private void publish(ClockEvent event) {
+        final Object[] subscriptions = mSubscriptions.getListeners();
+        for (int i = 0; i < subscriptions.length; i++) {
+            ((EventSubscription) subscriptions[i]).offer(event);
+        }
+    }
+
+    /**
+     * Completes all the subscriptions, {@link ClockFlow.Subscriber#onComplete()} is called after
+     * their pending events.
+     */
+    public void complete() {
+        final Object[] subscriptions = mSubscriptions.getListeners();
+        for (int i = 0; i < subscriptions.length; i++) {
+            ((EventSubscription) subscriptions[i]).complete();
+        }
+    }
+
+    /**
+     * The subscription of a subscriber, which holds its pending events and demand. The subscriber
+     * is called by a drain task on its executor, and at most one drain task is scheduled at a time.
+     */
+    private final class EventSubscription implements ClockFlow.Subscription, Runnable {
+
+        private final ClockFlow.Subscriber<? super ClockEvent> mSubscriber;
+        private final Executor mExecutor;
+
+        /*
+         * The following fields are guarded by this
+         */
+        private final ArrayDeque<ClockEvent> mEvents = new ArrayDeque<>();
+        private long mTime;
+        private boolean mHasTime;
+        private long mDemand;
+        private boolean mScheduled;
+        private boolean mCancelled;
+        private boolean mCompleted;
+        private Throwable mError;
+
+        /**
+         * Whether {@link ClockFlow.Subscriber#onSubscribe(ClockFlow.Subscription)} has been called,
+         * only accessed by the drain task
+         */
+        private boolean mSubscribed;
+
+        EventSubscription(ClockFlow.Subscriber<? super ClockEvent> subscriber, Executor executor) {
+            mSubscriber = subscriber;
+            mExecutor = executor;
+        }
+
+        void offerTime(long timeInNanos) {
+            synchronized (this) {
+                if (mCancelled || mCompleted) return;
+                mTime = timeInNanos;
+                mHasTime = true;
+                if (mDemand == 0) return;
+            }
+            schedule();
+        }
+
+        void offer(ClockEvent event) {
+            synchronized (this) {
+                if (mCancelled || mCompleted) return;
+                flushTime();
+                mEvents.add(event);
+                if (mDemand == 0) return;
+            }
+            schedule();
+        }
+
+        void complete() {
+            synchronized (this) {
+                if (mCancelled) return;
+                flushTime();
+                mCompleted = true;
+            }
+            schedule();
+        }
+
+        /**
+         * Moves the pending time into the queue, must be called with the lock held.
+         */
+        private void flushTime() {
+            if (mHasTime) {
+                mEvents.add(ClockEvent.time(mTime));
+                mHasTime = false;
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (mCancelled) return;
+                if (n <= 0) {
+                    mError = new IllegalArgumentException("Non-positive request: " + n);
+                } else {
+                    mDemand = mDemand + n < 0 ? Long.MAX_VALUE : mDemand + n;
+                }
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                mCancelled = true;
+                mEvents.clear();
+                mHasTime = false;
+            }
+            mSubscriptions.remove(this);
+        }
+
+        void schedule() {
+            synchronized (this) {
+                if (mScheduled || mCancelled) return;
+                mScheduled = true;
+            }
+            try {
+                mExecutor.execute(this);
+            } catch (RejectedExecutionException e) {
+                cancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            if (!mSubscribed) {
+                mSubscribed = true;
+                mSubscriber.onSubscribe(this);
+            }
+            while (true) {
+                ClockEvent next = null;
+                Throwable error = null;
+                boolean completed = false;
+                synchronized (this) {
+                    if (mCancelled) {
+                        mScheduled = false;
+                        return;
+                    }
+                    if (mError != null) {
+                        error = mError;
+                        mCancelled = true;
+                    } else if (mDemand > 0 && !mEvents.isEmpty()) {
+                        next = mEvents.poll();
+                    } else if (mDemand > 0 && mHasTime) {
+                        next = ClockEvent.time(mTime);
+                        mHasTime = false;
+                    } else if (mCompleted && mEvents.isEmpty()) {
+                        completed = true;
+                        mCancelled = true;
+                    } else {
+                        mScheduled = false;
+                        return;
+                    }
+                    if (next != null && mDemand != Long.MAX_VALUE) mDemand--;
+                }
+                if (next != null) {
+                    mSubscriber.onNext(next);
+                } else {
+                    mSubscriptions.remove(this);
+                    synchronized (this) {
+                        mScheduled = false;
+                    }
+                    if (error != null) {
+                        mSubscriber.onError(error);
+                    } else if (completed) {
+                        mSubscriber.onComplete();
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
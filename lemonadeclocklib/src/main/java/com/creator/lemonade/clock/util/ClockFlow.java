@@ -0,0 +1,86 @@
+package com.creator.lemonade.clock.util;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Interfaces of the reactive streams of clocks, which mirror {@code java.util.concurrent.Flow}
+ * so that they can be used on the devices without it, and be adapted to any reactive library.
+ * <p>
+ * A {@link Subscriber} receives nothing until it requests items through its {@link Subscription},
+ * and the calls to a subscriber are never concurrent.
+ *
+ * @author Felix.Liang
+ * @see ClockEventPublisher
+ */
+public final class ClockFlow {
+
+    private ClockFlow() {
+    }
+
+    /**
+     * A producer of items received by subscribers.
+     *
+     * @param <T> the type of items
+     */
+    public interface Publisher<T> {
+
+        /**
+         * Adds the given subscriber, {@link Subscriber#onSubscribe(Subscription)} is called first.
+         *
+         * @param subscriber the subscriber
+         */
+        void subscribe(@NonNull Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of items.
+     *
+     * @param <T> the type of items
+     */
+    public interface Subscriber<T> {
+
+        /**
+         * Called before any other method for a new subscription.
+         *
+         * @param subscription the new subscription
+         */
+        void onSubscribe(@NonNull Subscription subscription);
+
+        /**
+         * Called with the next item, only as many times as requested.
+         *
+         * @param item the item
+         */
+        void onNext(@NonNull T item);
+
+        /**
+         * Called when the subscription fails, no other method is called after it.
+         *
+         * @param throwable the error
+         */
+        void onError(@NonNull Throwable throwable);
+
+        /**
+         * Called when no more item will be delivered, no other method is called after it.
+         */
+        void onComplete();
+    }
+
+    /**
+     * A link between a publisher and a subscriber.
+     */
+    public interface Subscription {
+
+        /**
+         * Adds the given count of items to the demand of subscriber.
+         *
+         * @param n the count, which must be positive
+         */
+        void request(long n);
+
+        /**
+         * Stops receiving items, which may be called from any thread.
+         */
+        void cancel();
+    }
+}
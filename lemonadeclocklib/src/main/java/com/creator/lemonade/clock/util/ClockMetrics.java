@@ -0,0 +1,315 @@
+package com.creator.lemonade.clock.util;
+
+import android.support.annotation.NonNull;
+
+/**
+ * This class holds the tick and draw metrics of a clock widget. All the values are recorded into
+ * fixed-bucket histograms, so that recording costs only a few arithmetic operations and never
+ * allocates. The metrics are pulled by calling {@link #sample(Snapshot)}, which copies the current
+ * values into a reusable {@link Snapshot}.
+ * <p>
+ * This class isn't thread-safe, it's confined to the thread that records into it, which is the
+ * UI thread for {@link com.creator.lemonade.clock.base.AbsClock} and the render thread for
+ * {@link com.creator.lemonade.clock.base.AbsSurfaceClock}. Sampling on another thread may see a
+ * torn snapshot, so the surface clocks should be sampled through
+ * {@link com.creator.lemonade.clock.base.AbsSurfaceClock#sampleMetrics}.
+ *
+ * @author Felix.Liang
+ */
+@SuppressWarnings("unused")
+public class ClockMetrics {
+
+    /**
+     * The lateness of tick delivery against its scheduled time, in microseconds
+     */
+    public static final int SCHEDULING_LATENESS = 0;
+
+    /**
+     * The time spent in dispatching the time update to listeners, in microseconds
+     */
+    public static final int LISTENER_DISPATCH = 1;
+
+    /**
+     * The time spent in drawing the clock, in microseconds
+     */
+    public static final int DRAW_DURATION = 2;
+
+    /**
+     * The count of redraws in one second
+     */
+    public static final int REDRAWS_PER_SECOND = 3;
+
+    /**
+     * The count of histograms held by this class
+     */
+    public static final int HISTOGRAM_COUNT = 4;
+
+    private static final long NANOS_PER_MICRO = 1000;
+    private static final long NANOS_PER_SECOND = 1000000000;
+
+    private final Histogram[] mHistograms = new Histogram[HISTOGRAM_COUNT];
+
+    /**
+     * The start of the current one-second window of redraws
+     */
+    private long mRedrawWindowStart;
+
+    /**
+     * The count of redraws in the current one-second window
+     */
+    private int mRedrawsInWindow;
+
+    /**
+     * The total count of tick slots skipped because the tick was delivered too late
+     */
+    private long mSkippedSlots;
+
+    public ClockMetrics() {
+        for (int i = 0; i < HISTOGRAM_COUNT; i++) {
+            mHistograms[i] = new Histogram();
+        }
+    }
+
+    /**
+     * Records the lateness of a tick.
+     *
+     * @param scheduledNanos the time that the tick was scheduled at, in {@link System#nanoTime()} base
+     * @param actualNanos    the time that the tick was delivered at, in {@link System#nanoTime()} base
+     */
+    public void recordLateness(long scheduledNanos, long actualNanos) {
+        mHistograms[SCHEDULING_LATENESS].record((actualNanos - scheduledNanos) / NANOS_PER_MICRO);
+    }
+
+    /**
+     * Records the tick slots which are skipped because the tick was delivered too late.
+     *
+     * @param count the count of skipped slots
+     */
+    public void recordSkippedSlots(long count) {
+        mSkippedSlots += count;
+    }
+
+    /**
+     * Records the time spent in dispatching a time update to listeners.
+     *
+     * @param startNanos the start time of dispatching, in {@link System#nanoTime()} base
+     * @param endNanos   the end time of dispatching, in {@link System#nanoTime()} base
+     */
+    public void recordDispatch(long startNanos, long endNanos) {
+        mHistograms[LISTENER_DISPATCH].record((endNanos - startNanos) / NANOS_PER_MICRO);
+    }
+
+    /**
+     * Records the time spent in drawing, also counts the redraw.
+     *
+     * @param startNanos the start time of drawing, in {@link System#nanoTime()} base
+     * @param endNanos   the end time of drawing, in {@link System#nanoTime()} base
+     */
+    public void recordDraw(long startNanos, long endNanos) {
+        mHistograms[DRAW_DURATION].record((endNanos - startNanos) / NANOS_PER_MICRO);
+        if (endNanos - mRedrawWindowStart >= NANOS_PER_SECOND) {
+            if (mRedrawsInWindow > 0) {
+                mHistograms[REDRAWS_PER_SECOND].record(mRedrawsInWindow);
+            }
+            mRedrawWindowStart = endNanos;
+            mRedrawsInWindow = 0;
+        }
+        mRedrawsInWindow++;
+    }
+
+    /**
+     * Copies current metrics into the given snapshot, must be called on the thread that records.
+     *
+     * @param snapshot the snapshot to copy into
+     * @return the given snapshot
+     */
+    @NonNull
+    public Snapshot sample(@NonNull Snapshot snapshot) {
+        for (int i = 0; i < HISTOGRAM_COUNT; i++) {
+            snapshot.mHistograms[i].set(mHistograms[i]);
+        }
+        snapshot.mSkippedSlots = mSkippedSlots;
+        return snapshot;
+    }
+
+    /**
+     * Clears all the recorded metrics, must be called on the thread that records.
+     */
+    public void reset() {
+        for (Histogram histogram : mHistograms) {
+            histogram.clear();
+        }
+        mRedrawWindowStart = 0;
+        mRedrawsInWindow = 0;
+        mSkippedSlots = 0;
+    }
+
+    /**
+     * A copy of {@link ClockMetrics} at a certain time, which can be reused between samples.
+     */
+    public static class Snapshot {
+
+        private final Histogram[] mHistograms = new Histogram[HISTOGRAM_COUNT];
+        private long mSkippedSlots;
+
+        public Snapshot() {
+            for (int i = 0; i < HISTOGRAM_COUNT; i++) {
+                mHistograms[i] = new Histogram();
+            }
+        }
+
+        /**
+         * Gets the histogram of the given metric.
+         *
+         * @param metric one of {@link #SCHEDULING_LATENESS}, {@link #LISTENER_DISPATCH},
+         *               {@link #DRAW_DURATION} and {@link #REDRAWS_PER_SECOND}
+         * @return The {@link Histogram}
+         */
+        @NonNull
+        public Histogram getHistogram(int metric) {
+            return mHistograms[metric];
+        }
+
+        /**
+         * Gets the total count of tick slots skipped because the tick was delivered too late.
+         *
+         * @return count of skipped slots
+         */
+        public long getSkippedSlots() {
+            return mSkippedSlots;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot[" +
+                    "lateness=" + mHistograms[SCHEDULING_LATENESS] +
+                    ", dispatch=" + mHistograms[LISTENER_DISPATCH] +
+                    ", draw=" + mHistograms[DRAW_DURATION] +
+                    ", redrawsPerSecond=" + mHistograms[REDRAWS_PER_SECOND] +
+                    ", skippedSlots=" + mSkippedSlots +
+                    ']';
+        }
+    }
+
+    /**
+     * A histogram with fixed power-of-two buckets. The bucket {@code i} holds values in
+     * [2^(i-1), 2^i), and the bucket 0 holds values that are less than 1.
+     */
+    public static class Histogram {
+
+        /**
+         * The count of buckets, the last bucket holds all the values that are greater than 2^(count-2)
+         */
+        public static final int BUCKET_COUNT = 24;
+
+        private final long[] mBuckets = new long[BUCKET_COUNT];
+        private long mCount;
+        private long mSum;
+        private long mMax;
+
+        private Histogram() {
+        }
+
+        private void record(long value) {
+            if (value < 0) value = 0;
+            final int index = Math.min(64 - Long.numberOfLeadingZeros(value), BUCKET_COUNT - 1);
+            mBuckets[index]++;
+            mCount++;
+            mSum += value;
+            if (value > mMax) mMax = value;
+        }
+
+        private void set(Histogram other) {
+            System.arraycopy(other.mBuckets, 0, mBuckets, 0, BUCKET_COUNT);
+            mCount = other.mCount;
+            mSum = other.mSum;
+            mMax = other.mMax;
+        }
+
+        private void clear() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                mBuckets[i] = 0;
+            }
+            mCount = 0;
+            mSum = 0;
+            mMax = 0;
+        }
+
+        /**
+         * Gets the count of recorded values.
+         *
+         * @return the count of values
+         */
+        public long getCount() {
+            return mCount;
+        }
+
+        /**
+         * Gets the count of values in the given bucket.
+         *
+         * @param bucket index of bucket
+         * @return the count of values
+         */
+        public long getBucketCount(int bucket) {
+            return mBuckets[bucket];
+        }
+
+        /**
+         * Gets the exclusive upper bound of the given bucket.
+         *
+         * @param bucket index of bucket
+         * @return the upper bound, or {@link Long#MAX_VALUE} for the last bucket
+         */
+        public static long getBucketUpperBound(int bucket) {
+            return bucket < BUCKET_COUNT - 1 ? 1L << bucket : Long.MAX_VALUE;
+        }
+
+        /**
+         * Gets the mean of recorded values.
+         *
+         * @return the mean, or 0 if nothing is recorded
+         */
+        public long getMean() {
+            return mCount > 0 ? mSum / mCount : 0;
+        }
+
+        /**
+         * Gets the max of recorded values.
+         *
+         * @return the max value
+         */
+        public long getMax() {
+            return mMax;
+        }
+
+        /**
+         * Estimates the value at the given percentile by the upper bound of its bucket.
+         *
+         * @param percentile percentile in [0, 100]
+         * @return the estimated value, which never exceeds {@link #getMax()}
+         */
+        public long getPercentile(int percentile) {
+            if (mCount == 0) return 0;
+            final long rank = (mCount * percentile + 99) / 100;
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(getBucketUpperBound(i), mMax);
+                }
+            }
+            return mMax;
+        }
+
+        @Override
+        public String toString() {
+            return "Histogram[" +
+                    "count=" + mCount +
+                    ", mean=" + getMean() +
+                    ", p50=" + getPercentile(50) +
+                    ", p99=" + getPercentile(99) +
+                    ", max=" + mMax +
+                    ']';
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.creator.lemonade.clock.util;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * A codec which packs the states of any number of {@link StopwatchModel}s or {@link TimerModel}s
+ * into one {@code long[]}, and restores them in one pass. The array can be put into a Bundle
+ * directly, or converted to bytes by {@link #toBytes(long[])} for files and IPC, which avoids
+ * parcelling a state object per model.
+ * <p>
+ * The layout is versioned. The header holds the magic and version, the type and count of records,
+ * and the elapsed real time, wall time and boot count of snapshot. Each record holds the time of
+ * model at the snapshot rather than raw anchors, so that the states are re-anchored when they are
+ * restored, by the elapsed real time within the same boot and by the wall time after a reboot. The
+ * boot is told by the boot count as {@link ClockStateStore} does, which is unknown before Android N.
+ * <ul>
+ * <li>Stopwatch record: flags, time</li>
+ * <li>Timer record: flags and segment count, rest time, total time, the rest time of last fired
+ * threshold, then a duration and a tag per segment of program</li>
+ * </ul>
+ * All the times are in nanoseconds, except the durations of segments in milliseconds.
+ *
+ * @author Felix.Liang
+ */
+@SuppressWarnings("unused")
+public final class ClockStateCodec {
+
+    /**
+     * "LEMO" in the high 32 bits, and the version in the low 32 bits
+     */
+    private static final long MAGIC = 0x4C454D4FL << 32;
+    private static final int VERSION = 3;
+
+    private static final int TYPE_STOPWATCH = 1;
+    private static final int TYPE_TIMER = 2;
+
+    private static final int HEADER_SIZE = 5;
+    private static final int STOPWATCH_RECORD_SIZE = 2;
+    private static final int TIMER_RECORD_SIZE = 4;
+
+    private static final long FLAG_STARTED = 1;
+    private static final long FLAG_PAUSED = 1 << 1;
+
+    /**
+     * The shift of segment count in the flags of timer record
+     */
+    private static final int SEGMENT_COUNT_SHIFT = 32;
+
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    private ClockStateCodec() {
+    }
+
+    /**
+     * Packs the states of the given stopwatches.
+     *
+     * @param context the context to query the boot count
+     * @param models  the models
+     * @param count   the count of models to pack from the start
+     * @return the packed states
+     */
+    @NonNull
+    public static long[] encode(@NonNull Context context, @NonNull StopwatchModel[] models, int count) {
+        return encode(models, count, SystemClock.elapsedRealtimeNanos(), System.currentTimeMillis(),
+                ClockStateStore.getBootCount(context));
+    }
+
+    /**
+     * Packs the states of the given stopwatches at the given time of snapshot.
+     *
+     * @param now       the elapsed real time in nanoseconds
+     * @param wallTime  the wall time in milliseconds
+     * @param bootCount the boot count, or {@link ClockStateStore#UNKNOWN_BOOT_COUNT}
+     */
+    @NonNull
+    static long[] encode(@NonNull StopwatchModel[] models, int count, long now, long wallTime, int bootCount) {
+        final long[] data = new long[HEADER_SIZE + count * STOPWATCH_RECORD_SIZE];
+        writeHeader(data, TYPE_STOPWATCH, count, now, wallTime, bootCount);
+        int index = HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            final StopwatchModel.StopwatchState state = models[i].getState();
+            data[index++] = flags(state.isStarted(), state.isPaused());
+            data[index++] = state.getTime(now);
+        }
+        return data;
+    }
+
+    /**
+     * Packs the states of the given timers.
+     *
+     * @param context the context to query the boot count
+     * @param models  the models
+     * @param count   the count of models to pack from the start
+     * @return the packed states
+     */
+    @NonNull
+    public static long[] encode(@NonNull Context context, @NonNull TimerModel[] models, int count) {
+        return encode(models, count, SystemClock.elapsedRealtimeNanos(), System.currentTimeMillis(),
+                ClockStateStore.getBootCount(context));
+    }
+
+    /**
+     * Packs the states of the given timers at the given time of snapshot.
+     *
+     * @param now       the elapsed real time in nanoseconds
+     * @param wallTime  the wall time in milliseconds
+     * @param bootCount the boot count, or {@link ClockStateStore#UNKNOWN_BOOT_COUNT}
+     */
+    @NonNull
+    static long[] encode(@NonNull TimerModel[] models, int count, long now, long wallTime, int bootCount) {
+        int size = HEADER_SIZE + count * TIMER_RECORD_SIZE;
+        for (int i = 0; i < count; i++) {
+            final TimerProgram program = models[i].getState().getProgram();
+            if (program != null) size += program.getSegmentCount() * 2;
+        }
+        final long[] data = new long[size];
+        writeHeader(data, TYPE_TIMER, count, now, wallTime, bootCount);
+        int index = HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            final TimerModel.TimerState state = models[i].getState();
+            final TimerProgram program = state.getProgram();
+            final int segmentCount = program != null ? program.getSegmentCount() : 0;
+            data[index++] = flags(state.isStarted(), state.isPaused()) | ((long) segmentCount << SEGMENT_COUNT_SHIFT);
+            data[index++] = state.getRestTime(now);
+            data[index++] = state.getTotal();
+            data[index++] = state.getFiredThreshold();
+            for (int j = 0; j < segmentCount; j++) {
+                data[index++] = program.getSegmentEnd(j) - program.getSegmentStart(j);
+                data[index++] = program.getSegmentTag(j);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Gets the count of states packed in the given data.
+     *
+     * @param data the packed states
+     * @return the count of states
+     * @throws IllegalArgumentException if the data isn't packed by this codec
+     */
+    public static int getCount(@NonNull long[] data) {
+        checkHeader(data);
+        return (int) data[1];
+    }
+
+    /**
+     * Restores the packed states into the given stopwatches, in order.
+     *
+     * @param context the context to query the boot count
+     * @param data    the packed states
+     * @param models  the models to restore into
+     * @return the count of restored models, which is the smaller of the count of states and models
+     * @throws IllegalArgumentException if the data isn't packed stopwatch states or is truncated,
+     *                                  in which case no model is restored
+     */
+    public static int decode(@NonNull Context context, @NonNull long[] data, @NonNull StopwatchModel[] models) {
+        return decode(data, models, SystemClock.elapsedRealtimeNanos(), System.currentTimeMillis(),
+                ClockStateStore.getBootCount(context));
+    }
+
+    /**
+     * Restores the packed states into the given stopwatches at the given time.
+     *
+     * @param now       the elapsed real time in nanoseconds
+     * @param wallTime  the wall time in milliseconds
+     * @param bootCount the boot count, or {@link ClockStateStore#UNKNOWN_BOOT_COUNT}
+     */
+    static int decode(@NonNull long[] data, @NonNull StopwatchModel[] models, long now, long wallTime, int bootCount) {
+        checkHeader(data, TYPE_STOPWATCH);
+        // All the records are checked before any model is touched
+        final int packed = (int) data[1];
+        checkSize(data, HEADER_SIZE + (long) packed * STOPWATCH_RECORD_SIZE);
+        final int count = Math.min(packed, models.length);
+        final long elapsed = getElapsedSinceSnapshot(data, now, wallTime, bootCount);
+        int index = HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            final long flags = data[index++];
+            final boolean started = (flags & FLAG_STARTED) != 0;
+            final boolean paused = (flags & FLAG_PAUSED) != 0;
+            long time = data[index++];
+            if (started && !paused) time += elapsed;
+            models[i].setState(StopwatchModel.StopwatchState.create(started, paused, time, now));
+        }
+        return count;
+    }
+
+    /**
+     * Restores the packed states into the given timers, in order.
+     *
+     * @param context the context to query the boot count
+     * @param data    the packed states
+     * @param models  the models to restore into
+     * @return the count of restored models, which is the smaller of the count of states and models
+     * @throws IllegalArgumentException if the data isn't packed timer states or is truncated,
+     *                                  in which case no model is restored
+     */
+    public static int decode(@NonNull Context context, @NonNull long[] data, @NonNull TimerModel[] models) {
+        return decode(data, models, SystemClock.elapsedRealtimeNanos(), System.currentTimeMillis(),
+                ClockStateStore.getBootCount(context));
+    }
+
+    /**
+     * Restores the packed states into the given timers at the given time.
+     *
+     * @param now       the elapsed real time in nanoseconds
+     * @param wallTime  the wall time in milliseconds
+     * @param bootCount the boot count, or {@link ClockStateStore#UNKNOWN_BOOT_COUNT}
+     */
+    static int decode(@NonNull long[] data, @NonNull TimerModel[] models, long now, long wallTime, int bootCount) {
+        checkHeader(data, TYPE_TIMER);
+        // The records have various sizes, so all of them are walked before any model is touched
+        final int packed = (int) data[1];
+        long size = HEADER_SIZE;
+        for (int i = 0; i < packed; i++) {
+            checkSize(data, size + TIMER_RECORD_SIZE);
+            size += TIMER_RECORD_SIZE + (data[(int) size] >>> SEGMENT_COUNT_SHIFT) * 2;
+        }
+        checkSize(data, size);
+        final int count = Math.min(packed, models.length);
+        final long elapsed = getElapsedSinceSnapshot(data, now, wallTime, bootCount);
+        final TimerModel.TimerState[] states = new TimerModel.TimerState[count];
+        int index = HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            final long flags = data[index++];
+            final boolean started = (flags & FLAG_STARTED) != 0;
+            final boolean paused = (flags & FLAG_PAUSED) != 0;
+            final int segmentCount = (int) (flags >>> SEGMENT_COUNT_SHIFT);
+            long rest = data[index++];
+            final long total = data[index++];
+            final long firedThreshold = data[index++];
+            if (started && !paused) rest -= elapsed;
+            TimerProgram program = null;
+            if (segmentCount > 0) {
+                final TimerProgram.Builder builder = new TimerProgram.Builder();
+                for (int j = 0; j < segmentCount; j++) {
+                    builder.addSegment(data[index], (int) data[index + 1]);
+                    index += 2;
+                }
+                program = builder.build();
+            }
+            states[i] = TimerModel.TimerState.create(started, paused, rest, total, program, firedThreshold, now);
+        }
+        for (int i = 0; i < count; i++) {
+            models[i].setState(states[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Converts the packed states into big-endian bytes, such as for files and IPC.
+     *
+     * @param data the packed states
+     * @return the bytes
+     */
+    @NonNull
+    public static byte[] toBytes(@NonNull long[] data) {
+        final ByteBuffer buffer = ByteBuffer.allocate(data.length * 8).order(ByteOrder.BIG_ENDIAN);
+        buffer.asLongBuffer().put(data);
+        return buffer.array();
+    }
+
+    /**
+     * Converts the bytes from {@link #toBytes(long[])} back into the packed states.
+     *
+     * @param bytes the bytes
+     * @return the packed states
+     * @throws IllegalArgumentException if the length of bytes isn't a multiple of 8
+     */
+    @NonNull
+    public static long[] fromBytes(@NonNull byte[] bytes) {
+        if (bytes.length % 8 != 0) {
+            throw new IllegalArgumentException("Length of packed states isn't a multiple of 8: " + bytes.length);
+        }
+        final LongBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.BIG_ENDIAN).asLongBuffer();
+        final long[] data = new long[buffer.remaining()];
+        buffer.get(data);
+        return data;
+    }
+
+    private static void writeHeader(long[] data, int type, int count, long now, long wallTime, int bootCount) {
+        data[0] = MAGIC | VERSION;
+        data[1] = ((long) type << 32) | count;
+        data[2] = now;
+        data[3] = wallTime;
+        data[4] = bootCount;
+    }
+
+    private static void checkHeader(long[] data) {
+        if (data.length < HEADER_SIZE || data[0] != (MAGIC | VERSION)) {
+            throw new IllegalArgumentException("Not the states packed by version " + VERSION);
+        }
+    }
+
+    private static void checkHeader(long[] data, int type) {
+        checkHeader(data);
+        if ((int) (data[1] >>> 32) != type) {
+            throw new IllegalArgumentException("Type of packed states mismatch: " + (data[1] >>> 32));
+        }
+        if ((int) data[1] < 0) {
+            throw new IllegalArgumentException("Count of packed states is negative: " + (int) data[1]);
+        }
+    }
+
+    private static void checkSize(long[] data, long size) {
+        if (data.length < size) {
+            throw new IllegalArgumentException("Packed states are truncated: " + data.length + " < " + size);
+        }
+    }
+
+    /**
+     * Gets the time passed since the snapshot, by the elapsed real time within the same boot and by
+     * the wall time after a reboot. Only if either boot count is unknown, an elapsed real time of
+     * snapshot which is later than now is taken as a reboot.
+     *
+     * @return time in nanoseconds
+     */
+    private static long getElapsedSinceSnapshot(long[] data, long now, long wallTime, int bootCount) {
+        final long snapshotElapsed = data[2];
+        final int snapshotBootCount = (int) data[4];
+        final boolean sameBoot = snapshotBootCount != ClockStateStore.UNKNOWN_BOOT_COUNT
+                && bootCount != ClockStateStore.UNKNOWN_BOOT_COUNT
+                ? snapshotBootCount == bootCount : now >= snapshotElapsed;
+        if (sameBoot) return Math.max(0, now - snapshotElapsed);
+        return Math.max(0, wallTime - data[3]) * NANOS_PER_MILLI;
+    }
+
+    private static long flags(boolean started, boolean paused) {
+        return (started ? FLAG_STARTED : 0) | (paused ? FLAG_PAUSED : 0);
+    }
+}
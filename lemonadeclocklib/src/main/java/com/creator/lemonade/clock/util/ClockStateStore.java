@@ -0,0 +1,358 @@
+package com.creator.lemonade.clock.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.provider.Settings;
+import android.support.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A durable store of the states of stopwatches and timers, which survives the death of process
+ * and reboots of device. The states are kept in {@link SharedPreferences} under the keys given by
+ * the callers.
+ * <p>
+ * A running state is persisted with its time at an anchor, which is recorded both as the elapsed
+ * real time and as the wall time, along with the boot count of device. When it is restored within
+ * the same boot, the time is advanced by the elapsed real time since the anchor; after a reboot,
+ * by the wall time since the anchor instead. The restored state is re-anchored to the current
+ * elapsed real time, so that the models never see anchors of another boot.
+ * <p>
+ * Saving only encodes the state on the calling thread, and the writes are coalesced and committed
+ * on a background thread. The preferences and the boot count are loaded in the background when the
+ * store is created, so that restoring takes no disk access.
+ *
+ * @author Felix.Liang
+ * @see StopwatchModel#setStateStore(ClockStateStore, String)
+ * @see TimerModel#setStateStore(ClockStateStore, String)
+ */
+@SuppressWarnings("unused")
+public class ClockStateStore {
+
+    /**
+     * The name of preferences file
+     */
+    private static final String PREFERENCES_NAME = "lemonade_clock_states";
+
+    /**
+     * The name of background thread
+     */
+    private static final String WRITER_THREAD_NAME = "LemonadeClockStateStore";
+
+    /**
+     * The delay to coalesce writes in milliseconds
+     */
+    private static final long WRITE_DELAY = 200;
+
+    /**
+     * The version of encoded states
+     */
+    private static final String VERSION = "1";
+
+    private static final String TYPE_STOPWATCH = "S";
+    private static final String TYPE_TIMER = "T";
+
+    private static final char SEPARATOR = '|';
+    private static final char LIST_SEPARATOR = ',';
+
+    private static final int FLAG_STARTED = 1;
+    private static final int FLAG_PAUSED = 1 << 1;
+
+    /**
+     * The boot count which is unknown, such as before Android N
+     */
+    static final int UNKNOWN_BOOT_COUNT = -1;
+
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    private static ClockStateStore sInstance;
+
+    private static int sBootCount;
+    private static boolean sBootCountLoaded;
+
+    private final Context mContext;
+
+    private final SharedPreferences mPreferences;
+
+    private final Handler mWriteHandler;
+
+    /**
+     * The encoded states waiting to be written, or null for removal, guarded by itself
+     */
+    private final HashMap<String, String> mPendingWrites = new HashMap<>();
+
+    private final Runnable mWrite = new Runnable() {
+        @Override
+        public void run() {
+            final HashMap<String, String> writes;
+            synchronized (mPendingWrites) {
+                if (mPendingWrites.isEmpty()) return;
+                writes = new HashMap<>(mPendingWrites);
+            }
+            final SharedPreferences.Editor editor = mPreferences.edit();
+            for (Map.Entry<String, String> entry : writes.entrySet()) {
+                if (entry.getValue() != null) {
+                    editor.putString(entry.getKey(), entry.getValue());
+                } else {
+                    editor.remove(entry.getKey());
+                }
+            }
+            editor.commit();
+            synchronized (mPendingWrites) {
+                // Keep the writes which have been replaced in the meantime
+                for (Map.Entry<String, String> entry : writes.entrySet()) {
+                    final String key = entry.getKey();
+                    if (mPendingWrites.containsKey(key) && eq(mPendingWrites.get(key), entry.getValue())) {
+                        mPendingWrites.remove(key);
+                    }
+                }
+            }
+        }
+    };
+
+    private ClockStateStore(Context context) {
+        mContext = context.getApplicationContext();
+        final HandlerThread thread = new HandlerThread(WRITER_THREAD_NAME, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        mWriteHandler = new Handler(thread.getLooper());
+        // Getting the preferences starts loading them in the background
+        mPreferences = mContext.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        mWriteHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mPreferences.contains(PREFERENCES_NAME);
+                getBootCount(mContext);
+            }
+        });
+    }
+
+    /**
+     * Gets the store of this process.
+     *
+     * @param context the context, whose application context is kept
+     * @return The {@link ClockStateStore}
+     */
+    @NonNull
+    public static synchronized ClockStateStore getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            sInstance = new ClockStateStore(context);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Saves the state of the given stopwatch under the given key.
+     *
+     * @param key   the key
+     * @param model the model
+     */
+    public void save(@NonNull String key, @NonNull StopwatchModel model) {
+        final StopwatchModel.StopwatchState state = model.getState();
+        final long now = SystemClock.elapsedRealtimeNanos();
+        final StringBuilder builder = newRecord(TYPE_STOPWATCH, state.isStarted(), state.isPaused());
+        builder.append(state.getTime(now)).append(SEPARATOR);
+        appendAnchor(builder, now);
+        enqueue(key, builder.toString());
+    }
+
+    /**
+     * Saves the state of the given timer under the given key.
+     *
+     * @param key   the key
+     * @param model the model
+     */
+    public void save(@NonNull String key, @NonNull TimerModel model) {
+        final TimerModel.TimerState state = model.getState();
+        final long now = SystemClock.elapsedRealtimeNanos();
+        final StringBuilder builder = newRecord(TYPE_TIMER, state.isStarted(), state.isPaused());
+        builder.append(state.getRestTime(now)).append(SEPARATOR);
+        builder.append(state.getTotal()).append(SEPARATOR);
+        appendAnchor(builder, now);
+        // The program fields are left empty without a program, so that the fired threshold follows
+        final TimerProgram program = state.getProgram();
+        final int count = program != null ? program.getSegmentCount() : 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(LIST_SEPARATOR);
+            builder.append(program.getSegmentEnd(i) - program.getSegmentStart(i));
+        }
+        builder.append(SEPARATOR);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(LIST_SEPARATOR);
+            builder.append(program.getSegmentTag(i));
+        }
+        builder.append(SEPARATOR).append(state.getFiredThreshold());
+        enqueue(key, builder.toString());
+    }
+
+    /**
+     * Restores the state saved under the given key into the given stopwatch.
+     *
+     * @param key   the key
+     * @param model the model
+     * @return true if restored, false if nothing has been saved under the key
+     */
+    public boolean restore(@NonNull String key, @NonNull StopwatchModel model) {
+        final String[] fields = read(key, TYPE_STOPWATCH);
+        if (fields == null) return false;
+        try {
+            final int flags = Integer.parseInt(fields[2]);
+            final boolean started = (flags & FLAG_STARTED) != 0;
+            final boolean paused = (flags & FLAG_PAUSED) != 0;
+            long time = Long.parseLong(fields[3]);
+            if (started && !paused) time += getElapsedSinceAnchor(fields, 4);
+            model.setState(StopwatchModel.StopwatchState.create(started, paused, time,
+                    SystemClock.elapsedRealtimeNanos()));
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Restores the state saved under the given key into the given timer. A timer which would have
+     * timed out since is restored with no rest time, and times out as soon as it runs. The thresholds
+     * which it has passed since fire in order.
+     *
+     * @param key   the key
+     * @param model the model
+     * @return true if restored, false if nothing has been saved under the key
+     */
+    public boolean restore(@NonNull String key, @NonNull TimerModel model) {
+        final String[] fields = read(key, TYPE_TIMER);
+        if (fields == null) return false;
+        try {
+            final int flags = Integer.parseInt(fields[2]);
+            final boolean started = (flags & FLAG_STARTED) != 0;
+            final boolean paused = (flags & FLAG_PAUSED) != 0;
+            long rest = Long.parseLong(fields[3]);
+            final long total = Long.parseLong(fields[4]);
+            if (started && !paused) rest -= getElapsedSinceAnchor(fields, 5);
+            TimerProgram program = null;
+            if (fields.length > 9 && !fields[8].isEmpty()) {
+                final String[] durations = split(fields[8], LIST_SEPARATOR);
+                final String[] tags = split(fields[9], LIST_SEPARATOR);
+                final TimerProgram.Builder builder = new TimerProgram.Builder();
+                for (int i = 0; i < durations.length; i++) {
+                    builder.addSegment(Long.parseLong(durations[i]), Integer.parseInt(tags[i]));
+                }
+                program = builder.build();
+            }
+            // The records saved before the fired threshold was kept have no such field
+            final long firedThreshold = fields.length > 10
+                    ? Long.parseLong(fields[10]) : TimerModel.TimerState.NO_THRESHOLD;
+            model.setState(TimerModel.TimerState.create(started, paused, rest, total, program,
+                    firedThreshold, SystemClock.elapsedRealtimeNanos()));
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Removes the state saved under the given key.
+     *
+     * @param key the key
+     */
+    public void remove(@NonNull String key) {
+        enqueue(key, null);
+    }
+
+    private StringBuilder newRecord(String type, boolean started, boolean paused) {
+        final int flags = (started ? FLAG_STARTED : 0) | (paused ? FLAG_PAUSED : 0);
+        return new StringBuilder(64).append(VERSION).append(SEPARATOR)
+                .append(type).append(SEPARATOR)
+                .append(flags).append(SEPARATOR);
+    }
+
+    private void appendAnchor(StringBuilder builder, long elapsedNow) {
+        builder.append(elapsedNow).append(SEPARATOR)
+                .append(System.currentTimeMillis()).append(SEPARATOR)
+                .append(getBootCount(mContext)).append(SEPARATOR);
+    }
+
+    private void enqueue(String key, String record) {
+        synchronized (mPendingWrites) {
+            mPendingWrites.put(key, record);
+        }
+        mWriteHandler.removeCallbacks(mWrite);
+        mWriteHandler.postDelayed(mWrite, WRITE_DELAY);
+    }
+
+    /**
+     * Reads the record saved under the given key, the pending writes are read first.
+     *
+     * @return the fields of record, or null if there is no record of the type
+     */
+    private String[] read(String key, String type) {
+        final String record;
+        synchronized (mPendingWrites) {
+            record = mPendingWrites.containsKey(key) ? mPendingWrites.get(key) : mPreferences.getString(key, null);
+        }
+        if (record == null) return null;
+        final String[] fields = split(record, SEPARATOR);
+        if (fields.length < 3 || !VERSION.equals(fields[0]) || !type.equals(fields[1])) return null;
+        return fields;
+    }
+
+    /**
+     * Gets the time passed since the anchor at the given index of fields.
+     *
+     * @return time in nanoseconds
+     */
+    private long getElapsedSinceAnchor(String[] fields, int index) {
+        final long anchorElapsed = Long.parseLong(fields[index]);
+        final long anchorWall = Long.parseLong(fields[index + 1]);
+        final int anchorBootCount = Integer.parseInt(fields[index + 2]);
+        final long now = SystemClock.elapsedRealtimeNanos();
+        final int bootCount = getBootCount(mContext);
+        final boolean sameBoot = anchorBootCount != UNKNOWN_BOOT_COUNT && bootCount != UNKNOWN_BOOT_COUNT
+                ? anchorBootCount == bootCount : now >= anchorElapsed;
+        if (sameBoot) return now - anchorElapsed;
+        return Math.max(0, System.currentTimeMillis() - anchorWall) * NANOS_PER_MILLI;
+    }
+
+    /**
+     * Gets the boot count of device, which is loaded once per process.
+     *
+     * @param context the context to query the settings
+     * @return the boot count, or {@link #UNKNOWN_BOOT_COUNT}
+     */
+    static synchronized int getBootCount(@NonNull Context context) {
+        if (!sBootCountLoaded) {
+            sBootCountLoaded = true;
+            sBootCount = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                    ? Settings.Global.getInt(context.getContentResolver(), Settings.Global.BOOT_COUNT, UNKNOWN_BOOT_COUNT)
+                    : UNKNOWN_BOOT_COUNT;
+        }
+        return sBootCount;
+    }
+
+    /**
+     * Splits the given string by the separator, keeping empty fields.
+     */
+    private static String[] split(String string, char separator) {
+        int count = 1;
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) == separator) count++;
+        }
+        final String[] fields = new String[count];
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            int end = string.indexOf(separator, start);
+            if (end < 0) end = string.length();
+            fields[i] = string.substring(start, end);
+            start = end + 1;
+        }
+        return fields;
+    }
+
+    private static boolean eq(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
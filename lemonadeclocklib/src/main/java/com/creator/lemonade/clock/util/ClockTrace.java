@@ -0,0 +1,229 @@
+package com.creator.lemonade.clock.util;
+
+import android.support.annotation.NonNull;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * A process-wide ring buffer of the events of all the clocks, such as ticks, changes of state,
+ * laps, timeouts and draws. Each event is packed into three longs of a preallocated array, so that
+ * recording costs a few stores and never allocates, and it can be left on in release builds. The
+ * newest events overwrite the oldest ones once the buffer is full.
+ * <p>
+ * The buffer is dumped as text by {@link #dump(PrintWriter)}, such as when a bug is reported.
+ *
+ * @author Felix.Liang
+ */
+@SuppressWarnings("unused")
+public class ClockTrace {
+
+    /**
+     * A tick, the value is the time delivered by the tick in nanoseconds
+     */
+    public static final int EVENT_TICK = 0;
+
+    /**
+     * A change of state, the value has {@link #STATE_STARTED} and {@link #STATE_PAUSED} bits
+     */
+    public static final int EVENT_STATE = 1;
+
+    /**
+     * A lap, the value is the lap time in nanoseconds
+     */
+    public static final int EVENT_LAP = 2;
+
+    /**
+     * A timeout, the value is 0
+     */
+    public static final int EVENT_TIMEOUT = 3;
+
+    /**
+     * A change of segment, the value is the index of segment in the high 32 bits and the tag in the low 32 bits
+     */
+    public static final int EVENT_SEGMENT = 4;
+
+    /**
+     * A draw, the value is the duration of drawing in nanoseconds
+     */
+    public static final int EVENT_DRAW = 5;
+
+    public static final long STATE_STARTED = 1;
+    public static final long STATE_PAUSED = 1 << 1;
+
+    private static final String[] EVENT_NAMES = {"TICK", "STATE", "LAP", "TIMEOUT", "SEGMENT", "DRAW"};
+
+    /**
+     * The default count of events kept in the buffer
+     */
+    private static final int DEFAULT_CAPACITY = 2048;
+
+    /**
+     * The count of longs of each event, which are the timestamp, the source and event, and the value
+     */
+    private static final int EVENT_SIZE = 3;
+
+    private static final long NANOS_PER_MICRO = 1000;
+
+    private static ClockTrace sInstance;
+
+    private long[] mEvents = new long[DEFAULT_CAPACITY * EVENT_SIZE];
+
+    /**
+     * The count of events ever recorded, the next event is written at {@code mCount % capacity}
+     */
+    private long mCount;
+
+    private volatile boolean mEnabled = true;
+
+    /**
+     * The last source id given out
+     */
+    private int mLastSource;
+
+    private ClockTrace() {
+    }
+
+    /**
+     * Gets the trace of this process.
+     *
+     * @return The {@link ClockTrace}
+     */
+    @NonNull
+    public static synchronized ClockTrace getInstance() {
+        if (sInstance == null) {
+            sInstance = new ClockTrace();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Gives out an id which tells the events of a clock from the others.
+     *
+     * @return the id of source
+     */
+    public synchronized int obtainSourceId() {
+        return ++mLastSource;
+    }
+
+    /**
+     * Sets whether to record the events, default is true.
+     *
+     * @param enabled true for recording, false otherwise
+     */
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    /**
+     * Indicates whether the events are recorded.
+     *
+     * @return true if recording, false otherwise
+     */
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * Sets the count of events kept in the buffer, this clears the buffer.
+     *
+     * @param capacity count of events
+     */
+    public synchronized void setCapacity(int capacity) {
+        mEvents = new long[Math.max(1, capacity) * EVENT_SIZE];
+        mCount = 0;
+    }
+
+    /**
+     * Records an event at current time.
+     *
+     * @param source the id of source
+     * @param event  one of {@code EVENT_*}
+     * @param value  the value of event
+     * @see #obtainSourceId()
+     */
+    public void record(int source, int event, long value) {
+        if (!mEnabled) return;
+        final long now = System.nanoTime();
+        synchronized (this) {
+            final long[] events = mEvents;
+            final int index = (int) (mCount % (events.length / EVENT_SIZE)) * EVENT_SIZE;
+            events[index] = now;
+            events[index + 1] = ((long) source << 32) | event;
+            events[index + 2] = value;
+            mCount++;
+        }
+    }
+
+    /**
+     * Clears all the recorded events.
+     */
+    public synchronized void clear() {
+        mCount = 0;
+    }
+
+    /**
+     * Writes the recorded events as text from the oldest to the newest, one event per line. The
+     * timestamps are in {@link System#nanoTime()} base, followed by the delta from the previous event.
+     *
+     * @param writer the writer to write into
+     */
+    public void dump(@NonNull PrintWriter writer) {
+        final long[] events;
+        final long count;
+        synchronized (this) {
+            events = mEvents.clone();
+            count = mCount;
+        }
+        final int capacity = events.length / EVENT_SIZE;
+        final long first = Math.max(0, count - capacity);
+        writer.println("ClockTrace: " + (count - first) + " of " + count + " events");
+        long lastTime = 0;
+        for (long i = first; i < count; i++) {
+            final int index = (int) (i % capacity) * EVENT_SIZE;
+            final long time = events[index];
+            final int source = (int) (events[index + 1] >>> 32);
+            final int event = (int) events[index + 1];
+            final long value = events[index + 2];
+            writer.print(time);
+            writer.print(" +");
+            writer.print(i == first ? 0 : (time - lastTime) / NANOS_PER_MICRO);
+            writer.print("us #");
+            writer.print(source);
+            writer.print(' ');
+            writer.print(event >= 0 && event < EVENT_NAMES.length ? EVENT_NAMES[event] : String.valueOf(event));
+            writer.print(' ');
+            writer.println(formatValue(event, value));
+            lastTime = time;
+        }
+        writer.flush();
+    }
+
+    /**
+     * Gets the recorded events as text.
+     *
+     * @return the text of events
+     * @see #dump(PrintWriter)
+     */
+    @NonNull
+    public String dump() {
+        final StringWriter writer = new StringWriter();
+        dump(new PrintWriter(writer));
+        return writer.toString();
+    }
+
+    private static String formatValue(int event, long value) {
+        switch (event) {
+            case EVENT_STATE:
+                return "started=" + ((value & STATE_STARTED) != 0) + " paused=" + ((value & STATE_PAUSED) != 0);
+            case EVENT_SEGMENT:
+                return "segment=" + (int) (value >> 32) + " tag=" + (int) value;
+            case EVENT_TIMEOUT:
+                return "";
+            case EVENT_DRAW:
+                return (value / NANOS_PER_MICRO) + "us";
+            default:
+                return value + "ns";
+        }
+    }
+}
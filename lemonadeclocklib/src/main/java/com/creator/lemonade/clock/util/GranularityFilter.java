@@ -0,0 +1,167 @@
+package com.creator.lemonade.clock.util;
+
+import android.support.annotation.IntDef;
+import android.support.annotation.NonNull;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Arrays;
+
+/**
+ * This class filters the time values delivered on every tick down to the ones whose value in a
+ * given unit has changed, such as the shown second of a stopwatch, so that a listener which only
+ * cares about seconds is not called on every frame.
+ * <p>
+ * With {@link #GRANULARITY_THRESHOLDS}, a time passes only when it crosses one of the thresholds
+ * given by {@link #setThresholds(long...)}, which suits the remaining time of a timer.
+ *
+ * @author Felix.Liang
+ */
+@SuppressWarnings("unused")
+public class GranularityFilter {
+
+    /**
+     * Every time passes
+     */
+    public static final int GRANULARITY_TICK = 0;
+
+    /**
+     * A time passes when its value in 10 milliseconds changes
+     */
+    public static final int GRANULARITY_10_MILLIS = 1;
+
+    /**
+     * A time passes when its value in seconds changes
+     */
+    public static final int GRANULARITY_SECOND = 2;
+
+    /**
+     * A time passes when its value in minutes changes
+     */
+    public static final int GRANULARITY_MINUTE = 3;
+
+    /**
+     * A time passes when it crosses a threshold
+     *
+     * @see #setThresholds(long...)
+     */
+    public static final int GRANULARITY_THRESHOLDS = 4;
+
+    @IntDef({GRANULARITY_TICK, GRANULARITY_10_MILLIS, GRANULARITY_SECOND, GRANULARITY_MINUTE, GRANULARITY_THRESHOLDS})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Granularity {
+    }
+
+    private static final long NANOS_PER_10_MILLIS = 10000000L;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final long NANOS_PER_MINUTE = 60 * NANOS_PER_SECOND;
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * The value of a time which has never been seen
+     */
+    private static final long NO_VALUE = Long.MIN_VALUE;
+
+    private static final long[] EMPTY_THRESHOLDS = new long[0];
+
+    private int mGranularity = GRANULARITY_TICK;
+
+    /**
+     * Whether the value is rounded up, such as the shown rest time of a timer
+     */
+    private final boolean mRoundUp;
+
+    /**
+     * The thresholds in nanoseconds in ascending order
+     */
+    private long[] mThresholds = EMPTY_THRESHOLDS;
+
+    /**
+     * The value of the last time which has passed
+     */
+    private long mLastValue = NO_VALUE;
+
+    /**
+     * @param roundUp true if the value in unit is rounded up, which matches the time counting down
+     */
+    public GranularityFilter(boolean roundUp) {
+        mRoundUp = roundUp;
+    }
+
+    /**
+     * Sets the granularity, the next time passes anyway.
+     *
+     * @param granularity one of {@code GRANULARITY_*}
+     */
+    public void setGranularity(@Granularity int granularity) {
+        mGranularity = granularity;
+        reset();
+    }
+
+    /**
+     * Gets the granularity.
+     *
+     * @return one of {@code GRANULARITY_*}
+     */
+    @Granularity
+    public int getGranularity() {
+        return mGranularity;
+    }
+
+    /**
+     * Sets the thresholds used by {@link #GRANULARITY_THRESHOLDS}, the next time passes anyway.
+     *
+     * @param thresholds thresholds in milliseconds, in any order
+     */
+    public void setThresholds(@NonNull long... thresholds) {
+        final long[] sorted = new long[thresholds.length];
+        for (int i = 0; i < thresholds.length; i++) {
+            sorted[i] = thresholds[i] * NANOS_PER_MILLI;
+        }
+        Arrays.sort(sorted);
+        mThresholds = sorted;
+        reset();
+    }
+
+    /**
+     * Makes the next time pass anyway, such as after the state changes.
+     */
+    public void reset() {
+        mLastValue = NO_VALUE;
+    }
+
+    /**
+     * Indicates whether the given time should be delivered, and remembers its value if so.
+     *
+     * @param timeInNanos the time in nanoseconds
+     * @return true if the value in unit has changed since the last time which passed
+     */
+    public boolean accept(long timeInNanos) {
+        if (mGranularity == GRANULARITY_TICK) return true;
+        final long value = valueOf(timeInNanos);
+        if (value == mLastValue) return false;
+        mLastValue = value;
+        return true;
+    }
+
+    private long valueOf(long timeInNanos) {
+        switch (mGranularity) {
+            case GRANULARITY_10_MILLIS:
+                return divide(timeInNanos, NANOS_PER_10_MILLIS);
+            case GRANULARITY_SECOND:
+                return divide(timeInNanos, NANOS_PER_SECOND);
+            case GRANULARITY_MINUTE:
+                return divide(timeInNanos, NANOS_PER_MINUTE);
+            case GRANULARITY_THRESHOLDS:
+                // The count of thresholds not above the time, which changes on every crossing
+                int index = Arrays.binarySearch(mThresholds, timeInNanos);
+                return index >= 0 ? index + 1 : -index - 1;
+            default:
+                return timeInNanos;
+        }
+    }
+
+    private long divide(long timeInNanos, long unit) {
+        return mRoundUp ? (timeInNanos + unit - 1) / unit : timeInNanos / unit;
+    }
+}
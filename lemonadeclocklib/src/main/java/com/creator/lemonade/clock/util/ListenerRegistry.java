@@ -0,0 +1,121 @@
+package com.creator.lemonade.clock.util;
+
+import android.support.annotation.NonNull;
+
+/**
+ * A registry of listeners backed by a copy-on-write array. Adding and removing copy the array,
+ * while dispatching only reads the current array, so that listeners can be dispatched with an
+ * indexed loop without allocating an iterator, and may add or remove listeners during dispatch.
+ * <p>
+ * A dispatch should read {@link #getListeners()} once and loop over that array:
+ * <pre>
+ * final Object[] listeners = registry.getListeners();
+ * for (int i = 0; i &lt; listeners.length; i++) {
+ *     ((Listener) listeners[i]).onEvent();
+ * }
+ * </pre>
+ *
+ * @param <T> the type of listener
+ * @author Felix.Liang
+ */
+@SuppressWarnings("unused")
+public class ListenerRegistry<T> {
+
+    private static final Object[] EMPTY_LISTENERS = new Object[0];
+
+    private volatile Object[] mListeners = EMPTY_LISTENERS;
+
+    /**
+     * Adds a listener, nothing happens if it has been added.
+     *
+     * @param listener the listener to add
+     * @return true if added, false if it has been added
+     */
+    public synchronized boolean add(@NonNull T listener) {
+        final Object[] listeners = mListeners;
+        if (indexOf(listeners, listener) >= 0) return false;
+        final Object[] newListeners = new Object[listeners.length + 1];
+        System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+        newListeners[listeners.length] = listener;
+        mListeners = newListeners;
+        return true;
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener the listener to remove
+     * @return true if removed, false if it hasn't been added
+     */
+    public synchronized boolean remove(T listener) {
+        final Object[] listeners = mListeners;
+        final int index = indexOf(listeners, listener);
+        if (index < 0) return false;
+        if (listeners.length == 1) {
+            mListeners = EMPTY_LISTENERS;
+        } else {
+            final Object[] newListeners = new Object[listeners.length - 1];
+            System.arraycopy(listeners, 0, newListeners, 0, index);
+            System.arraycopy(listeners, index + 1, newListeners, index, listeners.length - index - 1);
+            mListeners = newListeners;
+        }
+        return true;
+    }
+
+    /**
+     * Replaces a listener with another one in place, such as the listener kept in a single slot.
+     *
+     * @param oldListener the listener to remove, may be null
+     * @param newListener the listener to add, may be null
+     */
+    public synchronized void replace(T oldListener, T newListener) {
+        if (oldListener == newListener) return;
+        final int index = indexOf(mListeners, oldListener);
+        if (index >= 0 && newListener != null && indexOf(mListeners, newListener) < 0) {
+            final Object[] newListeners = mListeners.clone();
+            newListeners[index] = newListener;
+            mListeners = newListeners;
+        } else {
+            remove(oldListener);
+            if (newListener != null) add(newListener);
+        }
+    }
+
+    /**
+     * Indicates whether a listener has been added.
+     *
+     * @param listener the listener
+     * @return true if added, false otherwise
+     */
+    public boolean contains(T listener) {
+        return indexOf(mListeners, listener) >= 0;
+    }
+
+    /**
+     * Indicates whether no listener has been added.
+     *
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return mListeners.length == 0;
+    }
+
+    /**
+     * Gets the current listeners in the order they were added. The array is never modified, and
+     * must not be modified by the caller.
+     *
+     * @return the array of listeners
+     */
+    @NonNull
+    public Object[] getListeners() {
+        return mListeners;
+    }
+
+    private static int indexOf(Object[] listeners, Object listener) {
+        if (listener == null) return -1;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) return i;
+        }
+        return -1;
+    }
+}
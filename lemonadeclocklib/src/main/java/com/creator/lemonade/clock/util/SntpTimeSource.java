@@ -0,0 +1,339 @@
+package com.creator.lemonade.clock.util;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+
+/**
+ * A {@link TimeSource} disciplined by a reference server over SNTP (RFC 4330).
+ * <p>
+ * Until the first response of server, the time of device is used as is, so that it follows the
+ * clock of device when it is set. Since then, the time is kept as an offset against
+ * {@link SystemClock#elapsedRealtime()}, so that it neither jumps when the clock of device is set
+ * nor drifts with it. The first response sets the offset at once, and the later corrections are
+ * slewed at {@link #SLEW_RATE} so that the shown time never jumps or runs backwards, unless the
+ * error exceeds {@link #STEP_THRESHOLD}.
+ * <p>
+ * The server is only polled while the source is acquired. The polling interval starts at
+ * {@link #MIN_POLL_INTERVAL}, doubles while the measured error stays small up to
+ * {@link #MAX_POLL_INTERVAL}, and halves when it grows. A source should be shared by all the
+ * clocks of process, such as through {@link #getDefault()}, so that they cost one stream of
+ * queries. The app needs the {@code android.permission.INTERNET} permission.
+ *
+ * @author Felix.Liang
+ */
+@SuppressWarnings("unused")
+public class SntpTimeSource implements TimeSource {
+
+    /**
+     * The default server
+     */
+    public static final String DEFAULT_HOST = "time.android.com";
+
+    /**
+     * The port of NTP
+     */
+    public static final int DEFAULT_PORT = 123;
+
+    /**
+     * The rate of slewing, which is the correction per elapsed time
+     */
+    public static final float SLEW_RATE = 0.05f;
+
+    /**
+     * The error in milliseconds above which the offset is set at once rather than slewed
+     */
+    public static final long STEP_THRESHOLD = 10 * 1000;
+
+    /**
+     * The bounds of polling interval in milliseconds
+     */
+    public static final long MIN_POLL_INTERVAL = 64 * 1000;
+    public static final long MAX_POLL_INTERVAL = 4096 * 1000;
+
+    /**
+     * The error in milliseconds below which the polling interval is doubled
+     */
+    private static final long STABLE_ERROR = 25;
+
+    /**
+     * The error in milliseconds above which the polling interval is halved
+     */
+    private static final long UNSTABLE_ERROR = 250;
+
+    /**
+     * The timeout of a query in milliseconds
+     */
+    private static final int QUERY_TIMEOUT = 5000;
+
+    private static final String THREAD_NAME = "LemonadeClockSntp";
+
+    private static final int PACKET_SIZE = 48;
+    private static final int VERSION = 3;
+    private static final int MODE_CLIENT = 3;
+    private static final int MODE_SERVER = 4;
+    private static final int MODE_BROADCAST = 5;
+    private static final int LEAP_NOT_IN_SYNC = 3;
+
+    private static final int ORIGINATE_TIME_OFFSET = 24;
+    private static final int RECEIVE_TIME_OFFSET = 32;
+    private static final int TRANSMIT_TIME_OFFSET = 40;
+
+    /**
+     * Seconds from 1900 to 1970
+     */
+    private static final long OFFSET_1900_TO_1970 = ((365L * 70L) + 17L) * 24L * 60L * 60L;
+
+    private static SntpTimeSource sDefault;
+
+    private final String mHost;
+    private final int mPort;
+
+    private final Handler mHandler;
+
+    /*
+     * The offset to add to the elapsed real time is slewed from mSlewStartOffset at
+     * mSlewStartTime to mTargetOffset, once synced. They are guarded by this.
+     */
+    private long mSlewStartTime;
+    private long mSlewStartOffset;
+    private long mTargetOffset;
+    private boolean mSynced;
+
+    /**
+     * The count of users, guarded by this
+     */
+    private int mUsers;
+
+    /**
+     * The interval to the next query, written on the query thread and guarded by this
+     */
+    private long mPollInterval = MIN_POLL_INTERVAL;
+
+    /**
+     * The elapsed real time in milliseconds of the last successful query, guarded by this
+     */
+    private long mLastQueryTime;
+
+    private final Runnable mQuery = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (SntpTimeSource.this) {
+                if (mUsers == 0) return;
+            }
+            final long error = query();
+            final long interval;
+            synchronized (SntpTimeSource.this) {
+                if (error < 0) {
+                    // Retries sooner after a failure
+                    mPollInterval = MIN_POLL_INTERVAL;
+                } else if (error < STABLE_ERROR) {
+                    mPollInterval = Math.min(mPollInterval * 2, MAX_POLL_INTERVAL);
+                } else if (error > UNSTABLE_ERROR) {
+                    mPollInterval = Math.max(mPollInterval / 2, MIN_POLL_INTERVAL);
+                }
+                interval = mPollInterval;
+            }
+            mHandler.postDelayed(this, interval);
+        }
+    };
+
+    /**
+     * @param host the host of server
+     * @param port the port of server, such as {@link #DEFAULT_PORT}
+     */
+    public SntpTimeSource(@NonNull String host, int port) {
+        mHost = host;
+        mPort = port;
+        final HandlerThread thread = new HandlerThread(THREAD_NAME, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        mHandler = new Handler(thread.getLooper());
+    }
+
+    /**
+     * Gets the source of process which is disciplined by {@link #DEFAULT_HOST}.
+     *
+     * @return The {@link SntpTimeSource}
+     */
+    @NonNull
+    public static synchronized SntpTimeSource getDefault() {
+        if (sDefault == null) {
+            sDefault = new SntpTimeSource(DEFAULT_HOST, DEFAULT_PORT);
+        }
+        return sDefault;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long currentTimeMillis() {
+        final long now = SystemClock.elapsedRealtime();
+        synchronized (this) {
+            if (!mSynced) return System.currentTimeMillis();
+            return now + getOffset(now);
+        }
+    }
+
+    /**
+     * Indicates whether a response of server has been received.
+     *
+     * @return true if synced, false if the time of device is still used
+     */
+    public synchronized boolean isSynced() {
+        return mSynced;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When the first user acquires this source, the server is queried at once if it has never
+     * answered, otherwise at the end of the current polling interval since the last answer, so
+     * that releasing and acquiring again, such as when a clock is re-attached, costs no extra query.
+     */
+    @Override
+    public void acquire() {
+        final long delay;
+        synchronized (this) {
+            if (mUsers++ > 0) return;
+            delay = mSynced ? mLastQueryTime + mPollInterval - SystemClock.elapsedRealtime() : 0;
+        }
+        mHandler.removeCallbacks(mQuery);
+        mHandler.postDelayed(mQuery, Math.max(0, delay));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The polling stops when the last user releases this source.
+     */
+    @Override
+    public void release() {
+        synchronized (this) {
+            if (mUsers == 0 || --mUsers > 0) return;
+        }
+        mHandler.removeCallbacks(mQuery);
+    }
+
+    /**
+     * Gets the offset to add to the elapsed real time at the given time.
+     *
+     * @param now the elapsed real time in milliseconds
+     * @return the offset in milliseconds
+     */
+    private synchronized long getOffset(long now) {
+        final long distance = mTargetOffset - mSlewStartOffset;
+        final long slewed = (long) ((now - mSlewStartTime) * SLEW_RATE);
+        if (Math.abs(distance) <= slewed) return mTargetOffset;
+        return mSlewStartOffset + (distance > 0 ? slewed : -slewed);
+    }
+
+    /**
+     * Applies a measured offset, which starts a new slew from the current offset.
+     *
+     * @param offset the measured offset to add to the elapsed real time
+     * @return the error of current offset in milliseconds
+     */
+    private synchronized long applyOffset(long offset) {
+        final long now = SystemClock.elapsedRealtime();
+        final long current = mSynced ? getOffset(now) : System.currentTimeMillis() - now;
+        final long error = Math.abs(offset - current);
+        if (!mSynced || error > STEP_THRESHOLD) {
+            mSlewStartOffset = offset;
+        } else {
+            mSlewStartOffset = current;
+        }
+        mSlewStartTime = now;
+        mTargetOffset = offset;
+        mSynced = true;
+        mLastQueryTime = now;
+        return error;
+    }
+
+    /**
+     * Queries the server once and applies the measured offset, which blocks until the response or
+     * the timeout. It is called on the query thread, or directly by tests.
+     *
+     * @return the error of current offset in milliseconds, or -1 if failed
+     */
+    long query() {
+        DatagramSocket socket = null;
+        try {
+            final InetAddress address = InetAddress.getByName(mHost);
+            socket = new DatagramSocket();
+            socket.setSoTimeout(QUERY_TIMEOUT);
+            final byte[] buffer = new byte[PACKET_SIZE];
+            buffer[0] = (byte) ((VERSION << 3) | MODE_CLIENT);
+            // The transmit time is only echoed back by the server to match the response
+            final long requestTime = System.currentTimeMillis();
+            writeTimestamp(buffer, TRANSMIT_TIME_OFFSET, requestTime);
+            final long requestElapsed = SystemClock.elapsedRealtime();
+            socket.send(new DatagramPacket(buffer, buffer.length, address, mPort));
+            final DatagramPacket response = new DatagramPacket(buffer, buffer.length);
+            socket.receive(response);
+            final long responseElapsed = SystemClock.elapsedRealtime();
+
+            final int leap = (buffer[0] >> 6) & 0x3;
+            final int mode = buffer[0] & 0x7;
+            final int stratum = buffer[1] & 0xff;
+            final long originateTime = readTimestamp(buffer, ORIGINATE_TIME_OFFSET);
+            if (response.getLength() < PACKET_SIZE || leap == LEAP_NOT_IN_SYNC
+                    || (mode != MODE_SERVER && mode != MODE_BROADCAST)
+                    || stratum == 0 || stratum > 15 || originateTime != requestTime) {
+                return -1;
+            }
+            final long receiveTime = readTimestamp(buffer, RECEIVE_TIME_OFFSET);
+            final long transmitTime = readTimestamp(buffer, TRANSMIT_TIME_OFFSET);
+            // The offset against the elapsed real time, which takes the place of the local clock
+            final long offset = ((receiveTime - requestElapsed) + (transmitTime - responseElapsed)) / 2;
+            return applyOffset(offset);
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        } finally {
+            if (socket != null) socket.close();
+        }
+    }
+
+    /**
+     * Reads an NTP timestamp as milliseconds since epoch.
+     */
+    private static long readTimestamp(byte[] buffer, int offset) {
+        final long seconds = read32(buffer, offset);
+        final long fraction = read32(buffer, offset + 4);
+        return ((seconds - OFFSET_1900_TO_1970) * 1000) + ((fraction * 1000L) >>> 32);
+    }
+
+    /**
+     * Writes milliseconds since epoch as an NTP timestamp, exactly readable by
+     * {@link #readTimestamp(byte[], int)}.
+     */
+    private static void writeTimestamp(byte[] buffer, int offset, long time) {
+        final long seconds = time / 1000L + OFFSET_1900_TO_1970;
+        final long milliseconds = time % 1000L;
+        // Rounds up so that reading it back truncates to the same milliseconds
+        final long fraction = ((milliseconds << 32) + 999L) / 1000L;
+        write32(buffer, offset, seconds);
+        write32(buffer, offset + 4, fraction);
+    }
+
+    private static long read32(byte[] buffer, int offset) {
+        return ((long) (buffer[offset] & 0xff) << 24)
+                | ((buffer[offset + 1] & 0xff) << 16)
+                | ((buffer[offset + 2] & 0xff) << 8)
+                | (buffer[offset + 3] & 0xff);
+    }
+
+    private static void write32(byte[] buffer, int offset, long value) {
+        buffer[offset] = (byte) (value >> 24);
+        buffer[offset + 1] = (byte) (value >> 16);
+        buffer[offset + 2] = (byte) (value >> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+}
@@ -14,42 +14,133 @@ import android.support.annotation.NonNull;
 public class StopwatchModel {
 
     /**
-     * The delayed time between two time updates.
+     * The interval between two time updates.
      */
-    private static final long UPDATE_DELAY_TIME = 30;
+    private static final long UPDATE_INTERVAL_TIME = 30;
 
-    private Handler mHandler;
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    /**
+     * A {@link TickScheduler} that delivers the time updates
+     */
+    private final TickScheduler mScheduler;
 
     private StopwatchState mState;
 
+    /**
+     * The callback registered by {@link #setStopwatchListener(StopwatchWatcher)}, which is also in
+     * {@link #mWatchers}
+     */
     private StopwatchWatcher mStopwatchWatcher;
 
     /**
-     * Field that indicates whether the stopwatch is running
+     * All the callbacks to dispatch to
      */
-    private boolean mRunning;
+    private final ListenerRegistry<StopwatchWatcher> mWatchers = new ListenerRegistry<>();
 
     /**
      * @see #setSuspend(boolean)
      */
     private boolean mSuspend;
 
+    /**
+     * @see #setPullMode(boolean)
+     */
+    private boolean mPullMode;
+
+    /**
+     * The metrics to record into, may be null
+     */
+    private ClockMetrics mMetrics;
+
+    /**
+     * The store to persist the state into, and the key of state in it
+     *
+     * @see #setStateStore(ClockStateStore, String)
+     */
+    private ClockStateStore mStateStore;
+    private String mStateKey;
+
     private final Runnable mTick = new Runnable() {
         @Override
         public void run() {
-            if (mHandler != null) {
-                onTimeChanged();
-                mHandler.postDelayed(mTick, UPDATE_DELAY_TIME);
-            }
+            onTimeChanged();
         }
     };
 
     public StopwatchModel() {
         mState = new StopwatchState();
+        mScheduler = new TickScheduler(mTick, UPDATE_INTERVAL_TIME);
     }
 
     private void onTimeChanged() {
-        if (mStopwatchWatcher != null) mStopwatchWatcher.onTimeChanged(getStopwatchTime());
+        if (!mWatchers.isEmpty()) {
+            final long start = System.nanoTime();
+            dispatchTimeChanged();
+            if (mMetrics != null) mMetrics.recordDispatch(start, System.nanoTime());
+        }
+    }
+
+    private void dispatchTimeChanged() {
+        final Object[] watchers = mWatchers.getListeners();
+        if (watchers.length == 0) return;
+        final long time = getStopwatchTime();
+        for (int i = 0; i < watchers.length; i++) {
+            final StopwatchWatcher watcher = (StopwatchWatcher) watchers[i];
+            if (watcher instanceof StopwatchNanosWatcher) {
+                ((StopwatchNanosWatcher) watcher).onTimeChangedNanos(time);
+            } else {
+                watcher.onTimeChanged(time / NANOS_PER_MILLI);
+            }
+        }
+    }
+
+    private void dispatchStateChanged() {
+        final Object[] watchers = mWatchers.getListeners();
+        final boolean started = isStarted();
+        final boolean paused = isPaused();
+        for (int i = 0; i < watchers.length; i++) {
+            ((StopwatchWatcher) watchers[i]).onStateChanged(started, paused);
+        }
+        if (mStateStore != null) mStateStore.save(mStateKey, this);
+    }
+
+    /**
+     * Sets the store to persist the state of this stopwatch into, under the given key. The state
+     * saved under the key is restored first, if any, so that a running stopwatch survives the death
+     * of process and reboots. Then the state is saved on every change of state.
+     *
+     * @param store the store, or null to stop persisting
+     * @param key   the key of state, which should be unique in the store
+     */
+    public void setStateStore(ClockStateStore store, String key) {
+        mStateStore = null;
+        if (store != null) {
+            store.restore(key, this);
+            mStateKey = key;
+            mStateStore = store;
+        }
+    }
+
+    /**
+     * Sets the weight which ranks this stopwatch in the {@link TickGovernor}, such as the area of
+     * its widget in pixels. The larger ones keep the full rate of updates longer when the budget
+     * of process runs short.
+     *
+     * @param weight the weight
+     */
+    public void setTickWeight(long weight) {
+        mScheduler.setWeight(weight);
+    }
+
+    /**
+     * Sets the metrics to record the tick lateness and listener dispatch time into.
+     *
+     * @param metrics The {@link ClockMetrics}, or null to stop recording
+     */
+    public void setMetrics(ClockMetrics metrics) {
+        mMetrics = metrics;
+        mScheduler.setMetrics(metrics);
     }
 
     /**
@@ -58,7 +149,7 @@ public class StopwatchModel {
      * @param handler handler to handle messages
      */
     public void attach(@NonNull Handler handler) {
-        mHandler = handler;
+        mScheduler.attach(handler);
         updateRunning();
     }
 
@@ -67,8 +158,7 @@ public class StopwatchModel {
      */
     public void detach() {
         setSuspend(true);
-        mHandler.removeCallbacks(mTick);
-        updateRunning();
+        mScheduler.detach();
     }
 
     /**
@@ -83,10 +173,34 @@ public class StopwatchModel {
         }
     }
 
+    /**
+     * Sets whether the owner pulls the time from the anchors of {@link #getState()} rather than
+     * receives it on every tick. In the pull mode the model has no periodic work, and the watcher
+     * receives the time only on start, pause, resume, reset and lap.
+     *
+     * @param pullMode true for the pull mode, false for ticking
+     */
+    public void setPullMode(boolean pullMode) {
+        if (mPullMode != pullMode) {
+            mPullMode = pullMode;
+            updateRunning();
+        }
+    }
+
+    /**
+     * Indicates whether the model is in the pull mode.
+     *
+     * @return true if in the pull mode, false otherwise
+     */
+    public boolean isPullMode() {
+        return mPullMode;
+    }
+
     /**
      * Starts or resumes the stopwatch.
      */
     public void startOrResume() {
+        mScheduler.notifyInteraction();
         if (!isStarted()) {
             start();
         } else {
@@ -113,8 +227,7 @@ public class StopwatchModel {
             final long pauseTime = mState.pause;
             mState.base += (getElapsedTime() - pauseTime);
             mState.pause = StopwatchState.DEFAULT_TIME;
-            if (mStopwatchWatcher != null)
-                mStopwatchWatcher.onStateChanged(isStarted(), isPaused());
+            dispatchStateChanged();
             updateRunning();
         }
     }
@@ -123,10 +236,10 @@ public class StopwatchModel {
      * Pauses the stopwatch. Nothing happens if the stopwatch isn't started or has been paused.
      */
     public void pause() {
+        mScheduler.notifyInteraction();
         if (isStarted() && !isPaused()) {
             mState.pause = getElapsedTime();
-            if (mStopwatchWatcher != null)
-                mStopwatchWatcher.onStateChanged(isStarted(), isPaused());
+            dispatchStateChanged();
             updateRunning();
         }
     }
@@ -134,7 +247,7 @@ public class StopwatchModel {
     /**
      * Gets current time of stopwatch.
      *
-     * @return time in milliseconds
+     * @return time in nanoseconds
      */
     private long getStopwatchTime() {
         if (!isStarted()) return StopwatchState.DEFAULT_TIME;
@@ -146,13 +259,14 @@ public class StopwatchModel {
     }
 
     /**
-     * Get milliseconds since boot.
+     * Get nanoseconds since boot. All the arithmetic on it is done with differences of long
+     * values, which do not overflow within hundreds of years of uptime.
      *
-     * @return milliseconds since boot
-     * @see SystemClock#elapsedRealtime()
+     * @return nanoseconds since boot
+     * @see SystemClock#elapsedRealtimeNanos()
      */
     private long getElapsedTime() {
-        return SystemClock.elapsedRealtime();
+        return SystemClock.elapsedRealtimeNanos();
     }
 
     private void setStarted(boolean started) {
@@ -161,8 +275,7 @@ public class StopwatchModel {
             if (started) {
                 mState.base = getElapsedTime();
             }
-            if (mStopwatchWatcher != null)
-                mStopwatchWatcher.onStateChanged(isStarted(), isPaused());
+            dispatchStateChanged();
             updateRunning();
         }
     }
@@ -171,8 +284,17 @@ public class StopwatchModel {
      * Adds a lap. This method will call {@link StopwatchWatcher#onLap(long)}.
      */
     public void lap() {
-        if (mStopwatchWatcher != null) {
-            mStopwatchWatcher.onLap(getStopwatchTime());
+        mScheduler.notifyInteraction();
+        final Object[] watchers = mWatchers.getListeners();
+        if (watchers.length == 0) return;
+        final long time = getStopwatchTime();
+        for (int i = 0; i < watchers.length; i++) {
+            final StopwatchWatcher watcher = (StopwatchWatcher) watchers[i];
+            if (watcher instanceof StopwatchNanosWatcher) {
+                ((StopwatchNanosWatcher) watcher).onLapNanos(time);
+            } else {
+                watcher.onLap(time / NANOS_PER_MILLI);
+            }
         }
     }
 
@@ -198,22 +320,16 @@ public class StopwatchModel {
      * Resets the stopwatch.
      */
     public void reset() {
+        mScheduler.notifyInteraction();
         setStarted(false);
         mState.clear();
-        if (mStopwatchWatcher != null) mStopwatchWatcher.onTimeChanged(getStopwatchTime());
+        dispatchTimeChanged();
     }
 
     private void updateRunning() {
         final boolean started = mState.started;
-        boolean running = !mSuspend && started && !isPaused();
-        if (mRunning != running && mHandler != null) {
-            if (running) {
-                mHandler.post(mTick);
-            } else {
-                mHandler.removeCallbacks(mTick);
-            }
-            mRunning = running;
-        }
+        boolean running = !mSuspend && !mPullMode && started && !isPaused();
+        mScheduler.setRunning(running);
     }
 
     /**
@@ -232,24 +348,70 @@ public class StopwatchModel {
      */
     public void setState(StopwatchState ss) {
         mState = new StopwatchState(ss);
-        if (mStopwatchWatcher != null) {
-            mStopwatchWatcher.onStateChanged(isStarted(), isPaused());
-            mStopwatchWatcher.onTimeChanged(getStopwatchTime());
-        }
+        dispatchStateChanged();
+        dispatchTimeChanged();
         updateRunning();
     }
 
     /**
-     * Register a callback to be invoked when the state of a stopwatch is changed
+     * Register a callback to be invoked when the state of a stopwatch is changed. It replaces the
+     * callback set by the last call, and leaves those added by {@link #addStopwatchListener(StopwatchWatcher)}.
      *
      * @param watcher The callback to run
      */
     public void setStopwatchListener(StopwatchWatcher watcher) {
         if (mStopwatchWatcher != watcher) {
+            mWatchers.replace(mStopwatchWatcher, watcher);
             mStopwatchWatcher = watcher;
         }
     }
 
+    /**
+     * Adds a callback to be invoked when the state of a stopwatch is changed, along with the others.
+     *
+     * @param watcher The callback to add
+     */
+    public void addStopwatchListener(@NonNull StopwatchWatcher watcher) {
+        mWatchers.add(watcher);
+    }
+
+    /**
+     * Removes a callback added by {@link #addStopwatchListener(StopwatchWatcher)}.
+     *
+     * @param watcher The callback to remove
+     */
+    public void removeStopwatchListener(StopwatchWatcher watcher) {
+        if (watcher == mStopwatchWatcher) mStopwatchWatcher = null;
+        mWatchers.remove(watcher);
+    }
+
+    /**
+     * Gets the callback registered by {@link #setStopwatchListener(StopwatchWatcher)}.
+     *
+     * @return the callback, or null
+     */
+    public StopwatchWatcher getStopwatchListener() {
+        return mStopwatchWatcher;
+    }
+
+    /**
+     * Indicates whether any callback is registered, such as before the owner detaches a shared model.
+     *
+     * @return true if any, false otherwise
+     */
+    public boolean hasListeners() {
+        return !mWatchers.isEmpty();
+    }
+
+    /**
+     * Delivers the current state and time to the callbacks immediately, such as after the callback
+     * has been replaced.
+     */
+    public void refresh() {
+        dispatchStateChanged();
+        dispatchTimeChanged();
+    }
+
     /**
      * Interface definition for a callback to be invoked when the state of a stopwatch is changed.
      */
@@ -262,6 +424,18 @@ public class StopwatchModel {
         void onLap(long lapTimeInMillis);
     }
 
+    /**
+     * A {@link StopwatchWatcher} which receives the time in nanoseconds, the precision the model
+     * keeps. Its {@link #onTimeChangedNanos(long)} and {@link #onLapNanos(long)} are called instead
+     * of {@link #onTimeChanged(long)} and {@link #onLap(long)}.
+     */
+    public interface StopwatchNanosWatcher extends StopwatchWatcher {
+
+        void onTimeChangedNanos(long timeInNanos);
+
+        void onLapNanos(long lapTimeInNanos);
+    }
+
     /**
      * A Parcelable implementation that used to hold the state of stopwatch.
      */
@@ -273,16 +447,16 @@ public class StopwatchModel {
         private static final int DEFAULT_TIME = 0;
 
         /**
-         * Field that used to hold the elapsed real time at the start of stopwatch.
+         * Field that used to hold the elapsed real time in nanoseconds at the start of stopwatch.
          *
-         * @see SystemClock#elapsedRealtime()
+         * @see SystemClock#elapsedRealtimeNanos()
          */
         private long base = DEFAULT_TIME;
 
         /**
-         * Field that used to hold the elapsed real time at the pause of stopwatch.
+         * Field that used to hold the elapsed real time in nanoseconds at the pause of stopwatch.
          *
-         * @see SystemClock#elapsedRealtime()
+         * @see SystemClock#elapsedRealtimeNanos()
          */
         private long pause = DEFAULT_TIME;
 
@@ -308,6 +482,76 @@ public class StopwatchModel {
             pause = in.readLong();
         }
 
+        /**
+         * Gets the elapsed real time in nanoseconds at the start of stopwatch, which has been shifted
+         * by the paused periods.
+         *
+         * @return the base time
+         * @see SystemClock#elapsedRealtimeNanos()
+         */
+        public long getBase() {
+            return base;
+        }
+
+        /**
+         * Gets the elapsed real time in nanoseconds at the pause of stopwatch.
+         *
+         * @return the pause time, or 0 if not paused
+         * @see SystemClock#elapsedRealtimeNanos()
+         */
+        public long getPause() {
+            return pause;
+        }
+
+        /**
+         * Indicates whether the stopwatch has been started.
+         *
+         * @return true if started, false otherwise
+         */
+        public boolean isStarted() {
+            return started;
+        }
+
+        /**
+         * Indicates whether the stopwatch has been paused.
+         *
+         * @return true if paused, false otherwise
+         */
+        public boolean isPaused() {
+            return started && pause != DEFAULT_TIME;
+        }
+
+        /**
+         * Gets the time of stopwatch at the given elapsed real time.
+         *
+         * @param now the elapsed real time in nanoseconds
+         * @return time in nanoseconds
+         */
+        long getTime(long now) {
+            if (!started) return DEFAULT_TIME;
+            return Math.max(0, (pause != DEFAULT_TIME ? pause : now) - base);
+        }
+
+        /**
+         * Creates a state which has the given time at the given elapsed real time, such as when a
+         * persisted state is restored.
+         *
+         * @param started whether the stopwatch has been started
+         * @param paused  whether the stopwatch has been paused
+         * @param time    the time of stopwatch in nanoseconds
+         * @param now     the elapsed real time in nanoseconds to anchor at
+         * @return The {@link StopwatchState}
+         */
+        static StopwatchState create(boolean started, boolean paused, long time, long now) {
+            final StopwatchState state = new StopwatchState();
+            state.started = started;
+            if (started) {
+                state.base = now - Math.max(0, time);
+                if (paused) state.pause = now;
+            }
+            return state;
+        }
+
         /**
          * Clears the holding state
          */
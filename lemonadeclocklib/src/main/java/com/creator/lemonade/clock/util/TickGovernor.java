@@ -0,0 +1,256 @@
+package com.creator.lemonade.clock.util;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * A process-wide governor which caps the total ticks per second of all the running
+ * {@link TickScheduler}s. The schedulers are ranked by recent user interaction first and then by
+ * their weight, such as the area of widget. The full rate is given to the schedulers in rank order
+ * while the budget lasts, and the others are degraded to one tick per second.
+ * <p>
+ * The budget is tightened when the device is in power-save mode, once
+ * {@link #monitorPowerState(Context)} has been called, and when the thermal status set by
+ * {@link #setThermalStatus(int)} rises.
+ *
+ * @author Felix.Liang
+ */
+@SuppressWarnings("unused")
+public class TickGovernor {
+
+    /**
+     * The default budget of ticks per second
+     */
+    private static final int DEFAULT_TICK_BUDGET = 240;
+
+    /**
+     * The budget of ticks per second in power-save mode
+     */
+    private static final int POWER_SAVE_TICK_BUDGET = 60;
+
+    /**
+     * The interval of degraded schedulers
+     */
+    private static final long DEGRADED_INTERVAL = 1000;
+
+    /**
+     * The time during which an interacted scheduler is ranked before the others
+     */
+    private static final long INTERACTION_WINDOW = 5000;
+
+    private static TickGovernor sInstance;
+
+    private final ArrayList<TickScheduler> mClients = new ArrayList<>();
+
+    /**
+     * The temporary list for ranking the clients
+     */
+    private final ArrayList<TickScheduler> mRanked = new ArrayList<>();
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private int mTickBudget = DEFAULT_TICK_BUDGET;
+
+    private boolean mPowerSaveMode;
+
+    /**
+     * The thermal status, which has the values of {@code PowerManager.THERMAL_STATUS_*}
+     */
+    private int mThermalStatus;
+
+    private boolean mMonitoring;
+
+    /**
+     * The uptime used by the comparator while ranking
+     */
+    private long mRankTime;
+
+    private final Comparator<TickScheduler> mRankComparator = new Comparator<TickScheduler>() {
+        @Override
+        public int compare(TickScheduler a, TickScheduler b) {
+            final boolean aRecent = isRecentlyInteracted(a, mRankTime);
+            final boolean bRecent = isRecentlyInteracted(b, mRankTime);
+            if (aRecent != bRecent) return aRecent ? -1 : 1;
+            if (aRecent && a.mLastInteraction != b.mLastInteraction) {
+                return a.mLastInteraction > b.mLastInteraction ? -1 : 1;
+            }
+            return a.mWeight == b.mWeight ? 0 : (a.mWeight > b.mWeight ? -1 : 1);
+        }
+    };
+
+    private final Runnable mRebalance = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (TickGovernor.this) {
+                rebalance();
+            }
+        }
+    };
+
+    private final BroadcastReceiver mPowerSaveReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            updatePowerSaveMode(context);
+        }
+    };
+
+    private TickGovernor() {
+    }
+
+    /**
+     * Gets the governor of this process.
+     *
+     * @return The {@link TickGovernor}
+     */
+    @NonNull
+    public static synchronized TickGovernor getInstance() {
+        if (sInstance == null) {
+            sInstance = new TickGovernor();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Starts to follow the power-save mode of device. Calling it more than once has no effect.
+     *
+     * @param context the context, whose application context is kept
+     */
+    public void monitorPowerState(@NonNull Context context) {
+        final Context appContext = context.getApplicationContext();
+        synchronized (this) {
+            if (mMonitoring) return;
+            mMonitoring = true;
+        }
+        appContext.registerReceiver(mPowerSaveReceiver,
+                new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED), null, mHandler);
+        updatePowerSaveMode(appContext);
+    }
+
+    private void updatePowerSaveMode(Context context) {
+        final PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        final boolean powerSaveMode = powerManager != null && powerManager.isPowerSaveMode();
+        synchronized (this) {
+            if (mPowerSaveMode != powerSaveMode) {
+                mPowerSaveMode = powerSaveMode;
+                rebalance();
+            }
+        }
+    }
+
+    /**
+     * Sets the budget of ticks per second, which is used when the device is neither in power-save
+     * mode nor throttled. Default is 240.
+     *
+     * @param ticksPerSecond the budget
+     */
+    public synchronized void setTickBudget(int ticksPerSecond) {
+        if (mTickBudget != ticksPerSecond) {
+            mTickBudget = ticksPerSecond;
+            rebalance();
+        }
+    }
+
+    /**
+     * Sets the thermal status of device, the budget is divided by one plus the status. The status
+     * should be forwarded from {@code PowerManager.OnThermalStatusChangedListener} on devices which
+     * support it.
+     *
+     * @param status the thermal status, one of {@code PowerManager.THERMAL_STATUS_*}
+     */
+    public synchronized void setThermalStatus(int status) {
+        if (mThermalStatus != status) {
+            mThermalStatus = Math.max(0, status);
+            rebalance();
+        }
+    }
+
+    /**
+     * Gets the budget of ticks per second which is in effect.
+     *
+     * @return the budget
+     */
+    public synchronized int getEffectiveBudget() {
+        final int budget = mPowerSaveMode ? Math.min(mTickBudget, POWER_SAVE_TICK_BUDGET) : mTickBudget;
+        return budget / (1 + mThermalStatus);
+    }
+
+    synchronized void register(TickScheduler scheduler) {
+        if (!mClients.contains(scheduler)) {
+            mClients.add(scheduler);
+            rebalance();
+        }
+    }
+
+    synchronized void unregister(TickScheduler scheduler) {
+        if (mClients.remove(scheduler)) {
+            scheduler.setGovernedInterval(0);
+            rebalance();
+        }
+    }
+
+    synchronized void setWeight(TickScheduler scheduler, long weight) {
+        if (scheduler.mWeight != weight) {
+            scheduler.mWeight = weight;
+            if (mClients.contains(scheduler)) rebalance();
+        }
+    }
+
+    synchronized void notifyInteraction(TickScheduler scheduler) {
+        scheduler.mLastInteraction = SystemClock.uptimeMillis();
+        if (mClients.contains(scheduler)) rebalance();
+    }
+
+    synchronized void onIntervalChanged(TickScheduler scheduler) {
+        if (mClients.contains(scheduler)) rebalance();
+    }
+
+    private static boolean isRecentlyInteracted(TickScheduler scheduler, long now) {
+        return scheduler.mLastInteraction != 0 && now - scheduler.mLastInteraction < INTERACTION_WINDOW;
+    }
+
+    /**
+     * Gives the full rate to the clients in rank order while the budget lasts, and degrades the others.
+     * Must be called with the lock held.
+     */
+    private void rebalance() {
+        mHandler.removeCallbacks(mRebalance);
+        final long now = SystemClock.uptimeMillis();
+        mRankTime = now;
+        mRanked.clear();
+        mRanked.addAll(mClients);
+        Collections.sort(mRanked, mRankComparator);
+        float remaining = getEffectiveBudget();
+        long nextExpiry = Long.MAX_VALUE;
+        for (int i = 0, size = mRanked.size(); i < size; i++) {
+            final TickScheduler scheduler = mRanked.get(i);
+            final long interval = scheduler.getInterval();
+            final float cost = 1000f / interval;
+            if (interval >= DEGRADED_INTERVAL || cost <= remaining) {
+                scheduler.setGovernedInterval(0);
+                remaining -= cost;
+            } else {
+                scheduler.setGovernedInterval(DEGRADED_INTERVAL);
+                remaining -= 1000f / DEGRADED_INTERVAL;
+            }
+            if (isRecentlyInteracted(scheduler, now)) {
+                nextExpiry = Math.min(nextExpiry, scheduler.mLastInteraction + INTERACTION_WINDOW);
+            }
+        }
+        mRanked.clear();
+        if (nextExpiry != Long.MAX_VALUE) {
+            // The rank changes when an interaction expires
+            mHandler.postAtTime(mRebalance, nextExpiry);
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.creator.lemonade.clock.util;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Message;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.support.annotation.NonNull;
+
+/**
+ * This class schedules ticks against an absolute deadline grid rather than re-posting a delayed
+ * message after each tick, so that neither the execution time of a tick nor the lateness of the
+ * Looper accumulates into the intervals. The deadlines are kept in {@link SystemClock#uptimeMillis()}
+ * base and the messages are sent as asynchronous messages, so that they are not held back by sync
+ * barriers. A tick which is delivered too late to catch up skips the missed slots instead of bunching them.
+ * <p>
+ * While running, the scheduler is governed by the {@link TickGovernor}, which may stretch the interval
+ * to keep the total ticks of process within its budget.
+ *
+ * @author Felix.Liang
+ */
+@SuppressWarnings("unused")
+public class TickScheduler {
+
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    /**
+     * The target to run on each tick
+     */
+    private final Runnable mTarget;
+
+    private volatile Handler mHandler;
+
+    /**
+     * The interval between two ticks in milliseconds
+     */
+    private volatile long mInterval;
+
+    /**
+     * The interval given by the governor, or 0 if not limited. It is written by the governor from
+     * any thread, and read on the thread of handler.
+     */
+    private volatile long mGovernedInterval;
+
+    /**
+     * The weight and the uptime of last interaction, which rank this scheduler in the governor.
+     * They are guarded by the lock of governor.
+     */
+    long mWeight;
+    long mLastInteraction;
+
+    private final TickGovernor mGovernor = TickGovernor.getInstance();
+
+    /**
+     * The uptime of next deadline on the grid
+     */
+    private long mNextDeadline;
+
+    /**
+     * The uptime which the last tick should be aligned to, or {@link Long#MAX_VALUE} if unlimited
+     *
+     * @see #setEndTime(long)
+     */
+    private long mEndTime = Long.MAX_VALUE;
+
+    /**
+     * Field that indicates whether the ticks should be scheduled
+     */
+    private boolean mRunning;
+
+    /**
+     * Field that indicates whether a tick message is pending in the handler
+     */
+    private boolean mScheduled;
+
+    /**
+     * The metrics to record into, may be null
+     */
+    private ClockMetrics mMetrics;
+
+    private final Runnable mTick = new Runnable() {
+        @Override
+        public void run() {
+            mScheduled = false;
+            if (mHandler == null || !mRunning) return;
+            final long deadline = mNextDeadline;
+            if (mMetrics != null) {
+                // System.nanoTime() shares the monotonic base of SystemClock#uptimeMillis() on Android
+                mMetrics.recordLateness(deadline * NANOS_PER_MILLI, System.nanoTime());
+            }
+            Trace.beginSection("LemonadeClock#tick");
+            try {
+                mTarget.run();
+            } finally {
+                Trace.endSection();
+            }
+            if (mRunning && !mScheduled) {
+                scheduleNext(deadline);
+            }
+        }
+    };
+
+    /**
+     * Restarts the grid, when the governor shortens the interval
+     */
+    private final Runnable mRegrid = new Runnable() {
+        @Override
+        public void run() {
+            if (mScheduled) tickNow();
+        }
+    };
+
+    /**
+     * @param target   the target to run on each tick
+     * @param interval the interval between two ticks in milliseconds
+     */
+    public TickScheduler(@NonNull Runnable target, long interval) {
+        mTarget = target;
+        mInterval = interval;
+    }
+
+    /**
+     * This method should be called when the owner of this scheduler attaches to its environment.
+     *
+     * @param handler handler to handle messages
+     */
+    public void attach(@NonNull Handler handler) {
+        if (mHandler != handler) {
+            cancel();
+            if (mHandler != null) mHandler.removeCallbacks(mRegrid);
+            mHandler = handler;
+            if (mRunning) {
+                mGovernor.register(this);
+                scheduleAt(SystemClock.uptimeMillis());
+            }
+        }
+    }
+
+    /**
+     * This method should be called when the owner of this scheduler detaches from its environment.
+     */
+    public void detach() {
+        cancel();
+        if (mHandler != null) mHandler.removeCallbacks(mRegrid);
+        mHandler = null;
+        mGovernor.unregister(this);
+    }
+
+    /**
+     * Sets whether to schedule ticks. When it starts, the first tick is delivered immediately and
+     * the following ticks are aligned to the grid starting from that time.
+     *
+     * @param running true for scheduling ticks, false otherwise
+     */
+    public void setRunning(boolean running) {
+        if (mRunning != running) {
+            mRunning = running;
+            if (running) {
+                if (mHandler != null) {
+                    mGovernor.register(this);
+                    scheduleAt(SystemClock.uptimeMillis());
+                }
+            } else {
+                cancel();
+                mGovernor.unregister(this);
+            }
+        }
+    }
+
+    /**
+     * Indicates whether this scheduler is scheduling ticks.
+     *
+     * @return true if scheduling, false otherwise
+     */
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * Delivers a tick immediately and restarts the grid from now, if it is running.
+     */
+    public void tickNow() {
+        if (mRunning && mHandler != null) {
+            cancel();
+            scheduleAt(SystemClock.uptimeMillis());
+        }
+    }
+
+    /**
+     * Moves the next tick to the given delay from now, and restarts the grid from that time, if it
+     * is running. This is used to align the grid to an outside boundary, such as the start of a
+     * minute of wall clock.
+     *
+     * @param delay delay in milliseconds
+     */
+    public void scheduleAfter(long delay) {
+        if (mRunning && mHandler != null) {
+            cancel();
+            scheduleAt(SystemClock.uptimeMillis() + Math.max(0, delay));
+        }
+    }
+
+    /**
+     * Sets the interval between two ticks. The new interval takes effect from the next tick.
+     *
+     * @param interval interval in milliseconds
+     */
+    public void setInterval(long interval) {
+        if (interval > 0 && mInterval != interval) {
+            mInterval = interval;
+            mGovernor.onIntervalChanged(this);
+        }
+    }
+
+    /**
+     * Gets the interval between two ticks.
+     *
+     * @return interval in milliseconds
+     */
+    public long getInterval() {
+        return mInterval;
+    }
+
+    /**
+     * Gets the interval which is in effect, which may be stretched by the {@link TickGovernor}.
+     *
+     * @return interval in milliseconds
+     */
+    public long getEffectiveInterval() {
+        return Math.max(mInterval, mGovernedInterval);
+    }
+
+    /**
+     * Sets the weight which ranks this scheduler in the {@link TickGovernor}, such as the area of
+     * widget in pixels. The scheduler with larger weight keeps the full rate longer.
+     *
+     * @param weight the weight
+     */
+    public void setWeight(long weight) {
+        mGovernor.setWeight(this, weight);
+    }
+
+    /**
+     * Notifies that the user has just interacted with the owner of this scheduler, which ranks this
+     * scheduler first in the {@link TickGovernor} for a while.
+     */
+    public void notifyInteraction() {
+        mGovernor.notifyInteraction(this);
+    }
+
+    /**
+     * Called by the {@link TickGovernor} from any thread.
+     *
+     * @param interval the interval given by the governor, or 0 if not limited
+     */
+    void setGovernedInterval(long interval) {
+        final long oldInterval = mGovernedInterval;
+        if (oldInterval != interval) {
+            mGovernedInterval = interval;
+            final Handler handler = mHandler;
+            if (interval < oldInterval && handler != null) {
+                handler.post(mRegrid);
+            }
+        }
+    }
+
+    /**
+     * Sets the uptime that a tick must be delivered at, even if it is off the grid. This is used
+     * to align the last tick to a known end, such as the timeout of a timer.
+     *
+     * @param uptimeMillis the end time in {@link SystemClock#uptimeMillis()} base,
+     *                     or {@link Long#MAX_VALUE} for no end
+     */
+    public void setEndTime(long uptimeMillis) {
+        mEndTime = uptimeMillis;
+    }
+
+    /**
+     * Sets the metrics to record the lateness and skipped slots into.
+     *
+     * @param metrics The {@link ClockMetrics}, or null to stop recording
+     */
+    public void setMetrics(ClockMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * Schedules the next tick on the grid after the given deadline, skips the slots that have
+     * already been missed.
+     *
+     * @param lastDeadline the deadline of last tick
+     */
+    private void scheduleNext(long lastDeadline) {
+        final long now = SystemClock.uptimeMillis();
+        final long interval = getEffectiveInterval();
+        long next = lastDeadline + interval;
+        if (next <= now) {
+            final long skipped = (now - lastDeadline) / interval;
+            next = lastDeadline + (skipped + 1) * interval;
+            if (mMetrics != null) mMetrics.recordSkippedSlots(skipped);
+        }
+        if (mEndTime > lastDeadline && mEndTime < next) {
+            next = mEndTime;
+        }
+        scheduleAt(next);
+    }
+
+    private void scheduleAt(long deadline) {
+        mNextDeadline = deadline;
+        final Message msg = Message.obtain(mHandler, mTick);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP_MR1) {
+            msg.setAsynchronous(true);
+        }
+        mHandler.sendMessageAtTime(msg, deadline);
+        mScheduled = true;
+    }
+
+    private void cancel() {
+        if (mHandler != null) {
+            mHandler.removeCallbacks(mTick);
+        }
+        mScheduled = false;
+    }
+}
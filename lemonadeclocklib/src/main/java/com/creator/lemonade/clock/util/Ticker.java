@@ -21,9 +21,11 @@ public class Ticker {
     private boolean mIs24Format;
 
     /**
-     * The delayed time before next time update
+     * The interval between two time updates
      */
-    private static final int UPDATE_DELAY_TIME = 30;
+    private static final int UPDATE_INTERVAL_TIME = 30;
+
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
 
     /**
      * The application environment this ticker lives in
@@ -33,20 +35,49 @@ public class Ticker {
     private Handler mHandler;
     private String mTimeZone;
 
+    /**
+     * A {@link TickScheduler} that delivers the time updates
+     */
+    private final TickScheduler mScheduler;
+
     /**
      * {@link Calendar} for recording current time
      */
     private Calendar mTime;
 
     /**
-     * Listener to  be notified upon current time update
+     * Listener to  be notified upon current time update, which is also in {@link #mListeners}
      */
     private OnTimeUpdateListener mOnTimeUpdateListener;
 
     /**
-     * The current updating state of the ticker
+     * All the listeners to be notified upon current time update
+     */
+    private final ListenerRegistry<OnTimeUpdateListener> mListeners = new ListenerRegistry<>();
+
+    /**
+     * @see #setSuspend(boolean)
+     */
+    private boolean mSuspend;
+
+    /**
+     * Field that indicates whether the ticks are aligned to the start of every minute
+     *
+     * @see #setAmbientMode(boolean)
+     */
+    private boolean mAmbientMode;
+
+    /**
+     * The metrics to record into, may be null
+     */
+    private ClockMetrics mMetrics;
+
+    /**
+     * The source of wall time, acquired while attached
+     *
+     * @see #setTimeSource(TimeSource)
      */
-    private boolean mUpdating;
+    private TimeSource mTimeSource = TimeSource.SYSTEM;
 
     private final BroadcastReceiver mIntentReceiver = new BroadcastReceiver() {
         @Override
@@ -67,7 +98,10 @@ public class Ticker {
         @Override
         public void run() {
             onTimeChanged();
-            mHandler.postDelayed(mTick, UPDATE_DELAY_TIME);
+            if (mAmbientMode) {
+                // The uptime grid drifts from the wall clock, so it is re-aligned on every tick
+                mScheduler.scheduleAfter(MILLIS_PER_MINUTE - mTimeSource.currentTimeMillis() % MILLIS_PER_MINUTE);
+            }
         }
     };
 
@@ -86,6 +120,8 @@ public class Ticker {
     public Ticker(Context context, String timeZone) {
         mContext = context;
         mTimeZone = timeZone;
+        mScheduler = new TickScheduler(mTick, UPDATE_INTERVAL_TIME);
+        TickGovernor.getInstance().monitorPowerState(context);
         update24Format(context);
         createTime(mTimeZone);
     }
@@ -110,7 +146,9 @@ public class Ticker {
      */
     public void attach(@NonNull Handler handler) {
         mHandler = handler;
-        setUpdating(true);
+        mTimeSource.acquire();
+        mScheduler.attach(handler);
+        updateRunning();
         registerReceiver();
     }
 
@@ -119,8 +157,9 @@ public class Ticker {
      */
     public void detach() {
         unRegisterReceiver();
-        setUpdating(false);
-        mOnTimeUpdateListener = null;
+        mScheduler.detach();
+        mTimeSource.release();
+        mHandler = null;
     }
 
     private void registerReceiver() {
@@ -135,21 +174,118 @@ public class Ticker {
     }
 
     private void onTimeChanged() {
-        if (mOnTimeUpdateListener != null) {
-            mTime.setTimeInMillis(System.currentTimeMillis());
-            mOnTimeUpdateListener.onTimeChanged(mTime);
+        final Object[] listeners = mListeners.getListeners();
+        if (listeners.length > 0) {
+            mTime.setTimeInMillis(mTimeSource.currentTimeMillis());
+            final long start = System.nanoTime();
+            for (int i = 0; i < listeners.length; i++) {
+                ((OnTimeUpdateListener) listeners[i]).onTimeChanged(mTime);
+            }
+            if (mMetrics != null) mMetrics.recordDispatch(start, System.nanoTime());
+        }
+    }
+
+    /**
+     * Sets whether to update the time only at the start of every minute, such as on always-on
+     * displays. The time is updated immediately when the mode changes.
+     *
+     * @param ambientMode true for one update per minute, false for continuous updates
+     */
+    public void setAmbientMode(boolean ambientMode) {
+        if (mAmbientMode != ambientMode) {
+            mAmbientMode = ambientMode;
+            mScheduler.setInterval(ambientMode ? MILLIS_PER_MINUTE : UPDATE_INTERVAL_TIME);
+            mScheduler.tickNow();
+        }
+    }
+
+    /**
+     * Indicates whether the time is updated only at the start of every minute.
+     *
+     * @return true if in ambient mode, false otherwise
+     */
+    public boolean isAmbientMode() {
+        return mAmbientMode;
+    }
+
+    /**
+     * Sets the weight which ranks this ticker in the {@link TickGovernor}, such as the area of
+     * its widget in pixels. The larger ones keep the full rate of updates longer when the budget
+     * of process runs short.
+     *
+     * @param weight the weight
+     */
+    public void setTickWeight(long weight) {
+        mScheduler.setWeight(weight);
+    }
+
+    /**
+     * Sets the metrics to record the tick lateness and listener dispatch time into.
+     *
+     * @param metrics The {@link ClockMetrics}, or null to stop recording
+     */
+    public void setMetrics(ClockMetrics metrics) {
+        mMetrics = metrics;
+        mScheduler.setMetrics(metrics);
+    }
+
+    /**
+     * Sets the source of wall time, such as a {@link SntpTimeSource} shared by all the clocks. The
+     * time is updated immediately.
+     *
+     * @param timeSource The {@link TimeSource}, or null for {@link TimeSource#SYSTEM}
+     */
+    public void setTimeSource(TimeSource timeSource) {
+        if (timeSource == null) timeSource = TimeSource.SYSTEM;
+        if (mTimeSource == timeSource) return;
+        if (mHandler != null) {
+            timeSource.acquire();
+            mTimeSource.release();
         }
+        mTimeSource = timeSource;
+        onTimeChanged();
     }
 
     /**
-     * Sets Listener to be notified for current time updates
+     * Gets the source of wall time.
+     *
+     * @return The {@link TimeSource}
+     */
+    @NonNull
+    public TimeSource getTimeSource() {
+        return mTimeSource;
+    }
+
+    /**
+     * Sets Listener to be notified for current time updates. It replaces the listener set by the
+     * last call, and leaves those added by {@link #addOnTimeUpdateListener(OnTimeUpdateListener)}.
      *
      * @param listener The listener
      */
     public void setOnTimeUpdateListener(OnTimeUpdateListener listener) {
+        mListeners.replace(mOnTimeUpdateListener, listener);
         mOnTimeUpdateListener = listener;
     }
 
+    /**
+     * Adds a listener to be notified for current time updates, along with the others.
+     *
+     * @param listener The listener
+     */
+    public void addOnTimeUpdateListener(@NonNull OnTimeUpdateListener listener) {
+        mListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added by {@link #addOnTimeUpdateListener(OnTimeUpdateListener)}.
+     *
+     * @param listener The listener
+     */
+    public void removeOnTimeUpdateListener(OnTimeUpdateListener listener) {
+        if (listener == mOnTimeUpdateListener) mOnTimeUpdateListener = null;
+        mListeners.remove(listener);
+    }
+
     /**
      * Interface to listener for updates of current time
      */
@@ -195,20 +331,19 @@ public class Ticker {
     }
 
     /**
-     * Sets current updating state of the ticker
+     * Sets whether to suspend the updates of time, such as while the clock can't be seen. The time
+     * is updated once immediately when it resumes.
      *
-     * @param update True if the ticker is updating, false otherwise
+     * @param suspend true for suspend, false otherwise
      */
-    private void setUpdating(boolean update) {
-        if (mHandler != null) {
-            if (mUpdating != update) {
-                if (update) {
-                    mHandler.post(mTick);
-                } else {
-                    mHandler.removeCallbacks(mTick);
-                }
-                mUpdating = update;
-            }
+    public void setSuspend(boolean suspend) {
+        if (mSuspend != suspend) {
+            mSuspend = suspend;
+            updateRunning();
         }
     }
+
+    private void updateRunning() {
+        mScheduler.setRunning(!mSuspend);
+    }
 }
@@ -0,0 +1,47 @@
+package com.creator.lemonade.clock.util;
+
+/**
+ * A source of wall time for {@link Ticker}. A source may be shared by many tickers, each of which
+ * acquires it while attached, so that a source which polls a reference only does it while used.
+ *
+ * @author Felix.Liang
+ * @see Ticker#setTimeSource(TimeSource)
+ * @see SntpTimeSource
+ */
+public interface TimeSource {
+
+    /**
+     * The time of device, which jumps when the clock of device is set.
+     */
+    TimeSource SYSTEM = new TimeSource() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public void acquire() {
+        }
+
+        @Override
+        public void release() {
+        }
+    };
+
+    /**
+     * Gets the current wall time, may be called on any thread.
+     *
+     * @return milliseconds since epoch
+     */
+    long currentTimeMillis();
+
+    /**
+     * Called when a user of this source attaches to its environment.
+     */
+    void acquire();
+
+    /**
+     * Called when a user of this source detaches from its environment, balancing {@link #acquire()}.
+     */
+    void release();
+}
@@ -6,6 +6,8 @@ import android.os.Parcelable;
 import android.os.SystemClock;
 import android.support.annotation.NonNull;
 
+import java.util.Arrays;
+
 /**
  * This class defines the basic logic and holds the state of a timer.
  *
@@ -14,59 +16,230 @@ import android.support.annotation.NonNull;
 public class TimerModel {
 
     /**
-     * The delayed time between two time updates.
+     * The interval between two time updates.
      */
-    private static final long UPDATE_DELAY_TIME = 30;
+    private static final long UPDATE_INTERVAL_TIME = 30;
 
-    private Handler mHandler;
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    /**
+     * A {@link TickScheduler} that delivers the time updates
+     */
+    private final TickScheduler mScheduler;
 
     private TimerState mState;
 
+    /**
+     * The callback registered by {@link #setTimerListener(TimerWatcher)}, which is also in
+     * {@link #mWatchers}
+     */
     private TimerWatcher mTimerWatcher;
 
     /**
-     * Field that indicates whether the timer is running
+     * All the callbacks to dispatch to
+     */
+    private final ListenerRegistry<TimerWatcher> mWatchers = new ListenerRegistry<>();
+
+    /**
+     * The callbacks of segments, which are optional to {@link TimerWatcher}
      */
-    private boolean mRunning;
+    private final ListenerRegistry<SegmentWatcher> mSegmentWatchers = new ListenerRegistry<>();
 
     /**
      * @see #setSuspend(boolean)
      */
     private boolean mSuspend;
 
+    /**
+     * The metrics to record into, may be null
+     */
+    private ClockMetrics mMetrics;
+
+    /**
+     * The store to persist the state into, and the key of state in it
+     *
+     * @see #setStateStore(ClockStateStore, String)
+     */
+    private ClockStateStore mStateStore;
+    private String mStateKey;
+
+    /**
+     * The index of current segment of the program, or -1 if unknown
+     *
+     * @see #setProgram(TimerProgram)
+     */
+    private int mSegment = -1;
+
+    /**
+     * The handler of environment, null if detached
+     */
+    private Handler mHandler;
+
+    /**
+     * The thresholds of rest time in nanoseconds, in ascending order without duplicates
+     *
+     * @see #setThresholds(long...)
+     */
+    private long[] mThresholds = new long[0];
+
+    /**
+     * The count of thresholds which haven't fired, they are always the smallest ones, so the next
+     * threshold to fire is at {@code mPendingThresholds - 1}
+     */
+    private int mPendingThresholds;
+
+    private final ListenerRegistry<ThresholdWatcher> mThresholdWatchers = new ListenerRegistry<>();
+
+    /**
+     * Fires the thresholds which have been reached, and schedules the wakeup of the next one
+     */
+    private final Runnable mThresholdWakeup = new Runnable() {
+        @Override
+        public void run() {
+            updateThresholds();
+        }
+    };
+
     private final Runnable mTick = new Runnable() {
         @Override
         public void run() {
-            if (mHandler != null) {
-                if (onTimeChanged()) {
-                    mHandler.postDelayed(mTick, UPDATE_DELAY_TIME);
-                } else {
-                    setStarted(false);
-                    performTimeout();
-                }
+            if (!onTimeChanged()) {
+                // Fires the thresholds down to zero before the timer stops
+                fireThresholds();
+                setStarted(false);
+                performTimeout();
             }
         }
     };
 
+    /**
+     * Delivers the next boundary while suspended, and schedules the wakeup of the one after
+     */
+    private final Runnable mBoundaryWakeup = new Runnable() {
+        @Override
+        public void run() {
+            mTick.run();
+            updateBoundaryWakeup();
+        }
+    };
+
     public TimerModel() {
         mState = new TimerState();
+        mScheduler = new TickScheduler(mTick, UPDATE_INTERVAL_TIME);
     }
 
     private boolean onTimeChanged() {
         final long restTime = getTimerRestTime();
-        if (mTimerWatcher != null) {
-            mTimerWatcher.onTimeChanged(restTime, mState.total);
+        if (mState.program != null) {
+            updateSegment(restTime);
+        }
+        if (!mWatchers.isEmpty()) {
+            final long start = System.nanoTime();
+            performTimeChanged(restTime);
+            if (mMetrics != null) mMetrics.recordDispatch(start, System.nanoTime());
         }
         return restTime > 0;
     }
 
+    /**
+     * Updates the current segment of program. The cached segment is checked first, so the
+     * binary search only happens when a boundary is crossed.
+     *
+     * @param restTime rest time of the timer in nanoseconds
+     */
+    private void updateSegment(long restTime) {
+        final TimerProgram program = mState.program;
+        final int count = program.getSegmentCount();
+        final long elapsed = (mState.total - restTime) / NANOS_PER_MILLI;
+        int segment = mSegment;
+        if (segment < 0 || segment >= count || elapsed < program.getSegmentStart(segment)
+                || elapsed >= program.getSegmentEnd(segment)) {
+            segment = program.findSegment(elapsed);
+        }
+        if (mSegment != segment) {
+            mSegment = segment;
+            if (segment < count) {
+                if (mScheduler.isRunning()) {
+                    updateEndTime(restTime);
+                }
+                performSegmentChanged(segment, program.getSegmentTag(segment));
+            }
+        }
+    }
+
+    /**
+     * Aligns a tick to the next boundary, which is the end of current segment or the timeout.
+     *
+     * @param restTime rest time of the timer in nanoseconds
+     */
+    private void updateEndTime(long restTime) {
+        mScheduler.setEndTime(SystemClock.uptimeMillis() + getTimeToBoundary(restTime));
+    }
+
+    /**
+     * Gets the time to the next boundary, which is the end of current segment or the timeout.
+     *
+     * @param restTime rest time of the timer in nanoseconds
+     * @return time in milliseconds, rounded up so that the boundary has been reached after it
+     */
+    private long getTimeToBoundary(long restTime) {
+        final TimerProgram program = mState.program;
+        if (program != null) {
+            final long elapsed = (mState.total - restTime) / NANOS_PER_MILLI;
+            final int segment = program.findSegment(elapsed);
+            if (segment < program.getSegmentCount()) {
+                return program.getSegmentEnd(segment) - elapsed;
+            }
+        }
+        return (restTime + NANOS_PER_MILLI - 1) / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Schedules a single wakeup at the next boundary while the timer is running but suspended, so
+     * that the segments and the timeout are delivered on time without ticking.
+     */
+    private void updateBoundaryWakeup() {
+        if (mHandler == null) return;
+        mHandler.removeCallbacks(mBoundaryWakeup);
+        if (mSuspend && isStarted() && !isPaused()) {
+            mHandler.postAtTime(mBoundaryWakeup,
+                    SystemClock.uptimeMillis() + getTimeToBoundary(getTimerRestTime()));
+        }
+    }
+
+    /**
+     * Sets the weight which ranks this timer in the {@link TickGovernor}, such as the area of
+     * its widget in pixels. The larger ones keep the full rate of updates longer when the budget
+     * of process runs short.
+     *
+     * @param weight the weight
+     */
+    public void setTickWeight(long weight) {
+        mScheduler.setWeight(weight);
+    }
+
+    /**
+     * Sets the metrics to record the tick lateness and listener dispatch time into.
+     *
+     * @param metrics The {@link ClockMetrics}, or null to stop recording
+     */
+    public void setMetrics(ClockMetrics metrics) {
+        mMetrics = metrics;
+        mScheduler.setMetrics(metrics);
+    }
+
     /**
      * This method should be called when this timer model attaches to its environment.
      *
      * @param handler handler to handle messages
      */
     public void attach(@NonNull Handler handler) {
+        if (mHandler != null) {
+            mHandler.removeCallbacks(mThresholdWakeup);
+            mHandler.removeCallbacks(mBoundaryWakeup);
+        }
         mHandler = handler;
+        mScheduler.attach(handler);
         updateRunning();
     }
 
@@ -75,12 +248,115 @@ public class TimerModel {
      */
     public void detach() {
         setSuspend(true);
-        mHandler.removeCallbacks(mTick);
-        updateRunning();
+        mScheduler.detach();
+        if (mHandler != null) {
+            mHandler.removeCallbacks(mThresholdWakeup);
+            mHandler.removeCallbacks(mBoundaryWakeup);
+        }
+        mHandler = null;
+    }
+
+    /**
+     * Sets the rest times at which {@link ThresholdWatcher#onThreshold(long)} is called, such as
+     * 1 minute and 10 seconds left. Each threshold fires exactly once per run of timer, by a wakeup
+     * scheduled at the threshold rather than by checking every tick, so they fire even while the
+     * timer is suspended. The thresholds which have been passed while the timer couldn't wake up,
+     * such as while it was detached, fire in order as soon as it can.
+     * <p>
+     * The thresholds which the current rest time has already passed are considered fired. The
+     * thresholds which have fired are kept in the {@link TimerState}, so that a state given to
+     * {@link #setState(TimerState)}, such as one restored after the death of process, fires the
+     * thresholds it has passed since in order, but never fires one twice.
+     *
+     * @param restTimes rest times in milliseconds, in any order
+     */
+    public void setThresholds(@NonNull long... restTimes) {
+        final long[] thresholds = new long[restTimes.length];
+        for (int i = 0; i < restTimes.length; i++) {
+            thresholds[i] = restTimes[i] * NANOS_PER_MILLI;
+        }
+        Arrays.sort(thresholds);
+        int count = 0;
+        for (int i = 0; i < thresholds.length; i++) {
+            if (count == 0 || thresholds[i] != thresholds[count - 1]) thresholds[count++] = thresholds[i];
+        }
+        mThresholds = Arrays.copyOf(thresholds, count);
+        if (isStarted()) {
+            mState.firedThreshold = Math.min(mState.firedThreshold, getTimerRestTime());
+        }
+        resetThresholds();
+        updateThresholds();
+    }
+
+    /**
+     * Adds a callback to be invoked when the rest time reaches a threshold.
+     *
+     * @param watcher callback to add
+     * @see #setThresholds(long...)
+     */
+    public void addThresholdListener(@NonNull ThresholdWatcher watcher) {
+        mThresholdWatchers.add(watcher);
+    }
+
+    /**
+     * Removes a callback added by {@link #addThresholdListener(ThresholdWatcher)}.
+     *
+     * @param watcher callback to remove
+     */
+    public void removeThresholdListener(ThresholdWatcher watcher) {
+        mThresholdWatchers.remove(watcher);
+    }
+
+    /**
+     * Marks the thresholds below the last fired threshold of state and the total time as pending,
+     * and the others as fired. The pending ones which the rest time has passed fire on the next
+     * {@link #updateThresholds()}.
+     */
+    private void resetThresholds() {
+        final long bound = isStarted() ? Math.min(mState.firedThreshold, mState.total) : mState.total;
+        final int index = Arrays.binarySearch(mThresholds, bound);
+        mPendingThresholds = index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Fires the thresholds which have been reached, in order.
+     */
+    private void fireThresholds() {
+        if (mPendingThresholds == 0 || !isStarted()) return;
+        final long restTime = getTimerRestTime();
+        boolean fired = false;
+        while (mPendingThresholds > 0 && mThresholds[mPendingThresholds - 1] >= restTime) {
+            final long threshold = mThresholds[--mPendingThresholds];
+            mState.firedThreshold = threshold;
+            fired = true;
+            final Object[] watchers = mThresholdWatchers.getListeners();
+            for (int i = 0; i < watchers.length; i++) {
+                ((ThresholdWatcher) watchers[i]).onThreshold(threshold / NANOS_PER_MILLI);
+            }
+        }
+        if (fired) persistState();
     }
 
     /**
-     * Sets whether to suspend the update of timer.
+     * Fires the thresholds which have been reached, and schedules a wakeup exactly at the next one
+     * while the timer is running.
+     */
+    private void updateThresholds() {
+        fireThresholds();
+        if (mHandler == null) return;
+        mHandler.removeCallbacks(mThresholdWakeup);
+        if (mPendingThresholds > 0 && isStarted() && !isPaused()) {
+            final long delay = getTimerRestTime() - mThresholds[mPendingThresholds - 1];
+            // Rounds up so that the wakeup is never earlier than the threshold
+            mHandler.postAtTime(mThresholdWakeup,
+                    SystemClock.uptimeMillis() + (delay + NANOS_PER_MILLI - 1) / NANOS_PER_MILLI);
+        }
+    }
+
+    /**
+     * Sets whether to suspend the update of timer, such as while it cannot be seen. While suspended,
+     * the time is only delivered at the ends of segments and at the timeout, each by a single wakeup,
+     * so that {@link TimerWatcher#onTimeout()} and the segments are still delivered on time.
      *
      * @param suspend true for suspend, false otherwise
      */
@@ -107,10 +383,14 @@ public class TimerModel {
      */
     public void setState(TimerState ss) {
         mState = new TimerState(ss);
-        if (mTimerWatcher != null) {
-            mTimerWatcher.onTimeChanged(getTimerRestTime(), mState.total);
+        mSegment = -1;
+        resetThresholds();
+        if (mState.program != null && isStarted()) {
+            updateSegment(getTimerRestTime());
         }
+        performTimeChanged(getTimerRestTime());
         updateRunning();
+        persistState();
     }
 
     private void setStarted(boolean started) {
@@ -119,6 +399,8 @@ public class TimerModel {
             mState.started = started;
             if (started) {
                 mState.base = getCurrentElapsedTime();
+                mState.firedThreshold = TimerState.NO_THRESHOLD;
+                resetThresholds();
             }
             performStateChanged();
             updateRunning();
@@ -126,55 +408,42 @@ public class TimerModel {
     }
 
     private void updateRunning() {
+        updateThresholds();
         final boolean running = isStarted() && !isPaused() && !mSuspend;
-        if (mRunning != running) {
-            if (running) {
-                mHandler.post(mTick);
-            } else {
-                mHandler.removeCallbacks(mTick);
-            }
-            mRunning = running;
+        if (running) {
+            // Aligns the ticks to the segment boundaries and timeout rather than to the grid
+            updateEndTime(getTimerRestTime());
         }
+        mScheduler.setRunning(running);
+        updateBoundaryWakeup();
     }
 
     /**
      * Gets the rest time of this timer model.
      *
-     * @return rest time in milliseconds
+     * @return rest time in nanoseconds
      */
     private long getTimerRestTime() {
         if (!isStarted()) return TimerState.DEFAULT_TIME;
-        if (mState.base == TimerState.DEFAULT_TIME) {
-            throw new IllegalStateException("Base time has not been initialized.");
-        }
-        final long totalTime = mState.total;
-        if (isPaused()) {
-            final long timeFromPause = mState.pause - mState.base;
-            if (timeFromPause < 0 || timeFromPause > totalTime) {
-                throw new IllegalStateException("Illegal timer state: " + mState.toString());
-            }
-            return totalTime - timeFromPause;
-        } else {
-            long elapsedFromBase = getCurrentElapsedTime() - mState.base;
-            if (elapsedFromBase < 0) {
-                throw new IllegalStateException("Elapsed time should <= base time: " + mState.toString());
-            }
-            return Math.max(totalTime - elapsedFromBase, 0);
-        }
+        return mState.getRestTime(getCurrentElapsedTime());
     }
 
     /**
-     * @return the milliseconds since boot
-     * @see SystemClock#elapsedRealtime()
+     * All the arithmetic on this time is done with differences of long values, which do not
+     * overflow within hundreds of years of uptime.
+     *
+     * @return the nanoseconds since boot
+     * @see SystemClock#elapsedRealtimeNanos()
      */
     private long getCurrentElapsedTime() {
-        return SystemClock.elapsedRealtime();
+        return SystemClock.elapsedRealtimeNanos();
     }
 
     /**
      * Starts or resumes the timer.
      */
     public void startOrResume() {
+        mScheduler.notifyInteraction();
         if (!isStarted()) {
             start();
         } else {
@@ -210,6 +479,7 @@ public class TimerModel {
      * Pauses the timer. Nothing happens if the timer isn't started or has been paused.
      */
     public void pause() {
+        mScheduler.notifyInteraction();
         if (isStarted() && !isPaused()) {
             mState.pause = getCurrentElapsedTime();
             performStateChanged();
@@ -218,38 +488,138 @@ public class TimerModel {
     }
 
     /**
-     * Call this timer model's TimerWatcher, if it is defined. Performs all the actions
-     * associated with changes of state.
+     * Call this timer model's TimerWatchers. Performs all the actions associated with changes of time.
+     *
+     * @param restTime rest time in nanoseconds
+     */
+    private void performTimeChanged(long restTime) {
+        final Object[] watchers = mWatchers.getListeners();
+        final long total = mState.total;
+        for (int i = 0; i < watchers.length; i++) {
+            final TimerWatcher watcher = (TimerWatcher) watchers[i];
+            if (watcher instanceof TimerNanosWatcher) {
+                ((TimerNanosWatcher) watcher).onTimeChangedNanos(restTime, total);
+            } else {
+                watcher.onTimeChanged(restTime / NANOS_PER_MILLI, total / NANOS_PER_MILLI);
+            }
+        }
+    }
+
+    /**
+     * Call this timer model's TimerWatchers. Performs all the actions associated with changes of state.
      */
     private void performStateChanged() {
-        if (mTimerWatcher != null) {
-            mTimerWatcher.onStateChanged(isStarted(), isPaused());
+        final Object[] watchers = mWatchers.getListeners();
+        final boolean started = isStarted();
+        final boolean paused = isPaused();
+        for (int i = 0; i < watchers.length; i++) {
+            ((TimerWatcher) watchers[i]).onStateChanged(started, paused);
         }
+        persistState();
     }
 
     /**
-     * Call this timer model's TimerWatcher, if it is defined. Performs all the actions
-     * associated with timeout.
+     * Saves the state into the store, if any.
+     */
+    private void persistState() {
+        if (mStateStore != null) mStateStore.save(mStateKey, this);
+    }
+
+    /**
+     * Sets the store to persist the state of this timer into, under the given key. The state saved
+     * under the key is restored first, if any, so that a running timer survives the death of process
+     * and reboots. Then the state is saved on every change of state.
+     *
+     * @param store the store, or null to stop persisting
+     * @param key   the key of state, which should be unique in the store
+     */
+    public void setStateStore(ClockStateStore store, String key) {
+        mStateStore = null;
+        if (store != null) {
+            store.restore(key, this);
+            mStateKey = key;
+            mStateStore = store;
+        }
+    }
+
+    /**
+     * Call this timer model's SegmentWatchers. Performs all the actions associated with changes of segment.
+     *
+     * @param segment index of the new segment
+     * @param tag     tag of the new segment
+     */
+    private void performSegmentChanged(int segment, int tag) {
+        final Object[] watchers = mSegmentWatchers.getListeners();
+        for (int i = 0; i < watchers.length; i++) {
+            ((SegmentWatcher) watchers[i]).onSegmentChanged(segment, tag);
+        }
+    }
+
+    /**
+     * Call this timer model's TimerWatchers. Performs all the actions associated with timeout.
      */
     private void performTimeout() {
-        if (mTimerWatcher != null) {
-            mTimerWatcher.onTimeout();
+        final Object[] watchers = mWatchers.getListeners();
+        for (int i = 0; i < watchers.length; i++) {
+            ((TimerWatcher) watchers[i]).onTimeout();
         }
     }
 
     public void reset() {
+        mScheduler.notifyInteraction();
         setStarted(false);
         mState.clear();
+        mSegment = -1;
         performStateChanged();
     }
 
+    /**
+     * Sets the total time of this timer, this will stop and reset the timer.
+     *
+     * @param totalTime total time in milliseconds
+     */
     public void setTotalTime(long totalTime) {
-        if (totalTime > 0 && mState.total != totalTime) {
+        final long totalNanos = totalTime * NANOS_PER_MILLI;
+        if (totalTime > 0 && (mState.total != totalNanos || mState.program != null)) {
             reset();
-            mState.total = totalTime;
+            mState.total = totalNanos;
+            persistState();
         }
     }
 
+    /**
+     * Sets a program of several segments to run, this will stop and reset the timer. The total
+     * time of timer becomes the total time of program, and {@link SegmentWatcher#onSegmentChanged(int, int)}
+     * will be called whenever a segment boundary is crossed.
+     *
+     * @param program the program to run
+     * @see #addSegmentListener(SegmentWatcher)
+     */
+    public void setProgram(@NonNull TimerProgram program) {
+        reset();
+        mState.total = program.getTotalTime() * NANOS_PER_MILLI;
+        mState.program = program;
+        persistState();
+    }
+
+    /**
+     * Gets the program of this timer.
+     *
+     * @return the program, or null if the timer runs a single total time
+     */
+    public TimerProgram getProgram() {
+        return mState.program;
+    }
+
+    /**
+     * Gets the index of current segment of the program.
+     *
+     * @return index of segment, or -1 if the timer isn't started or runs no program
+     */
+    public int getCurrentSegment() {
+        return mState.program != null && mSegment < mState.program.getSegmentCount() ? mSegment : -1;
+    }
+
     public boolean isPaused() {
         return mState.started && mState.pause != TimerState.DEFAULT_TIME;
     }
@@ -259,16 +629,104 @@ public class TimerModel {
     }
 
     /**
-     * Register a callback to be invoked when the state of a timer is changed
+     * Register a callback to be invoked when the state of a timer is changed. It replaces the
+     * callback set by the last call, and leaves those added by {@link #addTimerListener(TimerWatcher)}.
      *
      * @param watcher callback to run
      */
     public void setTimerListener(TimerWatcher watcher) {
         if (mTimerWatcher != watcher) {
+            mWatchers.replace(mTimerWatcher, watcher);
             mTimerWatcher = watcher;
         }
     }
 
+    /**
+     * Adds a callback to be invoked when the state of a timer is changed, along with the others.
+     *
+     * @param watcher callback to add
+     */
+    public void addTimerListener(@NonNull TimerWatcher watcher) {
+        mWatchers.add(watcher);
+    }
+
+    /**
+     * Removes a callback added by {@link #addTimerListener(TimerWatcher)}.
+     *
+     * @param watcher callback to remove
+     */
+    public void removeTimerListener(TimerWatcher watcher) {
+        if (watcher == mTimerWatcher) mTimerWatcher = null;
+        mWatchers.remove(watcher);
+    }
+
+    /**
+     * Adds a callback to be invoked when the timer enters a segment of its program.
+     *
+     * @param watcher callback to add
+     * @see #setProgram(TimerProgram)
+     */
+    public void addSegmentListener(@NonNull SegmentWatcher watcher) {
+        mSegmentWatchers.add(watcher);
+    }
+
+    /**
+     * Removes a callback added by {@link #addSegmentListener(SegmentWatcher)}.
+     *
+     * @param watcher callback to remove
+     */
+    public void removeSegmentListener(SegmentWatcher watcher) {
+        mSegmentWatchers.remove(watcher);
+    }
+
+    /**
+     * Gets the callback registered by {@link #setTimerListener(TimerWatcher)}.
+     *
+     * @return the callback, or null
+     */
+    public TimerWatcher getTimerListener() {
+        return mTimerWatcher;
+    }
+
+    /**
+     * Indicates whether any callback is registered, such as before the owner detaches a shared model.
+     *
+     * @return true if any, false otherwise
+     */
+    public boolean hasListeners() {
+        return !mWatchers.isEmpty() || !mSegmentWatchers.isEmpty() || !mThresholdWatchers.isEmpty();
+    }
+
+    /**
+     * Delivers the current state, segment and time to the callbacks immediately, such as after
+     * a callback has been replaced.
+     */
+    public void refresh() {
+        if (!mWatchers.isEmpty()) {
+            performStateChanged();
+        }
+        final TimerProgram program = mState.program;
+        if (program != null && mSegment >= 0 && mSegment < program.getSegmentCount()) {
+            performSegmentChanged(mSegment, program.getSegmentTag(mSegment));
+        }
+        if (!mWatchers.isEmpty()) {
+            performTimeChanged(getTimerRestTime());
+        }
+    }
+
+    /**
+     * Interface definition for a callback to be invoked when the rest time of a timer reaches a threshold.
+     */
+    public interface ThresholdWatcher {
+
+        /**
+         * Called when the rest time of timer reaches a threshold.
+         *
+         * @param thresholdInMillis the threshold in milliseconds, as given to {@link #setThresholds(long...)}
+         */
+        void onThreshold(long thresholdInMillis);
+    }
+
     /**
      * Interface definition for a callback to be invoked when the state of a timer is changed.
      */
@@ -281,6 +739,31 @@ public class TimerModel {
         void onTimeout();
     }
 
+    /**
+     * A {@link TimerWatcher} which receives the time in nanoseconds, the precision the model keeps.
+     * Its {@link #onTimeChangedNanos(long, long)} is called instead of {@link #onTimeChanged(long, long)}.
+     */
+    public interface TimerNanosWatcher extends TimerWatcher {
+
+        void onTimeChangedNanos(long restTimeInNanos, long totalTimeInNanos);
+    }
+
+    /**
+     * Interface definition for a callback to be invoked when a timer enters a segment of its program.
+     *
+     * @see #addSegmentListener(SegmentWatcher)
+     */
+    public interface SegmentWatcher {
+
+        /**
+         * Called when the timer enters a segment of its program.
+         *
+         * @param segment index of the segment
+         * @param tag     tag of the segment
+         */
+        void onSegmentChanged(int segment, int tag);
+    }
+
     /**
      * A Parcelable implementation that used to hold the states of timer.
      */
@@ -292,24 +775,42 @@ public class TimerModel {
         private static final int DEFAULT_TIME = 0;
 
         /**
-         * Field that used to hold the elapsed real time at the start of timer.
+         * A constant that used to define no threshold has fired
+         */
+        static final long NO_THRESHOLD = Long.MAX_VALUE;
+
+        /**
+         * Field that used to hold the elapsed real time in nanoseconds at the start of timer.
          *
-         * @see SystemClock#elapsedRealtime()
+         * @see SystemClock#elapsedRealtimeNanos()
          */
         private long base = DEFAULT_TIME;
 
         /**
-         * Field that used to hold the elapsed real time at the pause of timer.
+         * Field that used to hold the elapsed real time in nanoseconds at the pause of timer.
          *
-         * @see SystemClock#elapsedRealtime()
+         * @see SystemClock#elapsedRealtimeNanos()
          */
         private long pause = DEFAULT_TIME;
 
         /**
-         * Field that used to hold the total time of timer which set by user.
+         * Field that used to hold the total time of timer in nanoseconds which set by user.
          */
         private long total = DEFAULT_TIME;
 
+        /**
+         * Field that used to hold the program of timer, null if the timer runs a single total time.
+         */
+        private TimerProgram program;
+
+        /**
+         * Field that used to hold the rest time in nanoseconds of the last threshold which has fired
+         * in this run, the thresholds at or above it won't fire again.
+         *
+         * @see TimerModel#setThresholds(long...)
+         */
+        private long firedThreshold = NO_THRESHOLD;
+
         /**
          * Field that indicates whether the timer has been started.
          */
@@ -324,6 +825,8 @@ public class TimerModel {
                 total = state.total;
                 pause = state.pause;
                 started = state.started;
+                program = state.program;
+                firedThreshold = state.firedThreshold;
             }
         }
 
@@ -332,6 +835,8 @@ public class TimerModel {
             pause = in.readLong();
             total = in.readLong();
             started = in.readByte() != 0;
+            program = in.readParcelable(TimerProgram.class.getClassLoader());
+            firedThreshold = in.readLong();
         }
 
         public static final Creator<TimerState> CREATOR = new Creator<TimerState>() {
@@ -357,6 +862,94 @@ public class TimerModel {
             dest.writeLong(pause);
             dest.writeLong(total);
             dest.writeByte((byte) (started ? 1 : 0));
+            dest.writeParcelable(program, flags);
+            dest.writeLong(firedThreshold);
+        }
+
+        /**
+         * Creates a state which has the given rest time at the given elapsed real time, such as
+         * when a persisted state is restored.
+         *
+         * @param started        whether the timer has been started
+         * @param paused         whether the timer has been paused
+         * @param restTime       the rest time in nanoseconds
+         * @param total          the total time in nanoseconds
+         * @param program        the program, or null
+         * @param firedThreshold the rest time in nanoseconds of the last fired threshold,
+         *                       or {@link #NO_THRESHOLD}
+         * @param now            the elapsed real time in nanoseconds to anchor at
+         * @return The {@link TimerState}
+         */
+        static TimerState create(boolean started, boolean paused, long restTime, long total,
+                                 TimerProgram program, long firedThreshold, long now) {
+            final TimerState state = new TimerState();
+            state.total = total;
+            state.program = program;
+            state.firedThreshold = firedThreshold;
+            state.started = started && total > 0;
+            if (state.started) {
+                state.base = now - (total - Math.min(Math.max(0, restTime), total));
+                if (paused) state.pause = now;
+            }
+            return state;
+        }
+
+        /**
+         * Gets the rest time at the given elapsed real time. Anchors which don't match the current
+         * boot, such as those restored after a reboot, are clamped rather than rejected.
+         *
+         * @param now the elapsed real time in nanoseconds
+         * @return rest time in nanoseconds, in [0, total]
+         */
+        long getRestTime(long now) {
+            if (!started) return DEFAULT_TIME;
+            final long elapsed = (pause != DEFAULT_TIME ? pause : now) - base;
+            return Math.min(Math.max(0, total - elapsed), total);
+        }
+
+        /**
+         * Gets the total time of timer.
+         *
+         * @return total time in nanoseconds
+         */
+        public long getTotal() {
+            return total;
+        }
+
+        /**
+         * Gets the program of timer.
+         *
+         * @return the program, or null if the timer runs a single total time
+         */
+        public TimerProgram getProgram() {
+            return program;
+        }
+
+        /**
+         * Gets the rest time of the last threshold which has fired in this run.
+         *
+         * @return rest time in nanoseconds, or {@link #NO_THRESHOLD}
+         */
+        long getFiredThreshold() {
+            return firedThreshold;
+        }
+
+        /**
+         * Indicates whether the timer has been started.
+         *
+         * @return true if started, false otherwise
+         */
+        public boolean isStarted() {
+            return started;
+        }
+
+        /**
+         * Indicates whether the timer has been paused.
+         *
+         * @return true if paused, false otherwise
+         */
+        public boolean isPaused() {
+            return started && pause != DEFAULT_TIME;
         }
 
         /**
@@ -366,6 +959,8 @@ public class TimerModel {
             base = DEFAULT_TIME;
             pause = DEFAULT_TIME;
             total = DEFAULT_TIME;
+            program = null;
+            firedThreshold = NO_THRESHOLD;
             started = false;
         }
 
@@ -375,6 +970,8 @@ public class TimerModel {
                     "base=" + base +
                     ", pause=" + pause +
                     ", total=" + total +
+                    ", program=" + program +
+                    ", firedThreshold=" + firedThreshold +
                     ", started=" + started +
                     ']';
         }
@@ -0,0 +1,209 @@
+package com.creator.lemonade.clock.util;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * An immutable program of timer which consists of several segments, such as work/rest blocks of
+ * interval training. The segments are stored as cumulative end offsets, so that the current segment
+ * of any elapsed time is found by binary search, and a program runs from a single base time
+ * without any re-scheduling between segments.
+ *
+ * @author Felix.Liang
+ * @see TimerModel#setProgram(TimerProgram)
+ */
+@SuppressWarnings("unused")
+public class TimerProgram implements Parcelable {
+
+    /**
+     * The cumulative end offsets of segments in milliseconds, which are strictly increasing
+     */
+    private final long[] mEnds;
+
+    /**
+     * The tags of segments, such as work or rest, defined by user
+     */
+    private final int[] mTags;
+
+    private TimerProgram(long[] ends, int[] tags) {
+        mEnds = ends;
+        mTags = tags;
+    }
+
+    private TimerProgram(Parcel in) {
+        mEnds = in.createLongArray();
+        mTags = in.createIntArray();
+    }
+
+    /**
+     * Gets the count of segments.
+     *
+     * @return count of segments
+     */
+    public int getSegmentCount() {
+        return mEnds.length;
+    }
+
+    /**
+     * Gets the total time of this program.
+     *
+     * @return total time in milliseconds
+     */
+    public long getTotalTime() {
+        return mEnds[mEnds.length - 1];
+    }
+
+    /**
+     * Gets the start offset of the given segment.
+     *
+     * @param segment index of segment
+     * @return start offset in milliseconds
+     */
+    public long getSegmentStart(int segment) {
+        return segment == 0 ? 0 : mEnds[segment - 1];
+    }
+
+    /**
+     * Gets the end offset of the given segment.
+     *
+     * @param segment index of segment
+     * @return end offset in milliseconds
+     */
+    public long getSegmentEnd(int segment) {
+        return mEnds[segment];
+    }
+
+    /**
+     * Gets the tag of the given segment.
+     *
+     * @param segment index of segment
+     * @return the tag
+     */
+    public int getSegmentTag(int segment) {
+        return mTags[segment];
+    }
+
+    /**
+     * Finds the segment which the given elapsed time falls in.
+     *
+     * @param elapsed time elapsed from the start of program in milliseconds
+     * @return index of segment, or {@link #getSegmentCount()} if the program has finished
+     */
+    public int findSegment(long elapsed) {
+        if (elapsed < 0) return 0;
+        final int index = Arrays.binarySearch(mEnds, elapsed);
+        // A segment ends exclusively, so the elapsed time at its end belongs to the next segment
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    public static final Creator<TimerProgram> CREATOR = new Creator<TimerProgram>() {
+        @Override
+        public TimerProgram createFromParcel(Parcel in) {
+            return new TimerProgram(in);
+        }
+
+        @Override
+        public TimerProgram[] newArray(int size) {
+            return new TimerProgram[size];
+        }
+    };
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeLongArray(mEnds);
+        dest.writeIntArray(mTags);
+    }
+
+    @Override
+    public String toString() {
+        return "TimerProgram[" +
+                "segments=" + mEnds.length +
+                ", total=" + getTotalTime() +
+                ']';
+    }
+
+    /**
+     * Builder to define the segments of a {@link TimerProgram}.
+     */
+    public static class Builder {
+
+        private long[] mDurations = new long[8];
+        private int[] mTags = new int[8];
+        private int mCount;
+
+        /**
+         * Appends a segment.
+         *
+         * @param duration duration of segment in milliseconds, must be positive
+         * @param tag      tag of segment, such as work or rest
+         * @return this builder
+         */
+        public Builder addSegment(long duration, int tag) {
+            if (duration <= 0) {
+                throw new IllegalArgumentException("Duration of segment must be positive: " + duration);
+            }
+            ensureCapacity(mCount + 1);
+            mDurations[mCount] = duration;
+            mTags[mCount] = tag;
+            mCount++;
+            return this;
+        }
+
+        /**
+         * Repeats the last segments, for example, to repeat a work/rest block.
+         *
+         * @param segmentCount count of last segments to repeat
+         * @param times        extra times to repeat
+         * @return this builder
+         */
+        public Builder repeatLast(int segmentCount, int times) {
+            if (segmentCount <= 0 || segmentCount > mCount || times < 0) {
+                throw new IllegalArgumentException("Cannot repeat last " + segmentCount
+                        + " of " + mCount + " segments " + times + " times");
+            }
+            final int from = mCount - segmentCount;
+            ensureCapacity(mCount + segmentCount * times);
+            for (int i = 0; i < times; i++) {
+                System.arraycopy(mDurations, from, mDurations, mCount, segmentCount);
+                System.arraycopy(mTags, from, mTags, mCount, segmentCount);
+                mCount += segmentCount;
+            }
+            return this;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > mDurations.length) {
+                final int newLength = Math.max(capacity, mDurations.length * 2);
+                mDurations = Arrays.copyOf(mDurations, newLength);
+                mTags = Arrays.copyOf(mTags, newLength);
+            }
+        }
+
+        /**
+         * Creates the {@link TimerProgram}.
+         *
+         * @return The program
+         */
+        @NonNull
+        public TimerProgram build() {
+            if (mCount == 0) {
+                throw new IllegalStateException("A timer program needs at least one segment");
+            }
+            final long[] ends = new long[mCount];
+            long end = 0;
+            for (int i = 0; i < mCount; i++) {
+                end += mDurations[i];
+                ends[i] = end;
+            }
+            return new TimerProgram(ends, Arrays.copyOf(mTags, mCount));
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.creator.lemonade.clock.wallpaper;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.service.wallpaper.WallpaperService;
+import android.support.annotation.NonNull;
+import android.text.format.DateFormat;
+import android.view.ContextThemeWrapper;
+import android.view.SurfaceHolder;
+
+import com.creator.lemonade.clock.graphics.ClockDrawable;
+import com.creator.lemonade.clock.widget.Clock;
+
+import java.util.Calendar;
+
+/**
+ * A live wallpaper which renders a {@link ClockDrawable} straight into the wallpaper surface.
+ * <p>
+ * By default the second hand ticks, and one frame is drawn at each whole second rather than at
+ * a fixed rate. Override {@link #isSmoothSecondHand()} to sweep the second hand instead, then the
+ * frames are aligned to the moments when it moves by about one pixel, at most
+ * {@link #MAX_SMOOTH_FRAME_RATE} per second. Nothing is scheduled while the wallpaper is hidden,
+ * and the frames drop to one per second while the launcher pages are scrolling.
+ * <p>
+ * To use it, declare this service in the manifest of application with the permission
+ * {@code android.permission.BIND_WALLPAPER}, and the meta-data {@code android.service.wallpaper}
+ * pointing to {@code @xml/lemonade_clock_wallpaper}. Override {@link #onCreateClockDrawable()}
+ * to customize the style of clock.
+ *
+ * @author Felix.Liang
+ */
+public class ClockWallpaperService extends WallpaperService {
+
+    /**
+     * The maximal count of frames per second of a smooth second hand
+     *
+     * @see #isSmoothSecondHand()
+     */
+    public static final int MAX_SMOOTH_FRAME_RATE = 20;
+
+    /**
+     * The interval between two frames of a ticking second hand, while scrolling, and when a smooth
+     * second hand moves less than one pixel per second
+     */
+    private static final long TICK_FRAME_INTERVAL = 1000;
+
+    /**
+     * The minimal interval between two frames of a smooth second hand
+     */
+    private static final long MIN_SMOOTH_FRAME_INTERVAL = TICK_FRAME_INTERVAL / MAX_SMOOTH_FRAME_RATE;
+
+    /**
+     * The time without offset changes after which the scrolling is regarded as finished
+     */
+    private static final long SCROLL_IDLE_TIMEOUT = 300;
+
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+
+    @Override
+    public Engine onCreateEngine() {
+        return new ClockEngine();
+    }
+
+    /**
+     * Creates the drawable of clock for an engine, subclass can override this to customize the style.
+     * The colors come from the theme of application, as a service runs in the default theme of system.
+     *
+     * @return The {@link ClockDrawable}
+     */
+    @NonNull
+    protected ClockDrawable onCreateClockDrawable() {
+        final int theme = getApplicationInfo().theme;
+        // The engines of preview and of home screen share the style
+        return Clock.createDrawable(theme != 0 ? new ContextThemeWrapper(this, theme) : this, null);
+    }
+
+    /**
+     * Indicates whether the second hand sweeps rather than ticks. A sweeping hand costs a frame each
+     * time it moves by about one pixel, up to {@link #MAX_SMOOTH_FRAME_RATE} frames per second,
+     * while a ticking hand costs one frame per second. Subclass can override this to opt in.
+     *
+     * @return true to sweep, false to tick once per second
+     */
+    protected boolean isSmoothSecondHand() {
+        return false;
+    }
+
+    /**
+     * Gets the color to fill the wallpaper with before drawing the clock.
+     *
+     * @return the background color
+     */
+    protected int getBackgroundColor() {
+        return Color.BLACK;
+    }
+
+    /**
+     * The engine which draws the clock.
+     */
+    protected class ClockEngine extends Engine {
+
+        private final Handler mHandler = new Handler();
+
+        private final ClockDrawable mClockDrawable;
+
+        private Calendar mTime = Calendar.getInstance();
+
+        private boolean mVisible;
+
+        /**
+         * Field that indicates whether the launcher pages are scrolling
+         */
+        private boolean mScrolling;
+
+        /**
+         * The interval between two frames out of scrolling, which depends on the size of surface
+         * for a smooth second hand
+         */
+        private long mFrameInterval = TICK_FRAME_INTERVAL;
+
+        /**
+         * @see #isSmoothSecondHand()
+         */
+        private final boolean mSmooth;
+
+        private boolean mReceiverRegistered;
+
+        private final Runnable mDrawFrame = new Runnable() {
+            @Override
+            public void run() {
+                drawFrame();
+            }
+        };
+
+        private final Runnable mScrollIdle = new Runnable() {
+            @Override
+            public void run() {
+                mScrolling = false;
+                scheduleFrame();
+            }
+        };
+
+        private final BroadcastReceiver mTimeReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction())) {
+                    mTime = Calendar.getInstance();
+                }
+                mClockDrawable.setUse24Format(DateFormat.is24HourFormat(context));
+                mHandler.removeCallbacks(mDrawFrame);
+                drawFrame();
+            }
+        };
+
+        protected ClockEngine() {
+            mClockDrawable = onCreateClockDrawable();
+            mSmooth = isSmoothSecondHand();
+            mClockDrawable.setUse24Format(DateFormat.is24HourFormat(ClockWallpaperService.this));
+        }
+
+        @Override
+        public void onVisibilityChanged(boolean visible) {
+            super.onVisibilityChanged(visible);
+            mVisible = visible;
+            if (visible) {
+                registerReceiver();
+                drawFrame();
+            } else {
+                unregisterReceiver();
+                mHandler.removeCallbacks(mDrawFrame);
+                mHandler.removeCallbacks(mScrollIdle);
+                mScrolling = false;
+            }
+        }
+
+        @Override
+        public void onSurfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+            super.onSurfaceChanged(holder, format, width, height);
+            mClockDrawable.setBounds(0, 0, width, height);
+            if (mSmooth) {
+                // The tip of second hand runs the circumference of dial in one minute
+                final double circumference = Math.PI * Math.min(width, height);
+                mFrameInterval = Math.max(MIN_SMOOTH_FRAME_INTERVAL,
+                        Math.min(TICK_FRAME_INTERVAL, (long) (MILLIS_PER_MINUTE / circumference)));
+            }
+            if (mVisible) {
+                mHandler.removeCallbacks(mDrawFrame);
+                drawFrame();
+            }
+        }
+
+        @Override
+        public void onSurfaceDestroyed(SurfaceHolder holder) {
+            super.onSurfaceDestroyed(holder);
+            mVisible = false;
+            mHandler.removeCallbacks(mDrawFrame);
+        }
+
+        @Override
+        public void onOffsetsChanged(float xOffset, float yOffset, float xOffsetStep, float yOffsetStep,
+                                     int xPixelOffset, int yPixelOffset) {
+            super.onOffsetsChanged(xOffset, yOffset, xOffsetStep, yOffsetStep, xPixelOffset, yPixelOffset);
+            if (!mVisible) return;
+            mHandler.removeCallbacks(mScrollIdle);
+            mHandler.postDelayed(mScrollIdle, SCROLL_IDLE_TIMEOUT);
+            if (!mScrolling) {
+                mScrolling = true;
+                scheduleFrame();
+            }
+        }
+
+        @Override
+        public void onDestroy() {
+            super.onDestroy();
+            unregisterReceiver();
+            mHandler.removeCallbacksAndMessages(null);
+        }
+
+        private void registerReceiver() {
+            if (!mReceiverRegistered) {
+                final IntentFilter filter = new IntentFilter();
+                filter.addAction(Intent.ACTION_TIME_CHANGED);
+                filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+                ClockWallpaperService.this.registerReceiver(mTimeReceiver, filter);
+                mReceiverRegistered = true;
+            }
+        }
+
+        private void unregisterReceiver() {
+            if (mReceiverRegistered) {
+                ClockWallpaperService.this.unregisterReceiver(mTimeReceiver);
+                mReceiverRegistered = false;
+            }
+        }
+
+        private void drawFrame() {
+            final SurfaceHolder holder = getSurfaceHolder();
+            final long now = System.currentTimeMillis();
+            mTime.setTimeInMillis(now);
+            // A ticking hand stays on the mark of second even if the frame is a bit late
+            mClockDrawable.setTime(mTime.get(Calendar.HOUR_OF_DAY), mTime.get(Calendar.MINUTE),
+                    mTime.get(Calendar.SECOND), mSmooth ? mTime.get(Calendar.MILLISECOND) : 0);
+            Canvas canvas = null;
+            try {
+                canvas = holder.lockCanvas();
+                if (canvas != null) {
+                    canvas.drawColor(getBackgroundColor());
+                    mClockDrawable.draw(canvas);
+                }
+            } finally {
+                if (canvas != null) holder.unlockCanvasAndPost(canvas);
+            }
+            scheduleFrame();
+        }
+
+        /**
+         * Schedules next frame at the next boundary where the clock visibly changes.
+         */
+        private void scheduleFrame() {
+            mHandler.removeCallbacks(mDrawFrame);
+            if (!mVisible) return;
+            final long interval = mScrolling ? TICK_FRAME_INTERVAL : mFrameInterval;
+            final long now = System.currentTimeMillis();
+            final long delay = interval - now % interval;
+            mHandler.postAtTime(mDrawFrame, SystemClock.uptimeMillis() + delay);
+        }
+    }
+}
@@ -3,18 +3,25 @@ package com.creator.lemonade.clock.widget;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.AttributeSet;
-import android.util.Log;
+import android.util.TypedValue;
 
-import com.creator.lemonade.clock.BuildConfig;
 import com.creator.lemonade.clock.R;
 import com.creator.lemonade.clock.base.AbsClock;
 import com.creator.lemonade.clock.graphics.ClockDrawable;
+import com.creator.lemonade.clock.util.ClockEventPublisher;
+import com.creator.lemonade.clock.util.ClockTrace;
+import com.creator.lemonade.clock.util.SntpTimeSource;
 import com.creator.lemonade.clock.util.Ticker;
+import com.creator.lemonade.clock.util.TimeSource;
 
+import java.text.DateFormat;
 import java.util.Calendar;
-import java.util.Locale;
+import java.util.Date;
+import java.util.TimeZone;
 
 /**
  * Clock can display current time
@@ -23,13 +30,22 @@ import java.util.Locale;
  */
 public class Clock extends AbsClock {
 
-    /**
-     * The logging tag used by this class with android.util.Log
-     */
-    private static final String LOG_TAG = "Lemonade_Clock";
+    private static final long NANOS_PER_MILLI = 1000000;
 
     private static final boolean DEFAULT_SUPPORT_12_FORMAT = true;
 
+    /**
+     * The indexes of colors in the style resolved by {@link #resolveStyle(Context, AttributeSet)}
+     */
+    private static final int STYLE_DIAL = 0;
+    private static final int STYLE_HOUR_HAND = 1;
+    private static final int STYLE_MINUTE_HAND = 2;
+    private static final int STYLE_SECOND_HAND = 3;
+    private static final int STYLE_HOUR_TEXT = 4;
+    private static final int STYLE_MINUTE_TEXT = 5;
+    private static final int STYLE_AM_PM_TEXT = 6;
+    private static final int STYLE_SIZE = 7;
+
     /**
      * {@link Ticker} controls the updates of time
      */
@@ -45,37 +61,32 @@ public class Clock extends AbsClock {
      */
     private boolean mSupport12Format;
 
+    /**
+     * @see #getEventPublisher()
+     */
+    private ClockEventPublisher mEventPublisher;
+
+    /**
+     * The time zone of the last update of time, which the time is described in for accessibility
+     */
+    private TimeZone mTimeZone;
+
     public Clock(Context context) {
         this(context, null);
     }
 
     public Clock(Context context, @Nullable AttributeSet attrs) {
         super(context, attrs);
-        mClockDrawable = new ClockDrawable();
+        mClockDrawable = createDrawable(context, attrs);
         TypedArray array = context.obtainStyledAttributes(attrs, R.styleable.Clock);
         final String timeZone = array.getString(R.styleable.Clock_timeZone);
-        final int dialColor = array.getColor(R.styleable.Clock_dialColor, getThemeIntAttribute(R.attr.colorBackgroundFloating));
-        final int hourColor = array.getColor(R.styleable.Clock_hourHandColor, getThemeIntAttribute(R.attr.colorPrimaryDark));
-        final int minColor = array.getColor(R.styleable.Clock_minuteHandColor, getThemeIntAttribute(R.attr.colorPrimary));
-        final int secColor = array.getColor(R.styleable.Clock_secondHandColor, getThemeIntAttribute(R.attr.colorAccent));
-        final int hourTextColor = array.getColor(R.styleable.Clock_hourTextColor, getThemeIntAttribute(R.attr.colorPrimaryDark));
-        final int minTextColor = array.getColor(R.styleable.Clock_minuteTextColor, getThemeIntAttribute(R.attr.colorPrimary));
-        final int amPmTextColor = array.getColor(R.styleable.Clock_amPmTextColor, getThemeIntAttribute(R.attr.colorAccent));
         mSupport12Format = array.getBoolean(R.styleable.Clock_support12Format, DEFAULT_SUPPORT_12_FORMAT);
         array.recycle();
-        Typeface typeface = Typeface.createFromAsset(context.getAssets(), "fonts/digit_font.ttf");
-        mClockDrawable.setClockFontTypeface(typeface);
-        mClockDrawable.setDialColor(dialColor);
-        mClockDrawable.setHourHandColor(hourColor);
-        mClockDrawable.setMinuteHandColor(minColor);
-        mClockDrawable.setSecondHandColor(secColor);
-        mClockDrawable.setHourTextColor(hourTextColor);
-        mClockDrawable.setMinuteTextColor(minTextColor);
-        mClockDrawable.setAmPmTextColor(amPmTextColor);
         // Set the background to clockDrawable, so that we can
         // update view by calling ClockDrawable#invalidateSelf()
         setBackground(mClockDrawable);
         mTicker = new Ticker(context, timeZone);
+        mTicker.setMetrics(getMetrics());
         mTicker.setOnTimeUpdateListener(new Ticker.OnTimeUpdateListener() {
             @Override
             public void onTimeChanged(Calendar time) {
@@ -83,16 +94,149 @@ public class Clock extends AbsClock {
                 int min = time.get(Calendar.MINUTE);
                 int second = time.get(Calendar.SECOND);
                 int millis = time.get(Calendar.MILLISECOND);
-                if (BuildConfig.DEBUG) {
-                    Log.v(LOG_TAG, String.format(Locale.getDefault(), "onTickerTimeChanged: %d:%d:%d.%d",
-                            hour, min, second, millis));
-                }
+                trace(ClockTrace.EVENT_TICK, (((hour * 60L + min) * 60 + second) * 1000 + millis) * NANOS_PER_MILLI);
                 mClockDrawable.setUse24Format(mSupport12Format && mTicker.is24Format());
                 mClockDrawable.setTime(hour, min, second, millis);
+                mTimeZone = time.getTimeZone();
+                updateAccessibilityTime(time.getTimeInMillis() * NANOS_PER_MILLI, false);
             }
         });
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The wall time is formatted in the time zone of this clock.
+     */
+    @Nullable
+    @Override
+    protected CharSequence onCreateAccessibilityTime(long timeInNanos) {
+        if (mTimeZone == null) return null;
+        final DateFormat format = android.text.format.DateFormat.getTimeFormat(getContext());
+        format.setTimeZone(mTimeZone);
+        return format.format(new Date(timeInNanos / NANOS_PER_MILLI));
+    }
+
+    /**
+     * Applies the colors and font of clock defined by the attributes and current theme to the drawable.
+     *
+     * @param context  The context the clock is running in
+     * @param attrs    The attributes of the XML tag that is inflating the clock
+     * @param drawable The drawable to apply style to
+     */
+    public static void applyStyle(Context context, @Nullable AttributeSet attrs, ClockDrawable drawable) {
+        applyStyle(context, resolveStyle(context, attrs), drawable);
+    }
+
+    /**
+     * Creates a drawable styled by the attributes and current theme. The drawables of the same style
+     * share one {@link Drawable.ConstantState}, which holds the colors, shaders and typeface, so that
+     * they are created once per style in the process rather than once per clock.
+     *
+     * @param context The context the clock is running in
+     * @param attrs   The attributes of the XML tag that is inflating the clock
+     * @return The {@link ClockDrawable}, which must be {@link Drawable#mutate() mutated} before its
+     * style is changed
+     */
+    @NonNull
+    public static ClockDrawable createDrawable(Context context, @Nullable AttributeSet attrs) {
+        final int[] style = resolveStyle(context, attrs);
+        final Drawable.ConstantState state = getSharedState(ClockDrawable.class, style);
+        if (state != null) return (ClockDrawable) state.newDrawable();
+        final ClockDrawable drawable = new ClockDrawable();
+        applyStyle(context, style, drawable);
+        putSharedState(ClockDrawable.class, style, drawable.getConstantState());
+        return drawable;
+    }
+
+    /**
+     * Resolves the colors of clock defined by the attributes and current theme.
+     *
+     * @return the colors at the indexes of {@link #STYLE_DIAL} and so on
+     */
+    private static int[] resolveStyle(Context context, @Nullable AttributeSet attrs) {
+        final TypedValue value = new TypedValue();
+        final int[] style = new int[STYLE_SIZE];
+        TypedArray array = context.obtainStyledAttributes(attrs, R.styleable.Clock);
+        style[STYLE_DIAL] = array.getColor(R.styleable.Clock_dialColor, getThemeColor(context, R.attr.colorBackgroundFloating, R.color.lemonade_clock_background_floating, value));
+        style[STYLE_HOUR_HAND] = array.getColor(R.styleable.Clock_hourHandColor, getThemeColor(context, R.attr.colorPrimaryDark, R.color.lemonade_clock_primary_dark, value));
+        style[STYLE_MINUTE_HAND] = array.getColor(R.styleable.Clock_minuteHandColor, getThemeColor(context, R.attr.colorPrimary, R.color.lemonade_clock_primary, value));
+        style[STYLE_SECOND_HAND] = array.getColor(R.styleable.Clock_secondHandColor, getThemeColor(context, R.attr.colorAccent, R.color.lemonade_clock_accent, value));
+        style[STYLE_HOUR_TEXT] = array.getColor(R.styleable.Clock_hourTextColor, getThemeColor(context, R.attr.colorPrimaryDark, R.color.lemonade_clock_primary_dark, value));
+        style[STYLE_MINUTE_TEXT] = array.getColor(R.styleable.Clock_minuteTextColor, getThemeColor(context, R.attr.colorPrimary, R.color.lemonade_clock_primary, value));
+        style[STYLE_AM_PM_TEXT] = array.getColor(R.styleable.Clock_amPmTextColor, getThemeColor(context, R.attr.colorAccent, R.color.lemonade_clock_accent, value));
+        array.recycle();
+        return style;
+    }
+
+    private static void applyStyle(Context context, int[] style, ClockDrawable drawable) {
+        final Typeface typeface = getDigitTypeface(context);
+        drawable.setClockFontTypeface(typeface);
+        drawable.setDialColor(style[STYLE_DIAL]);
+        drawable.setHourHandColor(style[STYLE_HOUR_HAND]);
+        drawable.setMinuteHandColor(style[STYLE_MINUTE_HAND]);
+        drawable.setSecondHandColor(style[STYLE_SECOND_HAND]);
+        drawable.setHourTextColor(style[STYLE_HOUR_TEXT]);
+        drawable.setMinuteTextColor(style[STYLE_MINUTE_TEXT]);
+        drawable.setAmPmTextColor(style[STYLE_AM_PM_TEXT]);
+    }
+
+    /**
+     * Sets whether to show the clock in ambient mode, which is used on always-on displays. In ambient
+     * mode the clock is updated once at the start of every minute, and drawn without the second hand,
+     * gradients and anti-aliasing.
+     *
+     * @param ambientMode true for ambient mode, false for interactive mode
+     * @see ClockDrawable#setAmbientMode(boolean)
+     */
+    public void setAmbientMode(boolean ambientMode) {
+        mClockDrawable.setAmbientMode(ambientMode);
+        mTicker.setAmbientMode(ambientMode);
+    }
+
+    /**
+     * Sets the source of wall time of this clock, such as {@link SntpTimeSource#getDefault()}.
+     *
+     * @param timeSource The {@link TimeSource}, or null for the time of device
+     * @see Ticker#setTimeSource(TimeSource)
+     */
+    public void setTimeSource(TimeSource timeSource) {
+        mTicker.setTimeSource(timeSource);
+    }
+
+    /**
+     * Gets the publisher of the time of this clock, which conflates the time updates for slow
+     * subscribers. The time of events is the wall time since epoch.
+     *
+     * @return The {@link ClockEventPublisher}
+     */
+    @NonNull
+    public ClockEventPublisher getEventPublisher() {
+        if (mEventPublisher == null) {
+            mEventPublisher = ClockEventPublisher.from(mTicker);
+        }
+        return mEventPublisher;
+    }
+
+    /**
+     * Indicates whether the clock is shown in ambient mode.
+     *
+     * @return true if in ambient mode, false otherwise
+     */
+    public boolean isAmbientMode() {
+        return mClockDrawable.isAmbientMode();
+    }
+
+    @Override
+    protected void onTickWeightChanged(long weight) {
+        mTicker.setTickWeight(weight);
+    }
+
+    @Override
+    protected void onSuspendChanged(boolean suspended) {
+        mTicker.setSuspend(suspended);
+    }
+
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
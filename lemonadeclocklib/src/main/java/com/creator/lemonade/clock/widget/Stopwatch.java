@@ -4,21 +4,29 @@ import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Color;
 import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.os.SystemClock;
 import android.support.annotation.ColorInt;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.text.format.DateUtils;
 import android.util.AttributeSet;
-import android.util.Log;
+import android.util.TypedValue;
 import android.view.AbsSavedState;
+import android.view.Choreographer;
 
-import com.creator.lemonade.clock.BuildConfig;
 import com.creator.lemonade.clock.R;
 import com.creator.lemonade.clock.base.AbsClock;
 import com.creator.lemonade.clock.graphics.StopwatchDrawable;
+import com.creator.lemonade.clock.util.ClockEventPublisher;
+import com.creator.lemonade.clock.util.ClockTrace;
+import com.creator.lemonade.clock.util.GranularityFilter;
+import com.creator.lemonade.clock.util.ListenerRegistry;
 import com.creator.lemonade.clock.util.StopwatchModel;
-
-import java.util.Locale;
+import com.creator.lemonade.clock.util.TickGovernor;
+import com.creator.lemonade.clock.util.TickScheduler;
 
 /**
  * This stopwatch widget provides the following methods to control the running of stopwatch:
@@ -42,22 +50,156 @@ import java.util.Locale;
 @SuppressWarnings("unused")
 public class Stopwatch extends AbsClock {
 
+    private static final long NANOS_PER_MILLI = 1000000;
+    private static final long NANOS_PER_SECOND = 1000000000;
+
+    /**
+     * The interval between two frames in the pull mode, which matches the ticks of model
+     */
+    private static final long PULL_FRAME_INTERVAL = 30;
+
     /**
-     * The logging tag used by this class with android.util.Log
+     * The indexes of colors in the style resolved by {@link #resolveStyle(Context, AttributeSet)}
      */
-    private static final String LOG_TAG = "Lemonade_Stopwatch";
+    private static final int STYLE_DIAL = 0;
+    private static final int STYLE_MINUTE_HAND = 1;
+    private static final int STYLE_SECOND_HAND = 2;
+    private static final int STYLE_HOUR_TEXT = 3;
+    private static final int STYLE_MINUTE_TEXT = 4;
+    private static final int STYLE_SECOND_TEXT = 5;
+    private static final int STYLE_MILLIS_TEXT = 6;
+    private static final int STYLE_SIZE = 7;
 
     /**
      * A {@link StopwatchModel} controls the running of stopwatch
      */
-    private final StopwatchModel mStopwatchModel;
+    private StopwatchModel mStopwatchModel;
+
+    /**
+     * Whether the model has been created by this view. Only a model of its own is suspended and
+     * switched to the pull mode by this view, as a model bound by {@link #bindModel(StopwatchModel)}
+     * may run for other callbacks while this view can't be seen.
+     */
+    private boolean mOwnsModel = true;
+
+    /**
+     * Whether this view listens to the model, which is only while it is attached to window
+     */
+    private boolean mConnected;
 
     /**
      * A {@link StopwatchDrawable} defines the drawing of stopwatch
      */
     private final StopwatchDrawable mStopwatchDrawable;
 
-    private StopwatchListener mStopwatchListener;
+    /**
+     * All the callbacks with their filters of time
+     */
+    private final ListenerRegistry<ListenerEntry> mListeners = new ListenerRegistry<>();
+
+    /**
+     * The entry of callback registered by {@link #setStopwatchListener(StopwatchListener, int)},
+     * which is also in {@link #mListeners}
+     */
+    private ListenerEntry mListenerEntry;
+
+    /**
+     * @see #setTimeThresholds(long...)
+     */
+    private long[] mTimeThresholds = new long[0];
+
+    /**
+     * @see #getEventPublisher()
+     */
+    private ClockEventPublisher mEventPublisher;
+
+    /**
+     * @see #setPullMode(boolean)
+     */
+    private boolean mPullMode;
+
+    /**
+     * Draws a frame of the pull mode at the time of frame
+     */
+    private final Choreographer.FrameCallback mPullFrame = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            // The time of frame is in the base of System.nanoTime(), which stops in deep sleep
+            final long offset = SystemClock.elapsedRealtimeNanos() - System.nanoTime();
+            mStopwatchDrawable.setFrameTimeNanos(frameTimeNanos + offset);
+        }
+    };
+
+    /**
+     * Requests the frames of the pull mode, at the rate given by the {@link TickGovernor}
+     */
+    private final TickScheduler mPullScheduler = new TickScheduler(new Runnable() {
+        @Override
+        public void run() {
+            final Choreographer choreographer = Choreographer.getInstance();
+            choreographer.removeFrameCallback(mPullFrame);
+            choreographer.postFrameCallback(mPullFrame);
+        }
+    }, PULL_FRAME_INTERVAL);
+
+    /**
+     * The callback of model, which is created once and moved between models on rebinding
+     */
+    private final StopwatchModel.StopwatchWatcher mStopwatchWatcher = new StopwatchModel.StopwatchNanosWatcher() {
+        @Override
+        public void onTimeChanged(long timeInMillis) {
+            // Not called, as the time is received in nanoseconds
+        }
+
+        @Override
+        public void onLap(long lapTimeInMillis) {
+            // Not called, as the time is received in nanoseconds
+        }
+
+        @Override
+        public void onTimeChangedNanos(long timeInNanos) {
+            trace(ClockTrace.EVENT_TICK, timeInNanos);
+            final long timeInMillis = timeInNanos / NANOS_PER_MILLI;
+            if (mPullMode) {
+                updateAnchors();
+            } else {
+                mStopwatchDrawable.setTimeNanos(timeInNanos);
+            }
+            final Object[] listeners = mListeners.getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                final ListenerEntry entry = (ListenerEntry) listeners[i];
+                if (entry.filter.accept(timeInNanos)) entry.listener.onTimeChanged(timeInMillis);
+            }
+            if (mEventPublisher != null) mEventPublisher.publishTime(timeInNanos);
+            updateAccessibilityTime(timeInNanos, false);
+        }
+
+        @Override
+        public void onStateChanged(boolean started, boolean paused) {
+            trace(ClockTrace.EVENT_STATE, (started ? ClockTrace.STATE_STARTED : 0) | (paused ? ClockTrace.STATE_PAUSED : 0));
+            if (mPullMode) updateAnchors();
+            final Object[] listeners = mListeners.getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                final ListenerEntry entry = (ListenerEntry) listeners[i];
+                entry.filter.reset();
+                entry.listener.onStateChanged(started, paused);
+            }
+            if (mEventPublisher != null) mEventPublisher.publishState(started, paused);
+            updatePullFrames();
+            invalidateAccessibilityTime();
+        }
+
+        @Override
+        public void onLapNanos(long lapTimeInNanos) {
+            trace(ClockTrace.EVENT_LAP, lapTimeInNanos);
+            final long lapTimeInMillis = lapTimeInNanos / NANOS_PER_MILLI;
+            final Object[] listeners = mListeners.getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ((ListenerEntry) listeners[i]).listener.onLap(lapTimeInMillis);
+            }
+            if (mEventPublisher != null) mEventPublisher.publishLap(lapTimeInNanos);
+        }
+    };
 
     public Stopwatch(Context context) {
         this(context, null);
@@ -65,72 +207,187 @@ public class Stopwatch extends AbsClock {
 
     public Stopwatch(Context context, @Nullable AttributeSet attrs) {
         super(context, attrs);
-        mStopwatchDrawable = new StopwatchDrawable();
-        final int colorPrimary = getThemeIntAttribute(R.attr.colorPrimary);
-        final int colorPrimaryDark = getThemeIntAttribute(R.attr.colorPrimaryDark);
-        final int colorAccent = getThemeIntAttribute(R.attr.colorAccent);
-        final int colorCenter = getCentralColor(colorPrimary, colorAccent);
-        final int colorBackgroundFloating = getThemeIntAttribute(R.attr.colorBackgroundFloating);
-        TypedArray array = context.obtainStyledAttributes(attrs, R.styleable.Stopwatch);
-        final int dialColor = array.getColor(R.styleable.Stopwatch_dialColor, colorBackgroundFloating);
-        final int minColor = array.getColor(R.styleable.Stopwatch_minuteHandColor, colorPrimary);
-        final int secColor = array.getColor(R.styleable.Stopwatch_secondHandColor, colorAccent);
-        final int hourTextColor = array.getColor(R.styleable.Stopwatch_hourTextColor, colorPrimaryDark);
-        final int minTextColor = array.getColor(R.styleable.Stopwatch_minuteTextColor, colorPrimary);
-        final int secTextColor = array.getColor(R.styleable.Stopwatch_secondTextColor, colorAccent);
-        final int millisTextColor = array.getColor(R.styleable.Stopwatch_millisecondTextColor, colorCenter);
-        array.recycle();
-        Typeface typeface = Typeface.createFromAsset(context.getAssets(), "fonts/digit_font.ttf");
-        mStopwatchDrawable.setFontTypeFace(typeface);
-        mStopwatchDrawable.setDialColor(dialColor);
-        mStopwatchDrawable.setSecondHandColor(secColor);
-        mStopwatchDrawable.setMinuteHandColor(minColor);
-        mStopwatchDrawable.setHourTextColor(hourTextColor);
-        mStopwatchDrawable.setMinuteTextColor(minTextColor);
-        mStopwatchDrawable.setSecondTextColor(secTextColor);
-        mStopwatchDrawable.setMillisTextColor(millisTextColor);
+        mStopwatchDrawable = createDrawable(context, attrs);
         setBackground(mStopwatchDrawable);
         mStopwatchModel = new StopwatchModel();
-        mStopwatchModel.setStopwatchListener(new StopwatchModel.StopwatchWatcher() {
-            @Override
-            public void onTimeChanged(long timeInMillis) {
-                mStopwatchDrawable.setTime(timeInMillis);
-                if (mStopwatchListener != null) mStopwatchListener.onTimeChanged(timeInMillis);
-                if (BuildConfig.DEBUG) {
-                    Log.v(LOG_TAG, String.format(Locale.getDefault(), "onTimeChanged: %d", timeInMillis));
-                }
-            }
+    }
 
-            @Override
-            public void onStateChanged(boolean started, boolean paused) {
-                if (mStopwatchListener != null) mStopwatchListener.onStateChanged(started, paused);
-                if (BuildConfig.DEBUG) {
-                    Log.v(LOG_TAG, String.format(Locale.getDefault(),
-                            "onStateChanged : IsStarted = %s, IsPaused = %s", started, paused));
-                }
-            }
+    /**
+     * Applies the colors and font of stopwatch defined by the attributes and current theme to the drawable.
+     *
+     * @param context  The context the stopwatch is running in
+     * @param attrs    The attributes of the XML tag that is inflating the stopwatch
+     * @param drawable The drawable to apply style to
+     */
+    public static void applyStyle(Context context, @Nullable AttributeSet attrs, StopwatchDrawable drawable) {
+        applyStyle(context, resolveStyle(context, attrs), drawable);
+    }
 
-            @Override
-            public void onLap(long lapTimeInMillis) {
-                if (mStopwatchListener != null) mStopwatchListener.onLap(lapTimeInMillis);
-                if (BuildConfig.DEBUG) {
-                    Log.v(LOG_TAG, String.format(Locale.getDefault(), "onLap: %d", lapTimeInMillis));
-                }
-            }
-        });
+    /**
+     * Creates a drawable styled by the attributes and current theme. The drawables of the same style
+     * share one {@link Drawable.ConstantState}, which holds the colors, shaders and typeface, so that
+     * they are created once per style in the process rather than once per stopwatch.
+     *
+     * @param context The context the stopwatch is running in
+     * @param attrs   The attributes of the XML tag that is inflating the stopwatch
+     * @return The {@link StopwatchDrawable}, which must be {@link Drawable#mutate() mutated} before
+     * its style is changed
+     */
+    @NonNull
+    public static StopwatchDrawable createDrawable(Context context, @Nullable AttributeSet attrs) {
+        final int[] style = resolveStyle(context, attrs);
+        final Drawable.ConstantState state = getSharedState(StopwatchDrawable.class, style);
+        if (state != null) return (StopwatchDrawable) state.newDrawable();
+        final StopwatchDrawable drawable = new StopwatchDrawable();
+        applyStyle(context, style, drawable);
+        putSharedState(StopwatchDrawable.class, style, drawable.getConstantState());
+        return drawable;
+    }
+
+    /**
+     * Resolves the colors of stopwatch defined by the attributes and current theme.
+     *
+     * @return the colors at the indexes of {@link #STYLE_DIAL} and so on
+     */
+    private static int[] resolveStyle(Context context, @Nullable AttributeSet attrs) {
+        final TypedValue value = new TypedValue();
+        final int colorPrimary = getThemeColor(context, R.attr.colorPrimary, R.color.lemonade_clock_primary, value);
+        final int colorPrimaryDark = getThemeColor(context, R.attr.colorPrimaryDark, R.color.lemonade_clock_primary_dark, value);
+        final int colorAccent = getThemeColor(context, R.attr.colorAccent, R.color.lemonade_clock_accent, value);
+        final int colorCenter = getCentralColor(colorPrimary, colorAccent);
+        final int colorBackgroundFloating = getThemeColor(context, R.attr.colorBackgroundFloating, R.color.lemonade_clock_background_floating, value);
+        final int[] style = new int[STYLE_SIZE];
+        TypedArray array = context.obtainStyledAttributes(attrs, R.styleable.Stopwatch);
+        style[STYLE_DIAL] = array.getColor(R.styleable.Stopwatch_dialColor, colorBackgroundFloating);
+        style[STYLE_MINUTE_HAND] = array.getColor(R.styleable.Stopwatch_minuteHandColor, colorPrimary);
+        style[STYLE_SECOND_HAND] = array.getColor(R.styleable.Stopwatch_secondHandColor, colorAccent);
+        style[STYLE_HOUR_TEXT] = array.getColor(R.styleable.Stopwatch_hourTextColor, colorPrimaryDark);
+        style[STYLE_MINUTE_TEXT] = array.getColor(R.styleable.Stopwatch_minuteTextColor, colorPrimary);
+        style[STYLE_SECOND_TEXT] = array.getColor(R.styleable.Stopwatch_secondTextColor, colorAccent);
+        style[STYLE_MILLIS_TEXT] = array.getColor(R.styleable.Stopwatch_millisecondTextColor, colorCenter);
+        array.recycle();
+        return style;
+    }
+
+    private static void applyStyle(Context context, int[] style, StopwatchDrawable drawable) {
+        final Typeface typeface = getDigitTypeface(context);
+        drawable.setFontTypeFace(typeface);
+        drawable.setDialColor(style[STYLE_DIAL]);
+        drawable.setSecondHandColor(style[STYLE_SECOND_HAND]);
+        drawable.setMinuteHandColor(style[STYLE_MINUTE_HAND]);
+        drawable.setHourTextColor(style[STYLE_HOUR_TEXT]);
+        drawable.setMinuteTextColor(style[STYLE_MINUTE_TEXT]);
+        drawable.setSecondTextColor(style[STYLE_SECOND_TEXT]);
+        drawable.setMillisTextColor(style[STYLE_MILLIS_TEXT]);
     }
 
     /**
-     * Register a callback to be invoked when the state of a stopwatch is changed
+     * Register a callback to be invoked when the state of a stopwatch is changed, its
+     * {@link StopwatchListener#onTimeChanged(long)} is called on every tick.
      *
      * @param listener the callback to run
      */
     public void setStopwatchListener(StopwatchListener listener) {
-        if (mStopwatchListener != listener) {
-            mStopwatchListener = listener;
+        setStopwatchListener(listener, GranularityFilter.GRANULARITY_TICK);
+    }
+
+    /**
+     * Register a callback to be invoked when the state of a stopwatch is changed, its
+     * {@link StopwatchListener#onTimeChanged(long)} is called only when the time in the given unit
+     * changes, such as once a second for {@link GranularityFilter#GRANULARITY_SECOND}.
+     *
+     * @param listener    the callback to run
+     * @param granularity one of {@code GranularityFilter.GRANULARITY_*}
+     * @see #setTimeThresholds(long...)
+     */
+    public void setStopwatchListener(StopwatchListener listener, @GranularityFilter.Granularity int granularity) {
+        final ListenerEntry entry = listener != null ? new ListenerEntry(listener, granularity, mTimeThresholds) : null;
+        mListeners.replace(mListenerEntry, entry);
+        mListenerEntry = entry;
+    }
+
+    /**
+     * Adds a callback to be invoked when the state of a stopwatch is changed, along with the others.
+     * Its {@link StopwatchListener#onTimeChanged(long)} is called on every tick.
+     *
+     * @param listener the callback to add
+     */
+    public void addStopwatchListener(@NonNull StopwatchListener listener) {
+        addStopwatchListener(listener, GranularityFilter.GRANULARITY_TICK);
+    }
+
+    /**
+     * Adds a callback to be invoked when the state of a stopwatch is changed, along with the others.
+     * Its {@link StopwatchListener#onTimeChanged(long)} is called only when the time in the given
+     * unit changes. Adding a callback again replaces its granularity.
+     *
+     * @param listener    the callback to add
+     * @param granularity one of {@code GranularityFilter.GRANULARITY_*}
+     */
+    public void addStopwatchListener(@NonNull StopwatchListener listener, @GranularityFilter.Granularity int granularity) {
+        removeStopwatchListener(listener);
+        mListeners.add(new ListenerEntry(listener, granularity, mTimeThresholds));
+    }
+
+    /**
+     * Removes a callback, no matter whether it was set or added.
+     *
+     * @param listener the callback to remove
+     */
+    public void removeStopwatchListener(StopwatchListener listener) {
+        final Object[] listeners = mListeners.getListeners();
+        for (int i = 0; i < listeners.length; i++) {
+            final ListenerEntry entry = (ListenerEntry) listeners[i];
+            if (entry.listener == listener) {
+                mListeners.remove(entry);
+                if (entry == mListenerEntry) mListenerEntry = null;
+            }
+        }
+    }
+
+    /**
+     * Specify the times at which {@link StopwatchListener#onTimeChanged(long)} is called, for the
+     * callbacks registered with {@link GranularityFilter#GRANULARITY_THRESHOLDS}.
+     *
+     * @param thresholds thresholds in milliseconds
+     */
+    public void setTimeThresholds(@NonNull long... thresholds) {
+        mTimeThresholds = thresholds.clone();
+        final Object[] listeners = mListeners.getListeners();
+        for (int i = 0; i < listeners.length; i++) {
+            ((ListenerEntry) listeners[i]).filter.setThresholds(thresholds);
         }
     }
 
+    /**
+     * A callback with the filter of time it subscribes with.
+     */
+    private static class ListenerEntry {
+
+        final StopwatchListener listener;
+        final GranularityFilter filter = new GranularityFilter(false);
+
+        ListenerEntry(StopwatchListener listener, int granularity, long[] thresholds) {
+            this.listener = listener;
+            filter.setGranularity(granularity);
+            filter.setThresholds(thresholds);
+        }
+    }
+
+    /**
+     * Gets the publisher of the events of this stopwatch, which conflates the time updates for slow
+     * subscribers and delivers the transitions of state losslessly. It survives rebinding of models.
+     *
+     * @return The {@link ClockEventPublisher}
+     */
+    @NonNull
+    public ClockEventPublisher getEventPublisher() {
+        if (mEventPublisher == null) {
+            mEventPublisher = new ClockEventPublisher();
+        }
+        return mEventPublisher;
+    }
+
     /**
      * Interface definition for a callback to be invoked when the state of a stopwatch is changed.
      */
@@ -189,10 +446,129 @@ public class Stopwatch extends AbsClock {
         }
     }
 
+    /**
+     * Binds this stopwatch to the given model, which may be owned outside, such as by the adapter of
+     * a RecyclerView. While this view is attached to window, the model is attached to it and delivers
+     * its current state immediately, and this view stops listening to the previous model. A bound
+     * model is never suspended or switched to the pull mode by this view, and is only detached if
+     * nothing else listens to it, otherwise it keeps running for the other callbacks and its owner
+     * decides when to detach it. The drawable of this view is kept.
+     *
+     * @param model the model to bind
+     */
+    public void bindModel(@NonNull StopwatchModel model) {
+        if (mStopwatchModel == model) return;
+        final boolean connected = mConnected;
+        if (connected) disconnectModel();
+        mStopwatchModel = model;
+        mOwnsModel = false;
+        if (connected) connectModel();
+    }
+
+    /**
+     * Starts listening to the model and attaches it to this view.
+     */
+    private void connectModel() {
+        final StopwatchModel model = mStopwatchModel;
+        mConnected = true;
+        model.setMetrics(getMetrics());
+        model.setStopwatchListener(mStopwatchWatcher);
+        model.setTickWeight((long) getWidth() * getHeight());
+        model.attach(getHandler());
+        if (mOwnsModel) {
+            model.setPullMode(mPullMode);
+            model.setSuspend(isSuspended());
+        }
+        model.refresh();
+    }
+
+    /**
+     * Stops listening to the model. The model is only detached if nothing else listens to it,
+     * otherwise it keeps running for the other callbacks.
+     */
+    private void disconnectModel() {
+        final StopwatchModel model = mStopwatchModel;
+        mConnected = false;
+        // The model may have been bound by another view since, which must be left alone
+        if (model.getStopwatchListener() != mStopwatchWatcher) return;
+        model.setStopwatchListener(null);
+        model.setMetrics(null);
+        if (!model.hasListeners()) {
+            model.detach();
+        } else if (mOwnsModel) {
+            // Gives the ticks back to the other callbacks
+            model.setPullMode(false);
+            model.setSuspend(false);
+        }
+    }
+
+    /**
+     * Sets whether the drawable evaluates the time when it is drawn, rather than the model pushes the
+     * time on every tick. In the pull mode the shown time matches the time of {@link Choreographer}
+     * frame and the model has no periodic work, while {@link StopwatchListener#onTimeChanged(long)}
+     * is only called on the changes of state. The frames are requested at the rate of ticks, which
+     * is governed by the {@link TickGovernor}, and only while the stopwatch runs and can be seen. A
+     * model bound by {@link #bindModel(StopwatchModel)} keeps its own mode, which only costs its ticks.
+     *
+     * @param pullMode true for the pull mode, false for ticking
+     */
+    public void setPullMode(boolean pullMode) {
+        if (mPullMode != pullMode) {
+            mPullMode = pullMode;
+            if (mConnected) {
+                if (mOwnsModel) mStopwatchModel.setPullMode(pullMode);
+                mStopwatchModel.refresh();
+            }
+            updatePullFrames();
+        }
+    }
+
+    /**
+     * Requests frames while the stopwatch runs in the pull mode and can be seen.
+     */
+    private void updatePullFrames() {
+        final boolean running = mPullMode && !isSuspended() && isStarted() && !isPaused();
+        mPullScheduler.setRunning(running);
+        if (!running && isAttachedToWindow()) Choreographer.getInstance().removeFrameCallback(mPullFrame);
+    }
+
+    /**
+     * Passes the anchors of model to the drawable in the pull mode.
+     */
+    private void updateAnchors() {
+        final StopwatchModel.StopwatchState state = mStopwatchModel.getState();
+        if (state.isStarted()) {
+            // The frame time is moved to now, so that a resumed stopwatch doesn't show the shifted base at an old frame
+            mStopwatchDrawable.setFrameTimeNanos(SystemClock.elapsedRealtimeNanos());
+            mStopwatchDrawable.setAnchors(state.getBase(), state.getPause());
+        } else {
+            mStopwatchDrawable.setTimeNanos(0);
+        }
+    }
+
+    /**
+     * Gets the model bound to this stopwatch.
+     *
+     * @return The {@link StopwatchModel}
+     * @see #bindModel(StopwatchModel)
+     */
+    @NonNull
+    public StopwatchModel getStopwatchModel() {
+        return mStopwatchModel;
+    }
+
+    @Override
+    protected void onTickWeightChanged(long weight) {
+        mStopwatchModel.setTickWeight(weight);
+        mPullScheduler.setWeight(weight);
+    }
+
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
-        mStopwatchModel.attach(getHandler());
+        connectModel();
+        mPullScheduler.attach(getHandler());
+        updatePullFrames();
     }
 
     @Override
@@ -207,9 +583,9 @@ public class Stopwatch extends AbsClock {
     }
 
     @Override
-    protected void onWindowVisibilityChanged(int visibility) {
-        super.onWindowVisibilityChanged(visibility);
-        mStopwatchModel.setSuspend(visibility != VISIBLE);
+    protected void onSuspendChanged(boolean suspended) {
+        if (mConnected && mOwnsModel) mStopwatchModel.setSuspend(suspended);
+        updatePullFrames();
     }
 
     /**
@@ -243,6 +619,51 @@ public class Stopwatch extends AbsClock {
         mStopwatchModel.reset();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In the pull mode the time is evaluated from the anchors of model, as the model doesn't tick.
+     */
+    @Nullable
+    @Override
+    protected CharSequence onCreateAccessibilityTime(long timeInNanos) {
+        final StopwatchModel.StopwatchState state = mStopwatchModel.getState();
+        long time = timeInNanos;
+        if (mPullMode) {
+            final long now = state.isPaused() ? state.getPause() : SystemClock.elapsedRealtimeNanos();
+            time = state.isStarted() ? Math.max(0, now - state.getBase()) : 0;
+        }
+        final String elapsed = DateUtils.formatElapsedTime(time / NANOS_PER_SECOND);
+        return getResources().getString(R.string.lemonade_clock_elapsed_time, elapsed);
+    }
+
+    @Override
+    protected int getAccessibilityActions() {
+        if (!isStarted()) return ACCESSIBILITY_ACTION_START;
+        if (isPaused()) return ACCESSIBILITY_ACTION_START | ACCESSIBILITY_ACTION_RESET;
+        return ACCESSIBILITY_ACTION_PAUSE | ACCESSIBILITY_ACTION_LAP | ACCESSIBILITY_ACTION_RESET;
+    }
+
+    @Override
+    protected boolean onAccessibilityAction(int action) {
+        switch (action) {
+            case ACCESSIBILITY_ACTION_START:
+                startOrResume();
+                return true;
+            case ACCESSIBILITY_ACTION_PAUSE:
+                pause();
+                return true;
+            case ACCESSIBILITY_ACTION_LAP:
+                lap();
+                return true;
+            case ACCESSIBILITY_ACTION_RESET:
+                reset();
+                return true;
+            default:
+                return false;
+        }
+    }
+
     /**
      * Indicates whether this stopwatch has been paused.
      *
@@ -272,7 +693,9 @@ public class Stopwatch extends AbsClock {
 
     @Override
     protected void onDetachedFromWindow() {
-        mStopwatchModel.detach();
+        disconnectModel();
+        mPullScheduler.detach();
+        Choreographer.getInstance().removeFrameCallback(mPullFrame);
         super.onDetachedFromWindow();
     }
 
@@ -0,0 +1,112 @@
+package com.creator.lemonade.clock.widget;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.os.Handler;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+
+import com.creator.lemonade.clock.R;
+import com.creator.lemonade.clock.base.AbsSurfaceClock;
+import com.creator.lemonade.clock.graphics.ClockDrawable;
+import com.creator.lemonade.clock.util.Ticker;
+import com.creator.lemonade.clock.util.TimeSource;
+
+import java.util.Calendar;
+
+/**
+ * A {@link Clock} which ticks and draws on a dedicated render thread, so that it keeps smooth
+ * even while the UI thread is busy. It accepts the same attributes as {@link Clock}.
+ *
+ * @author Felix.Liang
+ */
+public class SurfaceClock extends AbsSurfaceClock {
+
+    private static final boolean DEFAULT_SUPPORT_12_FORMAT = true;
+
+    /**
+     * {@link Ticker} controls the updates of time, lives on the render thread
+     */
+    private final Ticker mTicker;
+
+    /**
+     * {@link ClockDrawable} controls the drawing of clock
+     */
+    private final ClockDrawable mClockDrawable;
+
+    /**
+     * Indicates whether to support 12-hour time, default is {@link #DEFAULT_SUPPORT_12_FORMAT}
+     */
+    private final boolean mSupport12Format;
+
+    public SurfaceClock(Context context) {
+        this(context, null);
+    }
+
+    public SurfaceClock(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        mClockDrawable = Clock.createDrawable(context, attrs);
+        TypedArray array = context.obtainStyledAttributes(attrs, R.styleable.Clock);
+        final String timeZone = array.getString(R.styleable.Clock_timeZone);
+        mSupport12Format = array.getBoolean(R.styleable.Clock_support12Format, DEFAULT_SUPPORT_12_FORMAT);
+        array.recycle();
+        setClockDrawable(mClockDrawable);
+        mTicker = new Ticker(context, timeZone);
+        mTicker.setMetrics(getMetrics());
+        mTicker.setOnTimeUpdateListener(new Ticker.OnTimeUpdateListener() {
+            @Override
+            public void onTimeChanged(Calendar time) {
+                mClockDrawable.setUse24Format(mSupport12Format && mTicker.is24Format());
+                mClockDrawable.setTime(time.get(Calendar.HOUR_OF_DAY), time.get(Calendar.MINUTE),
+                        time.get(Calendar.SECOND), time.get(Calendar.MILLISECOND));
+            }
+        });
+    }
+
+    /**
+     * Sets whether to show the clock in ambient mode.
+     *
+     * @param ambientMode true for ambient mode, false for interactive mode
+     * @see Clock#setAmbientMode(boolean)
+     */
+    public void setAmbientMode(final boolean ambientMode) {
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mClockDrawable.setAmbientMode(ambientMode);
+                mTicker.setAmbientMode(ambientMode);
+            }
+        });
+    }
+
+    /**
+     * Sets the source of wall time of this clock.
+     *
+     * @param timeSource The {@link TimeSource}, or null for the time of device
+     * @see Clock#setTimeSource(TimeSource)
+     */
+    public void setTimeSource(final TimeSource timeSource) {
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mTicker.setTimeSource(timeSource);
+            }
+        });
+    }
+
+    @Override
+    protected void onTickWeightChanged(long weight) {
+        mTicker.setTickWeight(weight);
+    }
+
+    @Override
+    protected void onRenderThreadAttached(@NonNull Handler renderHandler) {
+        mTicker.attach(renderHandler);
+    }
+
+    @Override
+    protected void onRenderThreadDetached() {
+        mTicker.detach();
+    }
+}
@@ -0,0 +1,209 @@
+package com.creator.lemonade.clock.widget;
+
+import android.content.Context;
+import android.os.Handler;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+
+import com.creator.lemonade.clock.base.AbsSurfaceClock;
+import com.creator.lemonade.clock.graphics.StopwatchDrawable;
+import com.creator.lemonade.clock.util.StopwatchModel;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link Stopwatch} which ticks and draws on a dedicated render thread, so that the displayed
+ * time keeps smooth even while the UI thread is busy. It accepts the same attributes as {@link Stopwatch},
+ * and the {@link Stopwatch.StopwatchListener} is still called on the UI thread. Time updates to the
+ * listener are conflated to the latest value when the UI thread falls behind.
+ *
+ * @author Felix.Liang
+ */
+@SuppressWarnings("unused")
+public class SurfaceStopwatch extends AbsSurfaceClock {
+
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    /**
+     * A {@link StopwatchModel} controls the running of stopwatch, lives on the render thread
+     */
+    private final StopwatchModel mStopwatchModel;
+
+    /**
+     * A {@link StopwatchDrawable} defines the drawing of stopwatch
+     */
+    private final StopwatchDrawable mStopwatchDrawable;
+
+    private Stopwatch.StopwatchListener mStopwatchListener;
+
+    /**
+     * The state of stopwatch mirrored for the UI thread
+     */
+    private volatile boolean mStarted;
+    private volatile boolean mPaused;
+
+    /**
+     * The latest time to deliver to the listener on the UI thread
+     */
+    private volatile long mLatestTimeInMillis;
+
+    private final AtomicBoolean mTimeDispatchPending = new AtomicBoolean();
+
+    private final Runnable mDispatchTime = new Runnable() {
+        @Override
+        public void run() {
+            mTimeDispatchPending.set(false);
+            if (mStopwatchListener != null) mStopwatchListener.onTimeChanged(mLatestTimeInMillis);
+        }
+    };
+
+    public SurfaceStopwatch(Context context) {
+        this(context, null);
+    }
+
+    public SurfaceStopwatch(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        mStopwatchDrawable = Stopwatch.createDrawable(context, attrs);
+        setClockDrawable(mStopwatchDrawable);
+        mStopwatchModel = new StopwatchModel();
+        mStopwatchModel.setMetrics(getMetrics());
+        mStopwatchModel.setStopwatchListener(new StopwatchModel.StopwatchNanosWatcher() {
+            @Override
+            public void onTimeChanged(long timeInMillis) {
+                // Not called, as the time is received in nanoseconds
+            }
+
+            @Override
+            public void onLap(long lapTimeInMillis) {
+                // Not called, as the time is received in nanoseconds
+            }
+
+            @Override
+            public void onTimeChangedNanos(long timeInNanos) {
+                mStopwatchDrawable.setTimeNanos(timeInNanos);
+                mLatestTimeInMillis = timeInNanos / NANOS_PER_MILLI;
+                if (mTimeDispatchPending.compareAndSet(false, true)) {
+                    runOnUiThread(mDispatchTime);
+                }
+            }
+
+            @Override
+            public void onStateChanged(final boolean started, final boolean paused) {
+                mStarted = started;
+                mPaused = paused;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mStopwatchListener != null) mStopwatchListener.onStateChanged(started, paused);
+                    }
+                });
+            }
+
+            @Override
+            public void onLapNanos(final long lapTimeInNanos) {
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mStopwatchListener != null) {
+                            mStopwatchListener.onLap(lapTimeInNanos / NANOS_PER_MILLI);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    protected void onTickWeightChanged(long weight) {
+        mStopwatchModel.setTickWeight(weight);
+    }
+
+    @Override
+    protected void onRenderThreadAttached(@NonNull Handler renderHandler) {
+        mStopwatchModel.attach(renderHandler);
+        mStopwatchModel.setSuspend(false);
+    }
+
+    @Override
+    protected void onRenderThreadDetached() {
+        mStopwatchModel.detach();
+    }
+
+    /**
+     * Register a callback to be invoked on the UI thread when the state of a stopwatch is changed
+     *
+     * @param listener the callback to run
+     */
+    public void setStopwatchListener(Stopwatch.StopwatchListener listener) {
+        mStopwatchListener = listener;
+    }
+
+    /**
+     * Convenience method to start or resume the stopwatch.
+     */
+    public void startOrResume() {
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mStopwatchModel.startOrResume();
+            }
+        });
+    }
+
+    /**
+     * Convenience method to pause the stopwatch.
+     */
+    public void pause() {
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mStopwatchModel.pause();
+            }
+        });
+    }
+
+    /**
+     * Convenience method to add a lap.
+     *
+     * @see Stopwatch.StopwatchListener#onLap(long)
+     */
+    public void lap() {
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mStopwatchModel.lap();
+            }
+        });
+    }
+
+    /**
+     * Convenience method to reset the stopwatch.
+     */
+    public void reset() {
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mStopwatchModel.reset();
+            }
+        });
+    }
+
+    /**
+     * Indicates whether this stopwatch has been paused.
+     *
+     * @return true if has been paused, false otherwise
+     */
+    public boolean isPaused() {
+        return mPaused;
+    }
+
+    /**
+     * Indicates whether this stopwatch has been started.
+     *
+     * @return true if has been started, false otherwise
+     */
+    public boolean isStarted() {
+        return mStarted;
+    }
+}
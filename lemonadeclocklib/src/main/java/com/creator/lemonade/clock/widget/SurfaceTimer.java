@@ -0,0 +1,243 @@
+package com.creator.lemonade.clock.widget;
+
+import android.content.Context;
+import android.os.Handler;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+
+import com.creator.lemonade.clock.base.AbsSurfaceClock;
+import com.creator.lemonade.clock.graphics.TimerDrawable;
+import com.creator.lemonade.clock.util.TimerModel;
+import com.creator.lemonade.clock.util.TimerProgram;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link Timer} which ticks and draws on a dedicated render thread, so that the displayed
+ * time keeps smooth even while the UI thread is busy. The {@link Timer.TimerListener} is still
+ * called on the UI thread. Time updates to the listener are conflated to the latest value when
+ * the UI thread falls behind.
+ *
+ * @author Felix.Liang
+ */
+@SuppressWarnings("unused")
+public class SurfaceTimer extends AbsSurfaceClock {
+
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    /**
+     * A {@link TimerModel} controls the running of timer, lives on the render thread
+     */
+    private final TimerModel mTimerModel;
+
+    /**
+     * A {@link TimerDrawable} defines the drawing of timer
+     */
+    private final TimerDrawable mTimerDrawable;
+
+    private Timer.TimerListener mTimerListener;
+
+    private Timer.SegmentListener mSegmentListener;
+
+    /**
+     * The state of timer mirrored for the UI thread
+     */
+    private volatile boolean mStarted;
+    private volatile boolean mPaused;
+
+    /**
+     * The latest rest time to deliver to the listener on the UI thread
+     */
+    private volatile long mLatestRestTime;
+
+    private final AtomicBoolean mTimeDispatchPending = new AtomicBoolean();
+
+    private final Runnable mDispatchTime = new Runnable() {
+        @Override
+        public void run() {
+            mTimeDispatchPending.set(false);
+            if (mTimerListener != null) mTimerListener.onTimeChanged(mLatestRestTime);
+        }
+    };
+
+    public SurfaceTimer(Context context) {
+        this(context, null);
+    }
+
+    public SurfaceTimer(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        mTimerDrawable = new TimerDrawable();
+        Timer.applyStyle(context, attrs, mTimerDrawable);
+        setClockDrawable(mTimerDrawable);
+        mTimerModel = new TimerModel();
+        mTimerModel.setMetrics(getMetrics());
+        mTimerModel.setTimerListener(new TimerModel.TimerNanosWatcher() {
+            @Override
+            public void onTimeChanged(long restTime, long totalTime) {
+                // Not called, as the time is received in nanoseconds
+            }
+
+            @Override
+            public void onTimeChangedNanos(long restTimeInNanos, long totalTimeInNanos) {
+                final long restTime = restTimeInNanos / NANOS_PER_MILLI;
+                mTimerDrawable.setTotalTimeNanos(totalTimeInNanos);
+                mTimerDrawable.setRestTimeNanos(restTimeInNanos);
+                mLatestRestTime = restTime;
+                if (mTimeDispatchPending.compareAndSet(false, true)) {
+                    runOnUiThread(mDispatchTime);
+                }
+            }
+
+            @Override
+            public void onStateChanged(final boolean started, final boolean paused) {
+                mStarted = started;
+                mPaused = paused;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mTimerListener != null) mTimerListener.onStateChanged(started, paused);
+                    }
+                });
+            }
+
+            @Override
+            public void onTimeout() {
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mTimerListener != null) mTimerListener.onTimeout();
+                    }
+                });
+            }
+        });
+        mTimerModel.addSegmentListener(new TimerModel.SegmentWatcher() {
+            @Override
+            public void onSegmentChanged(final int segment, final int tag) {
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mSegmentListener != null) mSegmentListener.onSegmentChanged(segment, tag);
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    protected void onTickWeightChanged(long weight) {
+        mTimerModel.setTickWeight(weight);
+    }
+
+    @Override
+    protected void onRenderThreadAttached(@NonNull Handler renderHandler) {
+        mTimerModel.attach(renderHandler);
+        mTimerModel.setSuspend(false);
+    }
+
+    @Override
+    protected void onRenderThreadDetached() {
+        mTimerModel.detach();
+    }
+
+    /**
+     * Registers a callback to be invoked on the UI thread when the state of a timer changes.
+     *
+     * @param listener callback to run
+     */
+    public void setTimerListener(Timer.TimerListener listener) {
+        mTimerListener = listener;
+    }
+
+    /**
+     * Registers a callback to be invoked on the UI thread when the timer enters a segment of its program.
+     *
+     * @param listener callback to run
+     * @see #setProgram(TimerProgram)
+     */
+    public void setSegmentListener(Timer.SegmentListener listener) {
+        mSegmentListener = listener;
+    }
+
+    /**
+     * Convenience method to start or resume the timer.
+     */
+    public void startOrResume() {
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mTimerModel.startOrResume();
+            }
+        });
+    }
+
+    /**
+     * Convenience method to pause the timer.
+     */
+    public void pause() {
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mTimerModel.pause();
+            }
+        });
+    }
+
+    /**
+     * Convenience method to reset the timer.
+     */
+    public void rest() {
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mTimerModel.reset();
+            }
+        });
+    }
+
+    /**
+     * Sets the total time of this timer, also this will stop and reset the timer.
+     *
+     * @param totalTime milliseconds to set
+     */
+    public void setTotalTime(final long totalTime) {
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mTimerModel.setTotalTime(totalTime);
+            }
+        });
+    }
+
+    /**
+     * Sets a program of several segments to run, also this will stop and reset the timer.
+     *
+     * @param program the program to run
+     */
+    public void setProgram(@NonNull final TimerProgram program) {
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mTimerModel.setProgram(program);
+            }
+        });
+    }
+
+    /**
+     * Indicates whether this timer has been paused.
+     *
+     * @return true if has been paused, false otherwise
+     */
+    public boolean isPaused() {
+        return mPaused;
+    }
+
+    /**
+     * Indicates whether this timer has been started.
+     *
+     * @return true if has been started, false otherwise
+     */
+    public boolean isStarted() {
+        return mStarted;
+    }
+}
@@ -1,24 +1,30 @@
 package com.creator.lemonade.clock.widget;
 
 import android.content.Context;
+import android.content.res.TypedArray;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.text.format.DateUtils;
 import android.util.AttributeSet;
-import android.util.Log;
+import android.util.TypedValue;
 import android.view.AbsSavedState;
 
-import com.creator.lemonade.clock.BuildConfig;
+import com.creator.lemonade.clock.R;
 import com.creator.lemonade.clock.base.AbsClock;
 import com.creator.lemonade.clock.graphics.TimerDrawable;
+import com.creator.lemonade.clock.util.ClockEventPublisher;
+import com.creator.lemonade.clock.util.ClockTrace;
+import com.creator.lemonade.clock.util.GranularityFilter;
+import com.creator.lemonade.clock.util.ListenerRegistry;
 import com.creator.lemonade.clock.util.TimerModel;
-
-import java.util.Locale;
+import com.creator.lemonade.clock.util.TimerProgram;
 
 /**
  * This timer widget provides the following methods to control the running of timer:
  * <ul>
- * <li>{@link #setTotalTime(long)}
+ * <li>{@link #setTotalTime(long)} or {@link #setProgram(TimerProgram)}
  * <li>{@link #startOrResume()}
  * <li>{@link #pause()}
  * <li>{@link #rest()}
@@ -38,22 +44,139 @@ import java.util.Locale;
 @SuppressWarnings("unused")
 public class Timer extends AbsClock {
 
+    private static final long NANOS_PER_MILLI = 1000000;
+    private static final long NANOS_PER_SECOND = 1000000000;
+
+    /**
+     * The default rest time in milliseconds below which the timer shows the warning color
+     */
+    private static final int DEFAULT_WARNING_TIME = 10 * 1000;
+
     /**
-     * The logging tag used by this class with android.util.Log
+     * The default rest time in milliseconds below which the time is reported to accessibility
+     * services per second
      */
-    private static final String LOG_TAG = "Lemonade_Timer";
+    private static final long DEFAULT_ACCESSIBILITY_COUNTDOWN = 10 * 1000;
 
     /**
      * A {@link TimerModel} controls the running of timer.
      */
-    private final TimerModel mTimerModel;
+    private TimerModel mTimerModel;
+
+    /**
+     * Whether the model has been created by this view. Only a model of its own is suspended by this
+     * view, as a model bound by {@link #bindModel(TimerModel)} may run for other callbacks while this
+     * view can't be seen.
+     */
+    private boolean mOwnsModel = true;
+
+    /**
+     * Whether this view listens to the model, which is only while it is attached to window
+     */
+    private boolean mConnected;
 
     /**
      * A {@link TimerDrawable} defines the drawing of timer.
      */
     private final TimerDrawable mTimerDrawable;
 
-    private TimerListener mTimerListener;
+    /**
+     * All the callbacks with their filters of rest time
+     */
+    private final ListenerRegistry<ListenerEntry> mListeners = new ListenerRegistry<>();
+
+    /**
+     * The entry of callback registered by {@link #setTimerListener(TimerListener, int)}, which is
+     * also in {@link #mListeners}
+     */
+    private ListenerEntry mListenerEntry;
+
+    /**
+     * The callbacks of segments
+     *
+     * @see #addSegmentListener(SegmentListener)
+     */
+    private final ListenerRegistry<SegmentListener> mSegmentListeners = new ListenerRegistry<>();
+
+    /**
+     * @see #setTimeThresholds(long...)
+     */
+    private long[] mTimeThresholds = new long[0];
+
+    /**
+     * @see #getEventPublisher()
+     */
+    private ClockEventPublisher mEventPublisher;
+
+    /**
+     * The rest time in nanoseconds below which the time is reported to accessibility services per second
+     *
+     * @see #setAccessibilityCountdown(long)
+     */
+    private long mAccessibilityCountdown = DEFAULT_ACCESSIBILITY_COUNTDOWN * NANOS_PER_MILLI;
+
+    /**
+     * The callback of model, which is created once and moved between models on rebinding
+     */
+    private final TimerModel.TimerWatcher mTimerWatcher = new TimerModel.TimerNanosWatcher() {
+        @Override
+        public void onTimeChanged(long restTime, long totalTime) {
+            // Not called, as the time is received in nanoseconds
+        }
+
+        @Override
+        public void onTimeChangedNanos(long restTimeInNanos, long totalTimeInNanos) {
+            trace(ClockTrace.EVENT_TICK, restTimeInNanos);
+            final long restTime = restTimeInNanos / NANOS_PER_MILLI;
+            mTimerDrawable.setTotalTimeNanos(totalTimeInNanos);
+            mTimerDrawable.setRestTimeNanos(restTimeInNanos);
+            final Object[] listeners = mListeners.getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                final ListenerEntry entry = (ListenerEntry) listeners[i];
+                if (entry.filter.accept(restTimeInNanos)) entry.listener.onTimeChanged(restTime);
+            }
+            if (mEventPublisher != null) mEventPublisher.publishTime(restTimeInNanos);
+            updateAccessibilityTime(restTimeInNanos, restTimeInNanos <= mAccessibilityCountdown);
+        }
+
+        @Override
+        public void onStateChanged(boolean started, boolean paused) {
+            trace(ClockTrace.EVENT_STATE, (started ? ClockTrace.STATE_STARTED : 0) | (paused ? ClockTrace.STATE_PAUSED : 0));
+            final Object[] listeners = mListeners.getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                final ListenerEntry entry = (ListenerEntry) listeners[i];
+                entry.filter.reset();
+                entry.listener.onStateChanged(started, paused);
+            }
+            if (mEventPublisher != null) mEventPublisher.publishState(started, paused);
+            invalidateAccessibilityTime();
+        }
+
+        @Override
+        public void onTimeout() {
+            trace(ClockTrace.EVENT_TIMEOUT, 0);
+            final Object[] listeners = mListeners.getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ((ListenerEntry) listeners[i]).listener.onTimeout();
+            }
+            if (mEventPublisher != null) mEventPublisher.publishTimeout();
+        }
+    };
+
+    /**
+     * The callback of segments of model, which moves between models along with {@link #mTimerWatcher}
+     */
+    private final TimerModel.SegmentWatcher mSegmentWatcher = new TimerModel.SegmentWatcher() {
+        @Override
+        public void onSegmentChanged(int segment, int tag) {
+            trace(ClockTrace.EVENT_SEGMENT, ((long) segment << 32) | (tag & 0xFFFFFFFFL));
+            final Object[] listeners = mSegmentListeners.getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                ((SegmentListener) listeners[i]).onSegmentChanged(segment, tag);
+            }
+            if (mEventPublisher != null) mEventPublisher.publishSegment(segment, tag);
+        }
+    };
 
     public Timer(Context context) {
         this(context, null);
@@ -62,54 +185,122 @@ public class Timer extends AbsClock {
     public Timer(Context context, @Nullable AttributeSet attrs) {
         super(context, attrs);
         mTimerDrawable = new TimerDrawable();
+        applyStyle(context, attrs, mTimerDrawable);
+        setBackground(mTimerDrawable);
         mTimerModel = new TimerModel();
-        mTimerModel.setTimerListener(new TimerModel.TimerWatcher() {
-            @Override
-            public void onTimeChanged(long restTime, long totalTime) {
-                mTimerDrawable.setTotalTime(totalTime);
-                mTimerDrawable.setRestTime(restTime);
-                if (mTimerListener != null) mTimerListener.onTimeChanged(restTime);
-                if (BuildConfig.DEBUG) {
-                    Log.v(LOG_TAG, String.format(Locale.getDefault(),
-                            "onTimeChanged : restTime = %d, totalTime = %d", restTime, totalTime));
-                }
-            }
+    }
 
-            @Override
-            public void onStateChanged(boolean started, boolean paused) {
-                if (mTimerListener != null) mTimerListener.onStateChanged(started, paused);
-                if (BuildConfig.DEBUG) {
-                    Log.v(LOG_TAG, String.format(Locale.getDefault(),
-                            "onStateChanged : IsStarted = %s, IsPaused = %s", started, paused));
-                }
-            }
+    /**
+     * Applies the colors, font and warning time of timer defined by the attributes and current theme
+     * to the drawable.
+     *
+     * @param context  The context the timer is running in
+     * @param attrs    The attributes of the XML tag that is inflating the timer
+     * @param drawable The drawable to apply style to
+     */
+    public static void applyStyle(Context context, @Nullable AttributeSet attrs, TimerDrawable drawable) {
+        final TypedValue value = new TypedValue();
+        TypedArray array = context.obtainStyledAttributes(attrs, R.styleable.Timer);
+        final int dialColor = array.getColor(R.styleable.Timer_dialColor, getThemeColor(context, R.attr.colorBackgroundFloating, R.color.lemonade_clock_background_floating, value));
+        final int progressColor = array.getColor(R.styleable.Timer_progressColor, getThemeColor(context, R.attr.colorPrimary, R.color.lemonade_clock_primary, value));
+        final int warningColor = array.getColor(R.styleable.Timer_warningColor, getThemeColor(context, R.attr.colorAccent, R.color.lemonade_clock_accent, value));
+        final int textColor = array.getColor(R.styleable.Timer_timeTextColor, getThemeColor(context, R.attr.colorPrimaryDark, R.color.lemonade_clock_primary_dark, value));
+        final int warningTime = array.getInt(R.styleable.Timer_warningTime, DEFAULT_WARNING_TIME);
+        array.recycle();
+        drawable.setFontTypeFace(getDigitTypeface(context));
+        drawable.setDialColor(dialColor);
+        drawable.setProgressColor(progressColor);
+        drawable.setWarningColor(warningColor);
+        drawable.setTextColor(textColor);
+        drawable.setWarningTime(warningTime);
+    }
 
-            @Override
-            public void onTimeout() {
-                if (mTimerListener != null) mTimerListener.onTimeout();
-                if (BuildConfig.DEBUG) {
-                    Log.v(LOG_TAG, "onTimeout");
-                }
-            }
-        });
+    /**
+     * Binds this timer to the given model, which may be owned outside, such as by the adapter of
+     * a RecyclerView. While this view is attached to window, the model is attached to it and delivers
+     * its current state immediately, and this view stops listening to the previous model. A bound
+     * model is never suspended by this view, and is only detached if nothing else listens to it,
+     * otherwise it keeps running for the other callbacks and its owner decides when to detach it.
+     * The drawable of this view is kept.
+     *
+     * @param model the model to bind
+     */
+    public void bindModel(@NonNull TimerModel model) {
+        if (mTimerModel == model) return;
+        final boolean connected = mConnected;
+        if (connected) disconnectModel();
+        mTimerModel = model;
+        mOwnsModel = false;
+        if (connected) connectModel();
+    }
+
+    /**
+     * Starts listening to the model and attaches it to this view.
+     */
+    private void connectModel() {
+        final TimerModel model = mTimerModel;
+        mConnected = true;
+        model.setMetrics(getMetrics());
+        model.setTimerListener(mTimerWatcher);
+        model.addSegmentListener(mSegmentWatcher);
+        model.setTickWeight((long) getWidth() * getHeight());
+        model.attach(getHandler());
+        if (mOwnsModel) model.setSuspend(isSuspended());
+        model.refresh();
+    }
+
+    /**
+     * Stops listening to the model. The model is only detached if nothing else listens to it,
+     * otherwise it keeps running for the other callbacks.
+     */
+    private void disconnectModel() {
+        final TimerModel model = mTimerModel;
+        mConnected = false;
+        // The model may have been bound by another view since, which must be left alone
+        if (model.getTimerListener() != mTimerWatcher) return;
+        model.setTimerListener(null);
+        model.removeSegmentListener(mSegmentWatcher);
+        model.setMetrics(null);
+        if (!model.hasListeners()) {
+            model.detach();
+        } else if (mOwnsModel) {
+            // Gives the ticks back to the other callbacks
+            model.setSuspend(false);
+        }
+    }
+
+    /**
+     * Gets the model bound to this timer.
+     *
+     * @return The {@link TimerModel}
+     * @see #bindModel(TimerModel)
+     */
+    @NonNull
+    public TimerModel getTimerModel() {
+        return mTimerModel;
+    }
+
+    @Override
+    protected void onTickWeightChanged(long weight) {
+        mTimerModel.setTickWeight(weight);
     }
 
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
-        mTimerModel.attach(getHandler());
+        connectModel();
     }
 
     @Override
     protected void onDetachedFromWindow() {
-        mTimerModel.detach();
+        disconnectModel();
         super.onDetachedFromWindow();
     }
 
     @Override
-    protected void onWindowVisibilityChanged(int visibility) {
-        super.onWindowVisibilityChanged(visibility);
-        mTimerModel.setSuspend(visibility != VISIBLE);
+    protected void onSuspendChanged(boolean suspended) {
+        // The model stops ticking, but still wakes up at the ends of segments and the timeout
+        if (mConnected && mOwnsModel) mTimerModel.setSuspend(suspended);
     }
 
     /**
@@ -142,6 +333,78 @@ public class Timer extends AbsClock {
         mTimerModel.setTotalTime(totalTime);
     }
 
+    /**
+     * Sets a program of several segments to run, such as work/rest blocks of interval training.
+     * This will also stop and reset the timer, and the total time becomes the total of program.
+     *
+     * @param program the program to run
+     * @see #addSegmentListener(SegmentListener)
+     */
+    public void setProgram(@NonNull TimerProgram program) {
+        mTimerModel.setProgram(program);
+    }
+
+    /**
+     * Gets the index of current segment of the program.
+     *
+     * @return index of segment, or -1 if the timer isn't started or runs no program
+     */
+    public int getCurrentSegment() {
+        return mTimerModel.getCurrentSegment();
+    }
+
+    /**
+     * Specify the rest time below which the time is reported to accessibility services per second
+     * regardless of the granularity, default is 10 seconds.
+     *
+     * @param countdown rest time in milliseconds, or 0 to keep the granularity
+     * @see #setAccessibilityGranularity(int)
+     */
+    public void setAccessibilityCountdown(long countdown) {
+        mAccessibilityCountdown = countdown * NANOS_PER_MILLI;
+    }
+
+    @Override
+    protected boolean isCountingDown() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The rest time is rounded up to seconds, as it is shown.
+     */
+    @Nullable
+    @Override
+    protected CharSequence onCreateAccessibilityTime(long timeInNanos) {
+        final long seconds = (Math.max(0, timeInNanos) + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND;
+        return getResources().getString(R.string.lemonade_clock_remaining_time, DateUtils.formatElapsedTime(seconds));
+    }
+
+    @Override
+    protected int getAccessibilityActions() {
+        if (!isStarted()) return ACCESSIBILITY_ACTION_START;
+        if (isPaused()) return ACCESSIBILITY_ACTION_START | ACCESSIBILITY_ACTION_RESET;
+        return ACCESSIBILITY_ACTION_PAUSE | ACCESSIBILITY_ACTION_RESET;
+    }
+
+    @Override
+    protected boolean onAccessibilityAction(int action) {
+        switch (action) {
+            case ACCESSIBILITY_ACTION_START:
+                startOrResume();
+                return true;
+            case ACCESSIBILITY_ACTION_PAUSE:
+                pause();
+                return true;
+            case ACCESSIBILITY_ACTION_RESET:
+                rest();
+                return true;
+            default:
+                return false;
+        }
+    }
+
     /**
      * Indicates whether this timer has been paused.
      *
@@ -161,16 +424,134 @@ public class Timer extends AbsClock {
     }
 
     /**
-     * Registers a callback to be invoked when the state of a timer changes.
+     * Registers a callback to be invoked when the state of a timer changes, its
+     * {@link TimerListener#onTimeChanged(long)} is called on every tick.
      *
      * @param listener callback to run
      */
     public void setTimerListener(TimerListener listener) {
-        if (mTimerListener != listener) {
-            mTimerListener = listener;
+        setTimerListener(listener, GranularityFilter.GRANULARITY_TICK);
+    }
+
+    /**
+     * Registers a callback to be invoked when the state of a timer changes, its
+     * {@link TimerListener#onTimeChanged(long)} is called only when the rest time in the given unit
+     * changes, such as once a second for {@link GranularityFilter#GRANULARITY_SECOND}.
+     *
+     * @param listener    callback to run
+     * @param granularity one of {@code GranularityFilter.GRANULARITY_*}
+     * @see #setTimeThresholds(long...)
+     */
+    public void setTimerListener(TimerListener listener, @GranularityFilter.Granularity int granularity) {
+        final ListenerEntry entry = listener != null ? new ListenerEntry(listener, granularity, mTimeThresholds) : null;
+        mListeners.replace(mListenerEntry, entry);
+        mListenerEntry = entry;
+    }
+
+    /**
+     * Adds a callback to be invoked when the state of a timer changes, along with the others.
+     * Its {@link TimerListener#onTimeChanged(long)} is called on every tick.
+     *
+     * @param listener callback to add
+     */
+    public void addTimerListener(@NonNull TimerListener listener) {
+        addTimerListener(listener, GranularityFilter.GRANULARITY_TICK);
+    }
+
+    /**
+     * Adds a callback to be invoked when the state of a timer changes, along with the others.
+     * Its {@link TimerListener#onTimeChanged(long)} is called only when the rest time in the given
+     * unit changes. Adding a callback again replaces its granularity.
+     *
+     * @param listener    callback to add
+     * @param granularity one of {@code GranularityFilter.GRANULARITY_*}
+     */
+    public void addTimerListener(@NonNull TimerListener listener, @GranularityFilter.Granularity int granularity) {
+        removeTimerListener(listener);
+        mListeners.add(new ListenerEntry(listener, granularity, mTimeThresholds));
+    }
+
+    /**
+     * Removes a callback, no matter whether it was set or added.
+     *
+     * @param listener callback to remove
+     */
+    public void removeTimerListener(TimerListener listener) {
+        final Object[] listeners = mListeners.getListeners();
+        for (int i = 0; i < listeners.length; i++) {
+            final ListenerEntry entry = (ListenerEntry) listeners[i];
+            if (entry.listener == listener) {
+                mListeners.remove(entry);
+                if (entry == mListenerEntry) mListenerEntry = null;
+            }
+        }
+    }
+
+    /**
+     * Adds a callback to be invoked when the timer enters a segment of its program.
+     *
+     * @param listener callback to add
+     * @see #setProgram(TimerProgram)
+     */
+    public void addSegmentListener(@NonNull SegmentListener listener) {
+        mSegmentListeners.add(listener);
+    }
+
+    /**
+     * Removes a callback added by {@link #addSegmentListener(SegmentListener)}.
+     *
+     * @param listener callback to remove
+     */
+    public void removeSegmentListener(SegmentListener listener) {
+        mSegmentListeners.remove(listener);
+    }
+
+    /**
+     * Specify the rest times at which {@link TimerListener#onTimeChanged(long)} is called, such as
+     * 60, 30 and 10 seconds left, for the callbacks registered with
+     * {@link GranularityFilter#GRANULARITY_THRESHOLDS}.
+     *
+     * @param thresholds rest times in milliseconds
+     */
+    public void setTimeThresholds(@NonNull long... thresholds) {
+        mTimeThresholds = thresholds.clone();
+        final Object[] listeners = mListeners.getListeners();
+        for (int i = 0; i < listeners.length; i++) {
+            ((ListenerEntry) listeners[i]).filter.setThresholds(thresholds);
         }
     }
 
+    /**
+     * A callback with the filter of rest time it subscribes with. The rest time is rounded up as
+     * the drawable shows it.
+     */
+    private static class ListenerEntry {
+
+        final TimerListener listener;
+        final GranularityFilter filter = new GranularityFilter(true);
+
+        ListenerEntry(TimerListener listener, int granularity, long[] thresholds) {
+            this.listener = listener;
+            filter.setGranularity(granularity);
+            filter.setThresholds(thresholds);
+        }
+    }
+
+    /**
+     * Gets the publisher of the events of this timer, whose time is the rest time, which conflates
+     * the time updates for slow subscribers and delivers the transitions of state losslessly. It
+     * survives rebinding of models.
+     *
+     * @return The {@link ClockEventPublisher}
+     */
+    @NonNull
+    public ClockEventPublisher getEventPublisher() {
+        if (mEventPublisher == null) {
+            mEventPublisher = new ClockEventPublisher();
+        }
+        return mEventPublisher;
+    }
+
     /**
      * Interface definition for a callback to be invoked when the state of a timer changes.
      */
@@ -197,6 +578,23 @@ public class Timer extends AbsClock {
         void onTimeout();
     }
 
+    /**
+     * Interface definition for a callback to be invoked when a timer enters a segment of its program.
+     *
+     * @see #addSegmentListener(SegmentListener)
+     */
+    public interface SegmentListener {
+
+        /**
+         * Called when the timer enters a segment of its program.
+         *
+         * @param segment index of the segment
+         * @param tag     tag of the segment
+         * @see #setProgram(TimerProgram)
+         */
+        void onSegmentChanged(int segment, int tag);
+    }
+
     /**
      * This adapter class provides empty implementations of the methods from {@link TimerListener}.
      * Any custom listener that cares only about a subset of the methods of this listener can
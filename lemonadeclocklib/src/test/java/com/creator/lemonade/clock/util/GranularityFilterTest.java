@@ -0,0 +1,99 @@
+package com.creator.lemonade.clock.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of {@link GranularityFilter}.
+ *
+ * @author Felix.Liang
+ */
+public class GranularityFilterTest {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    @Test
+    public void tick_acceptsEveryTime() throws Exception {
+        final GranularityFilter filter = new GranularityFilter(false);
+        assertTrue(filter.accept(1));
+        assertTrue(filter.accept(1));
+        assertTrue(filter.accept(2));
+    }
+
+    @Test
+    public void second_acceptsOncePerSecond() throws Exception {
+        final GranularityFilter filter = new GranularityFilter(false);
+        filter.setGranularity(GranularityFilter.GRANULARITY_SECOND);
+        assertTrue(filter.accept(0));
+        assertFalse(filter.accept(999 * NANOS_PER_MILLI));
+        assertTrue(filter.accept(NANOS_PER_SECOND));
+        assertFalse(filter.accept(NANOS_PER_SECOND + 30 * NANOS_PER_MILLI));
+        assertTrue(filter.accept(5 * NANOS_PER_SECOND));
+    }
+
+    @Test
+    public void second_roundsUpCountingDown() throws Exception {
+        final GranularityFilter filter = new GranularityFilter(true);
+        filter.setGranularity(GranularityFilter.GRANULARITY_SECOND);
+        // 3.0 and 2.001 seconds both show 3
+        assertTrue(filter.accept(3 * NANOS_PER_SECOND));
+        assertFalse(filter.accept(2 * NANOS_PER_SECOND + NANOS_PER_MILLI));
+        assertTrue(filter.accept(2 * NANOS_PER_SECOND));
+        assertTrue(filter.accept(0));
+    }
+
+    @Test
+    public void tenMillis_acceptsOncePerUnit() throws Exception {
+        final GranularityFilter filter = new GranularityFilter(false);
+        filter.setGranularity(GranularityFilter.GRANULARITY_10_MILLIS);
+        assertTrue(filter.accept(0));
+        assertFalse(filter.accept(9 * NANOS_PER_MILLI));
+        assertTrue(filter.accept(10 * NANOS_PER_MILLI));
+    }
+
+    @Test
+    public void minute_acceptsOncePerMinute() throws Exception {
+        final GranularityFilter filter = new GranularityFilter(false);
+        filter.setGranularity(GranularityFilter.GRANULARITY_MINUTE);
+        assertTrue(filter.accept(0));
+        assertFalse(filter.accept(59 * NANOS_PER_SECOND));
+        assertTrue(filter.accept(60 * NANOS_PER_SECOND));
+    }
+
+    @Test
+    public void thresholds_acceptOnCrossing() throws Exception {
+        final GranularityFilter filter = new GranularityFilter(true);
+        filter.setGranularity(GranularityFilter.GRANULARITY_THRESHOLDS);
+        filter.setThresholds(10000, 60000, 30000);
+        assertTrue(filter.accept(90 * NANOS_PER_SECOND));
+        assertFalse(filter.accept(60 * NANOS_PER_SECOND));
+        // Crosses 60 seconds, while the rest time rounded up still shows 60
+        assertTrue(filter.accept(60 * NANOS_PER_SECOND - NANOS_PER_MILLI));
+        assertFalse(filter.accept(45 * NANOS_PER_SECOND));
+        // Both 30 and 10 seconds are crossed by one jump, which passes once
+        assertTrue(filter.accept(5 * NANOS_PER_SECOND));
+        assertFalse(filter.accept(NANOS_PER_SECOND));
+    }
+
+    @Test
+    public void reset_acceptsNextTime() throws Exception {
+        final GranularityFilter filter = new GranularityFilter(false);
+        filter.setGranularity(GranularityFilter.GRANULARITY_SECOND);
+        assertTrue(filter.accept(0));
+        assertFalse(filter.accept(1));
+        filter.reset();
+        assertTrue(filter.accept(1));
+    }
+
+    @Test
+    public void setGranularity_resets() throws Exception {
+        final GranularityFilter filter = new GranularityFilter(false);
+        filter.setGranularity(GranularityFilter.GRANULARITY_SECOND);
+        assertTrue(filter.accept(0));
+        filter.setGranularity(GranularityFilter.GRANULARITY_SECOND);
+        assertTrue(filter.accept(0));
+        assertEquals(GranularityFilter.GRANULARITY_SECOND, filter.getGranularity());
+    }
+}
@@ -0,0 +1,85 @@
+package com.creator.lemonade.clock.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of {@link ListenerRegistry}.
+ *
+ * @author Felix.Liang
+ */
+public class ListenerRegistryTest {
+
+    private static final String A = "a";
+    private static final String B = "b";
+    private static final String C = "c";
+
+    @Test
+    public void add_keepsOrderWithoutDuplicates() throws Exception {
+        final ListenerRegistry<String> registry = new ListenerRegistry<>();
+        assertTrue(registry.isEmpty());
+        assertTrue(registry.add(A));
+        assertTrue(registry.add(B));
+        assertFalse(registry.add(A));
+        assertArrayEquals(new Object[]{A, B}, registry.getListeners());
+        assertTrue(registry.contains(B));
+        assertFalse(registry.contains(C));
+    }
+
+    @Test
+    public void remove_keepsOrderOfOthers() throws Exception {
+        final ListenerRegistry<String> registry = new ListenerRegistry<>();
+        registry.add(A);
+        registry.add(B);
+        registry.add(C);
+        assertTrue(registry.remove(B));
+        assertFalse(registry.remove(B));
+        assertFalse(registry.remove(null));
+        assertArrayEquals(new Object[]{A, C}, registry.getListeners());
+        registry.remove(A);
+        registry.remove(C);
+        assertTrue(registry.isEmpty());
+        assertEquals(0, registry.getListeners().length);
+    }
+
+    @Test
+    public void replace_keepsSlot() throws Exception {
+        final ListenerRegistry<String> registry = new ListenerRegistry<>();
+        registry.add(A);
+        registry.add(B);
+        registry.replace(A, C);
+        assertArrayEquals(new Object[]{C, B}, registry.getListeners());
+        registry.replace(C, null);
+        assertArrayEquals(new Object[]{B}, registry.getListeners());
+        registry.replace(null, A);
+        assertArrayEquals(new Object[]{B, A}, registry.getListeners());
+    }
+
+    @Test
+    public void replace_withAddedListenerRemovesOld() throws Exception {
+        final ListenerRegistry<String> registry = new ListenerRegistry<>();
+        registry.add(A);
+        registry.add(B);
+        registry.replace(A, B);
+        assertArrayEquals(new Object[]{B}, registry.getListeners());
+    }
+
+    @Test
+    public void getListeners_isSnapshot() throws Exception {
+        final ListenerRegistry<String> registry = new ListenerRegistry<>();
+        registry.add(A);
+        final Object[] listeners = registry.getListeners();
+        registry.add(B);
+        registry.remove(A);
+        assertArrayEquals(new Object[]{A}, listeners);
+        assertArrayEquals(new Object[]{B}, registry.getListeners());
+    }
+
+    @Test
+    public void getListeners_doesNotAllocate() throws Exception {
+        final ListenerRegistry<String> registry = new ListenerRegistry<>();
+        registry.add(A);
+        assertSame(registry.getListeners(), registry.getListeners());
+    }
+}
@@ -0,0 +1,125 @@
+package com.creator.lemonade.clock.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests of {@link TimerProgram}.
+ *
+ * @author Felix.Liang
+ */
+public class TimerProgramTest {
+
+    private static final int WORK = 1;
+    private static final int REST = 2;
+
+    @Test
+    public void build_accumulatesEnds() throws Exception {
+        final TimerProgram program = new TimerProgram.Builder()
+                .addSegment(1000, WORK)
+                .addSegment(500, REST)
+                .addSegment(2000, WORK)
+                .build();
+        assertEquals(3, program.getSegmentCount());
+        assertEquals(3500, program.getTotalTime());
+        assertEquals(0, program.getSegmentStart(0));
+        assertEquals(1000, program.getSegmentEnd(0));
+        assertEquals(1000, program.getSegmentStart(1));
+        assertEquals(1500, program.getSegmentEnd(1));
+        assertEquals(1500, program.getSegmentStart(2));
+        assertEquals(3500, program.getSegmentEnd(2));
+        assertEquals(REST, program.getSegmentTag(1));
+    }
+
+    @Test
+    public void findSegment_endsExclusively() throws Exception {
+        final TimerProgram program = new TimerProgram.Builder()
+                .addSegment(1000, WORK)
+                .addSegment(500, REST)
+                .addSegment(2000, WORK)
+                .build();
+        assertEquals(0, program.findSegment(-1));
+        assertEquals(0, program.findSegment(0));
+        assertEquals(0, program.findSegment(999));
+        assertEquals(1, program.findSegment(1000));
+        assertEquals(1, program.findSegment(1499));
+        assertEquals(2, program.findSegment(1500));
+        assertEquals(2, program.findSegment(3499));
+        assertEquals(3, program.findSegment(3500));
+        assertEquals(3, program.findSegment(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void findSegment_matchesLinearScan() throws Exception {
+        final TimerProgram.Builder builder = new TimerProgram.Builder();
+        for (int i = 1; i <= 37; i++) {
+            builder.addSegment(i * 7 % 11 + 1, i);
+        }
+        final TimerProgram program = builder.build();
+        for (long elapsed = 0; elapsed <= program.getTotalTime(); elapsed++) {
+            int expected = 0;
+            while (expected < program.getSegmentCount() && elapsed >= program.getSegmentEnd(expected)) {
+                expected++;
+            }
+            assertEquals("elapsed " + elapsed, expected, program.findSegment(elapsed));
+        }
+    }
+
+    @Test
+    public void repeatLast_appendsCopies() throws Exception {
+        final TimerProgram program = new TimerProgram.Builder()
+                .addSegment(3000, REST)
+                .addSegment(1000, WORK)
+                .addSegment(500, REST)
+                .repeatLast(2, 3)
+                .build();
+        assertEquals(1 + 2 * 4, program.getSegmentCount());
+        assertEquals(3000 + 1500 * 4, program.getTotalTime());
+        for (int i = 1; i < program.getSegmentCount(); i++) {
+            final boolean work = i % 2 == 1;
+            assertEquals(work ? WORK : REST, program.getSegmentTag(i));
+            assertEquals(work ? 1000 : 500, program.getSegmentEnd(i) - program.getSegmentStart(i));
+        }
+    }
+
+    @Test
+    public void repeatLast_growsBeyondInitialCapacity() throws Exception {
+        final TimerProgram program = new TimerProgram.Builder()
+                .addSegment(10, WORK)
+                .repeatLast(1, 99)
+                .build();
+        assertEquals(100, program.getSegmentCount());
+        assertEquals(1000, program.getTotalTime());
+        assertEquals(57, program.findSegment(575));
+    }
+
+    @Test
+    public void repeatLast_zeroTimesKeepsSegments() throws Exception {
+        final TimerProgram program = new TimerProgram.Builder()
+                .addSegment(10, WORK)
+                .repeatLast(1, 0)
+                .build();
+        assertEquals(1, program.getSegmentCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void repeatLast_rejectsMoreThanAdded() throws Exception {
+        new TimerProgram.Builder().addSegment(10, WORK).repeatLast(2, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void repeatLast_rejectsNegativeTimes() throws Exception {
+        new TimerProgram.Builder().addSegment(10, WORK).repeatLast(1, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addSegment_rejectsNonPositiveDuration() throws Exception {
+        new TimerProgram.Builder().addSegment(0, WORK);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void build_rejectsEmptyProgram() throws Exception {
+        new TimerProgram.Builder().build();
+    }
+}